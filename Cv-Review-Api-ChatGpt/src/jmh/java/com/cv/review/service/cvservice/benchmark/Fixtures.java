@@ -0,0 +1,103 @@
+package com.cv.review.service.cvservice.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+/**
+ * Inputs of the benchmarks, built from the Spanish sample corpus in src/test/resources/corpus.
+ * The PDF and DOCX versions of a CV are generated in memory, so no binary fixtures are kept.
+ */
+final class Fixtures {
+
+	private static final int LINES_PER_PAGE = 50;
+
+	private Fixtures() {
+	}
+
+	static String read(String name) {
+		try (InputStream in = Fixtures.class.getResourceAsStream("/corpus/" + name)) {
+			if (in == null) {
+				throw new IllegalArgumentException("Unknown corpus file: " + name);
+			}
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param format pdf, docx or txt
+	 */
+	static byte[] document(String text, String format) throws IOException {
+		return switch (format) {
+			case "pdf" -> pdf(text.lines().toList());
+			case "docx" -> docx(text.lines().toList());
+			case "txt" -> text.getBytes(StandardCharsets.UTF_8);
+			default -> throw new IllegalArgumentException("Unknown format: " + format);
+		};
+	}
+
+	private static byte[] pdf(List<String> lines) throws IOException {
+		PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+		try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			PDPageContentStream content = null;
+			int line = 0;
+			for (String text : lines) {
+				if (content == null || line == LINES_PER_PAGE) {
+					if (content != null) {
+						content.endText();
+						content.close();
+					}
+					PDPage page = new PDPage(PDRectangle.A4);
+					document.addPage(page);
+					content = new PDPageContentStream(document, page);
+					content.beginText();
+					content.setFont(font, 10);
+					content.setLeading(14);
+					content.newLineAtOffset(50, 800);
+					line = 0;
+				}
+				content.showText(winAnsi(text));
+				content.newLine();
+				line++;
+			}
+			if (content != null) {
+				content.endText();
+				content.close();
+			}
+			document.save(out);
+			return out.toByteArray();
+		}
+	}
+
+	private static byte[] docx(List<String> lines) throws IOException {
+		try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			for (String text : lines) {
+				document.createParagraph().createRun().setText(text);
+			}
+			document.write(out);
+			return out.toByteArray();
+		}
+	}
+
+	// Las fuentes estándar del PDF sólo codifican WinAnsi (latin-1 más algunos signos)
+	private static String winAnsi(String text) {
+		StringBuilder safe = new StringBuilder(text.length());
+		for (char c : text.toCharArray()) {
+			safe.append(c == '\t' ? ' ' : c < 256 || "—–‘’“”…€•".indexOf(c) >= 0 ? c : '-');
+		}
+		return safe.toString();
+	}
+}
@@ -0,0 +1,53 @@
+package com.cv.review.service.cvservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cv.review.service.cvservice.util.ChatPrompt;
+import com.cv.review.service.cvservice.util.PromptTemplates;
+
+/**
+ * Prompt building over the Spanish CVs of the corpus: the escaped single-message prompt
+ * (buildCvPrompt) and the system + content parts prompt the service sends today.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptTemplatesBenchmark {
+
+	@Param({ "cv-backend-java.txt", "cv-data.txt", "cv-devops.txt", "cv-frontend.txt" })
+	public String cv;
+
+	private String cvText;
+	private String vacancy;
+
+	@Setup
+	public void setUp() {
+		cvText = Fixtures.read(cv);
+		vacancy = Fixtures.read(cv.equals("cv-data.txt") ? "vacancy-data.txt" : "vacancy-backend.txt");
+	}
+
+	@Benchmark
+	public String buildCvPrompt() {
+		return PromptTemplates.buildCvPrompt(cvText, vacancy);
+	}
+
+	@Benchmark
+	public ChatPrompt buildCvChatPrompt() {
+		return PromptTemplates.buildCvChatPrompt(cvText, vacancy);
+	}
+}
@@ -0,0 +1,81 @@
+package com.cv.review.service.cvservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.cv.review.service.cvservice.client.ChatCompletion;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.util.JsonText;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Handling of an OpenAI answer: reading the first choice content out of the chat completion
+ * body (ChatCompletion.parse), and deserializing that content into a ReviewResponse the way
+ * CvReviewService does, as plain JSON and through JsonText.readLeniently for a fenced answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+	private static final String REVIEW = """
+			{"apto":"yes","puntuacion":82,
+			"competenciasFaltantes":["Kubernetes en producción","AWS (EKS, RDS)","Observabilidad con OpenTelemetry"],
+			"cursosRecomendados":["Certified Kubernetes Application Developer (CKAD)","AWS Solutions Architect Associate"],
+			"resumen":"La candidata cumple con la experiencia en Java, Spring Boot y Kafka que pide la vacante y ha liderado la migración de un monolito de pagos a microservicios. Le falta experiencia demostrable con Kubernetes y AWS, que la vacante valora."}""";
+
+	// Mismo ObjectMapper que configura Spring Boot para la aplicación
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final ObjectReader reviewReader = objectMapper.readerFor(ReviewResponse.class);
+
+	private String completionBody;
+	private String fencedReview;
+
+	@Setup
+	public void setUp() throws Exception {
+		ObjectNode completion = objectMapper.createObjectNode()
+				.put("id", "chatcmpl-9xYz")
+				.put("object", "chat.completion")
+				.put("created", 1760000000L)
+				.put("model", "gpt-4o-mini-2024-07-18");
+		ObjectNode choice = completion.putArray("choices").addObject().put("index", 0);
+		choice.putObject("message").put("role", "assistant").put("content", REVIEW).putNull("refusal");
+		choice.putNull("logprobs");
+		choice.put("finish_reason", "stop");
+		completion.putObject("usage").put("prompt_tokens", 812).put("completion_tokens", 143).put("total_tokens", 955);
+		completion.put("system_fingerprint", "fp_0ba0d124f1");
+		completionBody = objectMapper.writeValueAsString(completion);
+		fencedReview = "Aquí tienes la evaluación:\n```json\n" + REVIEW + "\n```\n";
+	}
+
+	@Benchmark
+	public ChatCompletion parseChatCompletion() throws Exception {
+		return ChatCompletion.parse(objectMapper.getFactory(), completionBody);
+	}
+
+	@Benchmark
+	public ReviewResponse readReview() throws Exception {
+		return reviewReader.readValue(REVIEW);
+	}
+
+	@Benchmark
+	public ReviewResponse readFencedReview() throws Exception {
+		return JsonText.readLeniently(fencedReview, reviewReader);
+	}
+}
@@ -0,0 +1,50 @@
+package com.cv.review.service.cvservice.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cv.review.service.cvservice.dto.ExtractedText;
+import com.cv.review.service.cvservice.util.TextExtractor;
+
+/**
+ * Tika extraction of the same Spanish CV as PDF, DOCX and plain text, without character limit
+ * (the whole document is parsed).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextExtractorBenchmark {
+
+	@Param({ "pdf", "docx", "txt" })
+	public String format;
+
+	private byte[] document;
+
+	@Setup
+	public void setUp() throws Exception {
+		document = Fixtures.document(Fixtures.read("cv-backend-java.txt"), format);
+		if (extractText().getText().isEmpty()) {
+			throw new IllegalStateException("Nothing extracted from the " + format + " fixture");
+		}
+	}
+
+	@Benchmark
+	public ExtractedText extractText() throws Exception {
+		return TextExtractor.extractText(new ByteArrayInputStream(document), 0);
+	}
+}
@@ -2,8 +2,10 @@ package com.cv.review.service.cvservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class CvserviceApplication {
 
 	public static void main(String[] args) {
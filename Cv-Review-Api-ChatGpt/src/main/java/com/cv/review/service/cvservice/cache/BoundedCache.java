@@ -0,0 +1,187 @@
+package com.cv.review.service.cvservice.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small in-memory cache with LRU eviction, an optional total weight limit and a TTL.
+ *
+ * Entries are kept in a LinkedHashMap in access order, so the eldest entry is always
+ * the least recently used one. Expired entries are dropped lazily when they are read
+ * and whenever space has to be made for a new entry.
+ *
+ * All operations are synchronized: lookups are O(1) and the cache is small, so a single
+ * monitor is cheaper than anything more elaborate.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier clock;
+
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache bounded only by number of entries.
+     *
+     * @param maxEntries maximum number of entries (0 disables the cache)
+     * @param ttlMillis  time-to-live of each entry in ms (0 or less = no expiration)
+     */
+    public BoundedCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, 0, ttlMillis, v -> 1L);
+    }
+
+    /**
+     * Creates a cache bounded by number of entries and by total weight.
+     *
+     * @param maxEntries maximum number of entries (0 disables the cache)
+     * @param maxWeight  maximum sum of weights (0 or less = unbounded)
+     * @param ttlMillis  time-to-live of each entry in ms (0 or less = no expiration)
+     * @param weigher    function that returns the weight of a value
+     */
+    public BoundedCache(int maxEntries, long maxWeight, long ttlMillis, ToLongFunction<V> weigher) {
+        this(maxEntries, maxWeight, ttlMillis, weigher, System::currentTimeMillis);
+    }
+
+    BoundedCache(int maxEntries, long maxWeight, long ttlMillis, ToLongFunction<V> weigher, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached value or null if it is absent or expired.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (isExpired(entry, clock.getAsLong())) {
+            remove(key, entry);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, evicting expired and least recently used entries as needed.
+     * Values heavier than the whole weight limit are not stored.
+     */
+    public synchronized void put(K key, V value) {
+        if (maxEntries == 0 || value == null) {
+            return;
+        }
+        long weight = weigher.applyAsLong(value);
+        if (maxWeight > 0 && weight > maxWeight) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Entry<V> previous = entries.put(key, new Entry<>(value, weight, now));
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        totalWeight += weight;
+
+        if (entries.size() > maxEntries || (maxWeight > 0 && totalWeight > maxWeight)) {
+            purgeExpired(now);
+        }
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext() && (entries.size() > maxEntries || (maxWeight > 0 && totalWeight > maxWeight))) {
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            it.remove();
+            totalWeight -= eldest.getValue().weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @return the removed value, or null if it was absent or had expired
+     */
+    public synchronized V invalidate(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        totalWeight -= entry.weight;
+        if (isExpired(entry, clock.getAsLong())) {
+            evictions.incrementAndGet();
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> entry = it.next();
+            if (isExpired(entry, now)) {
+                it.remove();
+                totalWeight -= entry.weight;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        totalWeight -= entry.weight;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlMillis > 0 && now - entry.createdAt >= ttlMillis;
+    }
+
+    private record Entry<V>(V value, long weight, long createdAt) {
+    }
+}
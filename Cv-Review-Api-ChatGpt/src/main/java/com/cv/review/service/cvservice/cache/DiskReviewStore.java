@@ -0,0 +1,156 @@
+package com.cv.review.service.cvservice.cache;
+
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Disk-backed store of review results that survives restarts.
+ *
+ * Second level behind ReviewCache: CvReviewService looks here before calling OpenAI.
+ * Uses the same content-hash keys as ReviewCache. Writes and compaction run on a single
+ * background thread, lookups on the boundedElastic scheduler, so the request path never
+ * waits for disk writes. Any I/O error is logged and treated as a miss.
+ */
+@Component
+public class DiskReviewStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskReviewStore.class);
+
+    private final ObjectMapper objectMapper;
+    private final MappedLogStore store;
+    private final long ttlMillis;
+    private final ExecutorService writer;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private final Counter hits;
+    private final Counter misses;
+
+    public DiskReviewStore(@Value("${cvreview.store.enabled:true}") boolean enabled,
+                           @Value("${cvreview.store.dir:${java.io.tmpdir}/cvservice/review-store}") String dir,
+                           @Value("${cvreview.store.max-bytes:268435456}") long maxBytes,
+                           @Value("${cvreview.store.index-slots:65536}") int indexSlots,
+                           @Value("${cvreview.store.ttl-ms:604800000}") long ttlMillis,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.ttlMillis = ttlMillis;
+        this.objectMapper = objectMapper;
+        MappedLogStore opened = null;
+        if (enabled) {
+            try {
+                opened = new MappedLogStore(Path.of(dir), maxBytes, indexSlots);
+                log.info("Review store opened at {} with {} entries ({} bytes)", dir, opened.size(), opened.logSize());
+            } catch (IOException e) {
+                log.error("Could not open review store at {}, continuing without it: {}", dir, e.getMessage(), e);
+            }
+        }
+        this.store = opened;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "review-store-writer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.hits = Counter.builder("cvreview.store.hits")
+                .description("Review results served from the disk store")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cvreview.store.misses")
+                .description("Review lookups not found in the disk store")
+                .register(meterRegistry);
+        if (store != null) {
+            Gauge.builder("cvreview.store.entries", store, MappedLogStore::size)
+                    .description("Review results indexed in the disk store")
+                    .register(meterRegistry);
+            Gauge.builder("cvreview.store.bytes", store, MappedLogStore::logSize)
+                    .description("Size of the disk store log in bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Looks up a stored result.
+     *
+     * @param key hex SHA-256 key (see ReviewCache#keyFor)
+     * @return Mono with the stored result, or empty if absent/expired/disabled
+     */
+    public Mono<ReviewResponse> get(String key) {
+        if (store == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    byte[] payload = store.get(HexFormat.of().parseHex(key), ttlMillis);
+                    if (payload == null) {
+                        misses.increment();
+                        return null;
+                    }
+                    hits.increment();
+                    return objectMapper.readValue(payload, ReviewResponse.class);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(err -> {
+                    log.warn("Error reading review store for key {}: {}", key, err.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Stores a result asynchronously and schedules compaction when the size bound is exceeded.
+     */
+    public void put(String key, ReviewResponse response) {
+        if (store == null) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                store.put(HexFormat.of().parseHex(key), objectMapper.writeValueAsBytes(response));
+                if (store.needsCompaction() && compactionQueued.compareAndSet(false, true)) {
+                    writer.execute(this::compact);
+                }
+            } catch (Exception e) {
+                log.warn("Error writing review store for key {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    private void compact() {
+        try {
+            long before = store.logSize();
+            store.compact();
+            log.info("Review store compacted from {} to {} bytes ({} entries)", before, store.logSize(), store.size());
+        } catch (Exception e) {
+            log.error("Error compacting review store: {}", e.getMessage(), e);
+        } finally {
+            compactionQueued.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+            if (store != null) {
+                store.close();
+            }
+        } catch (Exception e) {
+            log.warn("Error closing review store: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cv.review.service.cvservice.cache;
+
+import com.cv.review.service.cvservice.dto.ExtractedText;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of extracted text, keyed by the SHA-256 of the uploaded bytes.
+ *
+ * Independent of ReviewCache: the same file uploaded against a different vacancy skips Tika
+ * even though the review itself has to run again. Bounded by number of entries and by total
+ * characters (cvreview.extraction.cache.*); hits, misses and hit ratio are published as
+ * cvreview.extraction.cache.* metrics.
+ */
+@Component
+public class ExtractionCache {
+
+    private final BoundedCache<String, ExtractedText> cache;
+
+    public ExtractionCache(@Value("${cvreview.extraction.cache.max-entries:500}") int maxEntries,
+                           @Value("${cvreview.extraction.cache.max-chars:5000000}") long maxChars,
+                           @Value("${cvreview.extraction.cache.ttl-ms:86400000}") long ttlMillis,
+                           MeterRegistry meterRegistry) {
+        this.cache = new BoundedCache<>(maxEntries, maxChars, ttlMillis, text -> text.getText().length());
+
+        FunctionCounter.builder("cvreview.extraction.cache.hits", cache, BoundedCache::hitCount)
+                .description("Uploads whose text was served from the extraction cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("cvreview.extraction.cache.misses", cache, BoundedCache::missCount)
+                .description("Uploads that had to be parsed")
+                .register(meterRegistry);
+        FunctionCounter.builder("cvreview.extraction.cache.evictions", cache, BoundedCache::evictionCount)
+                .description("Extracted texts evicted by size or TTL")
+                .register(meterRegistry);
+        Gauge.builder("cvreview.extraction.cache.hit.ratio", cache, ExtractionCache::hitRatio)
+                .description("Fraction of uploads served from the extraction cache")
+                .register(meterRegistry);
+        Gauge.builder("cvreview.extraction.cache.chars", cache, BoundedCache::weight)
+                .description("Characters of extracted text currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param sha256Hex  hex SHA-256 of the uploaded bytes
+     * @param charBudget extraction budget used (texts extracted with other budgets differ)
+     */
+    public ExtractedText get(String sha256Hex, int charBudget) {
+        return cache.get(key(sha256Hex, charBudget));
+    }
+
+    public void put(String sha256Hex, int charBudget, ExtractedText text) {
+        cache.put(key(sha256Hex, charBudget), text);
+    }
+
+    private static String key(String sha256Hex, int charBudget) {
+        return sha256Hex + ":" + charBudget;
+    }
+
+    private static double hitRatio(BoundedCache<?, ?> cache) {
+        long total = cache.hitCount() + cache.missCount();
+        return total == 0 ? 0.0 : (double) cache.hitCount() / total;
+    }
+}
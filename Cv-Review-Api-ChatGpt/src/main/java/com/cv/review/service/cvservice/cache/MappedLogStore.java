@@ -0,0 +1,427 @@
+package com.cv.review.service.cvservice.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Persistent key/value store made of an append-only log and a memory-mapped hash index.
+ *
+ * - reviews.log: sequence of records [int length][32-byte key][long createdAt][payload].
+ * - reviews.idx: header + open-addressing table of slots [32-byte key][long offset + 1].
+ *
+ * Opening the store only maps the index, so a restarted node is warm immediately without
+ * reading the log into the heap. The log is only scanned to rebuild a missing/corrupt index.
+ * Overwritten and old records are reclaimed by {@link #compact()}, which keeps the newest
+ * records within the configured size bound and swaps the files atomically.
+ *
+ * Keys are 32-byte digests (SHA-256); the caller is responsible for hashing.
+ */
+public class MappedLogStore implements Closeable {
+
+    static final String LOG_FILE = "reviews.log";
+    static final String INDEX_FILE = "reviews.idx";
+
+    private static final int KEY_BYTES = 32;
+    private static final int RECORD_HEADER = 4 + KEY_BYTES + 8;
+    private static final int SLOT_BYTES = KEY_BYTES + 8;
+    private static final int INDEX_HEADER = 16;
+    private static final int INDEX_MAGIC = 0x43565249; // "CVRI"
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final int minCapacity;
+    private final LongSupplier clock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel log;
+    private long logSize;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+
+    /**
+     * Opens (or creates) the store in the given directory.
+     *
+     * @param dir         directory that holds the log and index files
+     * @param maxBytes    size bound of the log; compaction keeps the newest records below it
+     * @param minCapacity minimum number of index slots (rounded up to a power of two)
+     */
+    public MappedLogStore(Path dir, long maxBytes, int minCapacity) throws IOException {
+        this(dir, maxBytes, minCapacity, System::currentTimeMillis);
+    }
+
+    MappedLogStore(Path dir, long maxBytes, int minCapacity, LongSupplier clock) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.minCapacity = powerOfTwo(Math.max(16, minCapacity));
+        this.clock = clock;
+        Files.createDirectories(dir);
+        open();
+    }
+
+    /**
+     * Returns the payload stored for the key, or null if absent or older than maxAgeMillis.
+     *
+     * @param key          32-byte key
+     * @param maxAgeMillis maximum age of the record (0 or less = no limit)
+     */
+    public byte[] get(byte[] key, long maxAgeMillis) throws IOException {
+        checkKey(key);
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(key);
+            long offset = slotOffset(slot);
+            if (offset < 0) {
+                return null;
+            }
+            ByteBuffer header = readFully(log, offset, RECORD_HEADER);
+            if (header == null) {
+                return null;
+            }
+            int length = header.getInt();
+            byte[] storedKey = new byte[KEY_BYTES];
+            header.get(storedKey);
+            long createdAt = header.getLong();
+            if (!Arrays.equals(key, storedKey) || length < 0) {
+                // Index points to an unexpected record (e.g. torn write before a crash)
+                return null;
+            }
+            if (maxAgeMillis > 0 && clock.getAsLong() - createdAt >= maxAgeMillis) {
+                return null;
+            }
+            ByteBuffer payload = readFully(log, offset + RECORD_HEADER, length);
+            return payload == null ? null : payload.array();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a record and points the index to it.
+     */
+    public void put(byte[] key, byte[] payload) throws IOException {
+        checkKey(key);
+        lock.writeLock().lock();
+        try {
+            if (count + 1 > capacity * MAX_LOAD) {
+                rebuildIndex(powerOfTwo(capacity * 2));
+            }
+            long offset = logSize;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+            record.putInt(payload.length).put(key).putLong(clock.getAsLong()).put(payload).flip();
+            while (record.hasRemaining()) {
+                log.write(record, offset + record.position());
+            }
+            logSize = offset + RECORD_HEADER + payload.length;
+            insert(key, offset);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true when the log grew past its size bound and should be compacted
+     */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return logSize > maxBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log keeping only the live record of each key, newest first, until
+     * 75% of maxBytes is reached. Runs mostly under the read lock so lookups keep going;
+     * the write lock is only held to copy records appended meanwhile and swap the files.
+     */
+    public void compact() throws IOException {
+        long snapshotSize;
+        List<long[]> live = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            snapshotSize = logSize;
+            for (int slot = 0; slot < capacity; slot++) {
+                long offset = slotOffset(slot);
+                if (offset < 0) {
+                    continue;
+                }
+                ByteBuffer header = readFully(log, offset, RECORD_HEADER);
+                if (header == null) {
+                    continue;
+                }
+                int length = header.getInt(0);
+                long createdAt = header.getLong(4 + KEY_BYTES);
+                live.add(new long[] {offset, RECORD_HEADER + (long) length, createdAt});
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Newest first; ties broken by log position (later offset = written later)
+        live.sort(Comparator.comparingLong((long[] r) -> r[2]).thenComparingLong(r -> r[0]).reversed());
+        long budget = (long) (maxBytes * 0.75);
+        long kept = 0;
+        List<long[]> selected = new ArrayList<>();
+        for (long[] r : live) {
+            if (kept + r[1] > budget) {
+                break;
+            }
+            kept += r[1];
+            selected.add(r);
+        }
+        // Keep log order so the new file is written sequentially
+        selected.sort(Comparator.comparingLong(r -> r[0]));
+
+        Path newLogPath = dir.resolve(LOG_FILE + ".compact");
+        Path newIndexPath = dir.resolve(INDEX_FILE + ".compact");
+        Files.deleteIfExists(newLogPath);
+        Files.deleteIfExists(newIndexPath);
+
+        lock.writeLock().lock();
+        try (FileChannel newLog = FileChannel.open(newLogPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Records appended after the snapshot are always kept
+            for (long offset = snapshotSize; offset + RECORD_HEADER <= logSize; ) {
+                ByteBuffer header = readFully(log, offset, RECORD_HEADER);
+                long size = RECORD_HEADER + (long) header.getInt(0);
+                selected.add(new long[] {offset, size, header.getLong(4 + KEY_BYTES)});
+                offset += size;
+            }
+
+            long newSize = 0;
+            List<long[]> moved = new ArrayList<>(selected.size());
+            for (long[] r : selected) {
+                long copied = 0;
+                while (copied < r[1]) {
+                    copied += log.transferTo(r[0] + copied, r[1] - copied, newLog.position(newSize + copied));
+                }
+                moved.add(new long[] {r[0], newSize});
+                newSize += r[1];
+            }
+            newLog.force(false);
+
+            int newCapacity = Math.max(minCapacity, powerOfTwo((int) Math.min(Integer.MAX_VALUE / 2, (long) (moved.size() / MAX_LOAD) + 1)));
+            closeIndex();
+            FileChannel oldLog = log;
+            Files.move(newLogPath, dir.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            oldLog.close();
+            log = FileChannel.open(dir.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logSize = newSize;
+
+            createIndex(newIndexPath, newCapacity);
+            for (long[] m : moved) {
+                ByteBuffer header = readFully(log, m[1], RECORD_HEADER);
+                byte[] key = new byte[KEY_BYTES];
+                header.position(4);
+                header.get(key);
+                insert(key, m[1]);
+            }
+            index.force();
+            closeIndex();
+            Files.move(newIndexPath, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapIndex(dir.resolve(INDEX_FILE));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long logSize() {
+        lock.readLock().lock();
+        try {
+            return logSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                index.force();
+            }
+            closeIndex();
+            if (log != null) {
+                log.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ----------------------------------------------------------------------------------
+
+    private void open() throws IOException {
+        Path logPath = dir.resolve(LOG_FILE);
+        Path indexPath = dir.resolve(INDEX_FILE);
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logSize = log.size();
+
+        if (Files.exists(indexPath) && mapIndex(indexPath)) {
+            return;
+        }
+        // No usable index: rebuild it from the log (only after a crash or first start)
+        Files.deleteIfExists(indexPath);
+        createIndex(indexPath, minCapacity);
+        scanLogIntoIndex();
+    }
+
+    private boolean mapIndex(Path indexPath) throws IOException {
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = indexChannel.size();
+        if (size < INDEX_HEADER) {
+            closeIndex();
+            return false;
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        int cap = index.getInt(4);
+        if (index.getInt(0) != INDEX_MAGIC || cap <= 0 || Integer.bitCount(cap) != 1
+                || size != INDEX_HEADER + (long) cap * SLOT_BYTES) {
+            closeIndex();
+            return false;
+        }
+        capacity = cap;
+        count = index.getInt(8);
+        return true;
+    }
+
+    private void createIndex(Path indexPath, int cap) throws IOException {
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) cap * SLOT_BYTES);
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, cap);
+        index.putInt(8, 0);
+        capacity = cap;
+        count = 0;
+    }
+
+    private void closeIndex() throws IOException {
+        index = null;
+        if (indexChannel != null) {
+            indexChannel.close();
+            indexChannel = null;
+        }
+    }
+
+    private void rebuildIndex(int newCapacity) throws IOException {
+        List<long[]> entries = new ArrayList<>(count);
+        List<byte[]> keys = new ArrayList<>(count);
+        for (int slot = 0; slot < capacity; slot++) {
+            long offset = slotOffset(slot);
+            if (offset >= 0) {
+                byte[] key = new byte[KEY_BYTES];
+                index.get(INDEX_HEADER + slot * SLOT_BYTES, key);
+                keys.add(key);
+                entries.add(new long[] {offset});
+            }
+        }
+        Path indexPath = dir.resolve(INDEX_FILE);
+        closeIndex();
+        Files.delete(indexPath);
+        createIndex(indexPath, newCapacity);
+        for (int i = 0; i < keys.size(); i++) {
+            insert(keys.get(i), entries.get(i)[0]);
+        }
+    }
+
+    private void scanLogIntoIndex() throws IOException {
+        long offset = 0;
+        while (offset + RECORD_HEADER <= logSize) {
+            ByteBuffer header = readFully(log, offset, RECORD_HEADER);
+            int length = header.getInt();
+            if (length < 0 || offset + RECORD_HEADER + length > logSize) {
+                break; // torn tail
+            }
+            byte[] key = new byte[KEY_BYTES];
+            header.get(key);
+            if (count + 1 > capacity * MAX_LOAD) {
+                rebuildIndex(powerOfTwo(capacity * 2));
+            }
+            insert(key, offset);
+            offset += RECORD_HEADER + length;
+        }
+        logSize = offset;
+    }
+
+    private void insert(byte[] key, long offset) {
+        int slot = findSlot(key);
+        int base = INDEX_HEADER + slot * SLOT_BYTES;
+        if (slotOffset(slot) < 0) {
+            index.put(base, key);
+            count++;
+            index.putInt(8, count);
+        }
+        index.putLong(base + KEY_BYTES, offset + 1);
+    }
+
+    /**
+     * Linear probing: returns the slot holding the key or the first empty slot.
+     */
+    private int findSlot(byte[] key) {
+        int mask = capacity - 1;
+        int slot = (int) (ByteBuffer.wrap(key).getLong() & mask);
+        byte[] candidate = new byte[KEY_BYTES];
+        while (true) {
+            if (slotOffset(slot) < 0) {
+                return slot;
+            }
+            index.get(INDEX_HEADER + slot * SLOT_BYTES, candidate);
+            if (Arrays.equals(candidate, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long slotOffset(int slot) {
+        return index.getLong(INDEX_HEADER + slot * SLOT_BYTES + KEY_BYTES) - 1;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return null;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void checkKey(byte[] key) {
+        if (key == null || key.length != KEY_BYTES) {
+            throw new IllegalArgumentException("Key must be " + KEY_BYTES + " bytes");
+        }
+    }
+
+    private static int powerOfTwo(int value) {
+        return Integer.highestOneBit(Math.max(1, value - 1)) << 1;
+    }
+}
@@ -0,0 +1,83 @@
+package com.cv.review.service.cvservice.cache;
+
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.util.ContentHash;
+import com.cv.review.service.cvservice.util.PromptTemplates;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of review results, keyed by the content of the request.
+ *
+ * The key is a SHA-256 of the normalized CV text, the vacancy text, the model and
+ * PromptTemplates.VERSION, so changing the prompt or the model never serves stale results.
+ * Hit/miss/eviction counters are published as cvreview.cache.* metrics.
+ */
+@Component
+public class ReviewCache {
+
+    private final BoundedCache<String, ReviewResponse> cache;
+
+    public ReviewCache(@Value("${cvreview.cache.max-entries:1000}") int maxEntries,
+                       @Value("${cvreview.cache.ttl-ms:3600000}") long ttlMillis,
+                       MeterRegistry meterRegistry) {
+        this.cache = new BoundedCache<>(maxEntries, ttlMillis);
+
+        FunctionCounter.builder("cvreview.cache.hits", cache, BoundedCache::hitCount)
+                .description("Review results served from the in-memory cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("cvreview.cache.misses", cache, BoundedCache::missCount)
+                .description("Review lookups not found in the in-memory cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("cvreview.cache.evictions", cache, BoundedCache::evictionCount)
+                .description("Review results evicted by size or TTL")
+                .register(meterRegistry);
+        Gauge.builder("cvreview.cache.size", cache, BoundedCache::size)
+                .description("Review results currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the cache key for a review request.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyDescription job description
+     * @param model              model used to review
+     * @return hex SHA-256 key
+     */
+    public String keyFor(String cvText, String vacancyDescription, String model) {
+        return ContentHash.sha256Hex(
+                ContentHash.normalize(cvText),
+                ContentHash.normalize(vacancyDescription),
+                model,
+                PromptTemplates.VERSION);
+    }
+
+    public ReviewResponse get(String key) {
+        return cache.get(key);
+    }
+
+    public void put(String key, ReviewResponse response) {
+        cache.put(key, response);
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,100 @@
+package com.cv.review.service.cvservice.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The parts of a chat completions response the service uses: the content of the first choice
+ * and the tokens billed for the call.
+ *
+ * @param content     choices[0].message.content, or the complete body if that field is missing
+ * @param totalTokens usage.total_tokens, or -1 if absent
+ */
+public record ChatCompletion(String content, int totalTokens) {
+
+    /**
+     * Reads the response with a streaming parser: only the two fields are materialized, the rest
+     * of the body (other choices, logprobs, ...) is skipped without building a tree.
+     *
+     * Expected response structure:
+     * {
+     *   "choices": [
+     *     { "message": { "role":"assistant", "content":"..." }, ... }
+     *   ],
+     *   "usage": { "total_tokens": 123, ... },
+     *   ...
+     * }
+     *
+     * @param jsonFactory factory of the shared ObjectMapper
+     * @param body        response body
+     * @return the completion; a body that is not a JSON object is returned whole as content
+     */
+    public static ChatCompletion parse(JsonFactory jsonFactory, String body) throws IOException {
+        if (body == null || body.isEmpty()) {
+            return new ChatCompletion("", -1);
+        }
+        String content = null;
+        int totalTokens = -1;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new ChatCompletion(body, -1);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    int index = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (index++ == 0 && parser.currentToken() == JsonToken.START_OBJECT) {
+                            content = messageContent(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String usageField = parser.currentName();
+                        parser.nextToken();
+                        if ("total_tokens".equals(usageField) && parser.currentToken().isNumeric()) {
+                            totalTokens = parser.getIntValue();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        // Fallback: the complete JSON if the expected field is not there
+        return new ChatCompletion(content != null ? content : body, totalTokens);
+    }
+
+    /**
+     * Reads one choice object up to its end and returns message.content (null if absent).
+     */
+    private static String messageContent(JsonParser parser) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.currentName();
+                    parser.nextToken();
+                    if ("content".equals(messageField) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                        content = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+}
@@ -0,0 +1,41 @@
+package com.cv.review.service.cvservice.client;
+
+import java.util.Arrays;
+
+/**
+ * Durations of the last calls to an endpoint, used to compute the hedge delay.
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyWindow(int size) {
+        this.samples = new long[Math.max(1, size)];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @param percentile 0..100
+     * @return the latency at that percentile in nanoseconds, or -1 with no samples
+     */
+    synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
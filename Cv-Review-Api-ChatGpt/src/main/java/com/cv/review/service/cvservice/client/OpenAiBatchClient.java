@@ -0,0 +1,220 @@
+package com.cv.review.service.cvservice.client;
+
+import com.cv.review.service.cvservice.config.OpenAiProperties;
+import com.cv.review.service.cvservice.util.ChatPrompt;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * WebClient-based client for the Batch API: input files are uploaded to /files, run as a batch
+ * of chat completions requests (/batches) within the completion window, and the output and
+ * error files are downloaded once the batch ends.
+ *
+ * Batches bypass the rate limiter, circuit breaker and hedging of OpenAiClient: they have their
+ * own quota and run asynchronously at a lower price. Input and output files are streamed from
+ * and to disk, so their size is not bounded by memory. Connections use the same connect, read
+ * and write timeouts as OpenAiClient (cvreview.openai.timeouts.*).
+ */
+@Component
+public class OpenAiBatchClient {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiBatchClient.class);
+
+    /**
+     * Endpoint the lines of the input file are sent to.
+     */
+    public static final String CHAT_COMPLETIONS_ENDPOINT = "/v1/chat/completions";
+
+    /**
+     * State of a batch, as reported by GET /batches/{id}.
+     *
+     * @param id           batch id
+     * @param status       validating, in_progress, finalizing, completed, failed, expired, cancelling or cancelled
+     * @param outputFileId file with the successful responses (null until the batch ends)
+     * @param errorFileId  file with the failed requests (null if none)
+     * @param total        requests in the batch
+     * @param completed    requests answered so far
+     * @param failed       requests failed so far
+     */
+    public record BatchInfo(String id, String status, String outputFileId, String errorFileId,
+                            int total, int completed, int failed) {
+
+        /**
+         * @return true once the batch will not change anymore (its files can be downloaded)
+         */
+        public boolean isTerminal() {
+            return "completed".equals(status) || "failed".equals(status) || "expired".equals(status)
+                    || "cancelled".equals(status);
+        }
+
+        static BatchInfo of(JsonNode batch) {
+            JsonNode counts = batch.path("request_counts");
+            return new BatchInfo(batch.path("id").asText(), batch.path("status").asText(),
+                    textOrNull(batch.path("output_file_id")), textOrNull(batch.path("error_file_id")),
+                    counts.path("total").asInt(), counts.path("completed").asInt(), counts.path("failed").asInt());
+        }
+
+        private static String textOrNull(JsonNode node) {
+            return node.isTextual() && !node.asText().isEmpty() ? node.asText() : null;
+        }
+    }
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final String completionWindow;
+    private final Duration timeout;
+
+    /**
+     * @param baseUrl          base URL of the API (e.g. https://api.openai.com/v1); empty to derive
+     *                         it from cvreview.openai.api-url
+     * @param completionWindow time OpenAI has to run a batch (only "24h" is accepted by the API)
+     * @param timeoutMillis    maximum duration of each call (uploads and downloads included)
+     * @param properties       API URL and key, and the connect, read and write timeouts
+     *                         (cvreview.openai.timeouts.*)
+     */
+    public OpenAiBatchClient(@Value("${cvreview.batch.base-url:}") String baseUrl,
+                             @Value("${cvreview.batch.completion-window:24h}") String completionWindow,
+                             @Value("${cvreview.batch.timeout-ms:600000}") long timeoutMillis,
+                             OpenAiProperties properties,
+                             ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.completionWindow = completionWindow;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        OpenAiProperties.Timeouts timeouts = properties.getTimeouts();
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl == null || baseUrl.isBlank() ? baseUrlOf(properties.getApiUrl()) : baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(OpenAiClient.httpClient(timeouts.getConnectMs(),
+                        timeouts.getReadMs(), timeouts.getWriteMs())))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + properties.getApiKey())
+                .build();
+    }
+
+    /**
+     * Builds one line of a batch input file:
+     * {"custom_id": "...", "method": "POST", "url": "/v1/chat/completions", "body": {...}}
+     * with the same body OpenAiClient sends for the prompt.
+     */
+    public String requestLine(String customId, String model, ChatPrompt prompt) throws JsonProcessingException {
+        ObjectNode line = objectMapper.createObjectNode()
+                .put("custom_id", customId)
+                .put("method", "POST")
+                .put("url", CHAT_COMPLETIONS_ENDPOINT);
+        line.set("body", OpenAiClient.buildRequestBody(objectMapper, model, prompt, false));
+        return objectMapper.writeValueAsString(line);
+    }
+
+    /**
+     * Uploads a JSONL input file with purpose "batch".
+     *
+     * @return Mono with the id of the uploaded file
+     */
+    public Mono<String> upload(Path jsonl) {
+        MultipartBodyBuilder multipart = new MultipartBodyBuilder();
+        multipart.part("purpose", "batch");
+        multipart.part("file", new FileSystemResource(jsonl)).contentType(MediaType.APPLICATION_OCTET_STREAM);
+        return call(webClient.post()
+                .uri("/files")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(multipart.build()))
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
+                .bodyToMono(JsonNode.class)
+                .map(file -> file.path("id").asText()))
+                .doOnNext(fileId -> log.info("Batch input file {} uploaded as {}", jsonl.getFileName(), fileId));
+    }
+
+    /**
+     * Creates a batch of chat completions requests from an uploaded input file.
+     */
+    public Mono<BatchInfo> create(String inputFileId) {
+        ObjectNode request = objectMapper.createObjectNode()
+                .put("input_file_id", inputFileId)
+                .put("endpoint", CHAT_COMPLETIONS_ENDPOINT)
+                .put("completion_window", completionWindow);
+        return call(webClient.post()
+                .uri("/batches")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
+                .bodyToMono(JsonNode.class)
+                .map(BatchInfo::of))
+                .doOnNext(batch -> log.info("Batch {} created from file {} ({})", batch.id(), inputFileId, batch.status()));
+    }
+
+    /**
+     * Reads the current state of a batch.
+     */
+    public Mono<BatchInfo> get(String batchId) {
+        return call(webClient.get()
+                .uri("/batches/{id}", batchId)
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
+                .bodyToMono(JsonNode.class)
+                .map(BatchInfo::of));
+    }
+
+    /**
+     * Downloads the content of a file (output or error file of a batch) to disk.
+     *
+     * @return Mono with the target path once the file is completely written
+     */
+    public Mono<Path> download(String fileId, Path target) {
+        Flux<DataBuffer> content = webClient.get()
+                .uri("/files/{id}/content", fileId)
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
+                .bodyToFlux(DataBuffer.class);
+        return call(DataBufferUtils.write(content, target,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+                .thenReturn(target));
+    }
+
+    private <T> Mono<T> call(Mono<T> exchange) {
+        return exchange.timeout(timeout)
+                .onErrorMap(WebClientRequestException.class, ex -> new OpenAiException(502,
+                        "OpenAI batch request failed: " + ex.getMostSpecificCause()));
+    }
+
+    private Mono<? extends Throwable> mapToException(ClientResponse clientResponse) {
+        return clientResponse.bodyToMono(String.class)
+                .defaultIfEmpty("No body")
+                .flatMap(body -> {
+                    int status = clientResponse.statusCode().value();
+                    String msg = String.format("OpenAI Batch API returned status %d: %s", status, body);
+                    log.error(msg);
+                    return Mono.error(new OpenAiException(status, msg));
+                });
+    }
+
+    /**
+     * https://api.openai.com/v1/chat/completions -> https://api.openai.com/v1
+     */
+    static String baseUrlOf(String apiUrl) {
+        String suffix = "/chat/completions";
+        return apiUrl.endsWith(suffix) ? apiUrl.substring(0, apiUrl.length() - suffix.length()) : apiUrl;
+    }
+}
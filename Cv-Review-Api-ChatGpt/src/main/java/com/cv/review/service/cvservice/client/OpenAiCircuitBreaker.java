@@ -0,0 +1,207 @@
+package com.cv.review.service.cvservice.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Circuit breaker for the OpenAI API, shared by every call of an OpenAiClient.
+ *
+ * While CLOSED, the outcome of the last windowSize calls is kept in a ring buffer. Once at least
+ * minimumCalls have been recorded, the breaker OPENs if the share of failed calls reaches
+ * failureRateThreshold or the share of calls slower than slowCallDuration reaches
+ * slowCallRateThreshold (both in percent).
+ *
+ * While OPEN, calls are rejected at once with OpenAiUnavailableException, so requests fail
+ * fast instead of waiting for the timeouts of a degraded API. After waitInOpenState the breaker
+ * goes HALF_OPEN and lets halfOpenCalls probe calls through: if they are within the thresholds
+ * it CLOSEs again, otherwise it goes back to OPEN for another wait.
+ *
+ * Only errors matched by the failure predicate count as failures (server errors, timeouts,
+ * connection errors); the others (4xx, 429) are recorded as successful calls.
+ */
+public class OpenAiCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean enabled;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long waitInOpenMillis;
+    private final int halfOpenCalls;
+    private final Predicate<Throwable> isFailure;
+    private final Scheduler scheduler;
+
+    // Resultados de la ventana: bit 1 = fallo, bit 2 = lenta
+    private final byte[] window;
+    private int windowNext;
+    private int windowCount;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+
+    public OpenAiCircuitBreaker(boolean enabled, float failureRateThreshold, float slowCallRateThreshold,
+                                Duration slowCallDuration, int windowSize, int minimumCalls,
+                                Duration waitInOpenState, int halfOpenCalls,
+                                Predicate<Throwable> isFailure, Scheduler scheduler) {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.window = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.waitInOpenMillis = waitInOpenState.toMillis();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.isFailure = isFailure;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs the call if the breaker lets it through and records its outcome and duration.
+     * A cancelled call is not recorded (its half-open probe slot is given back).
+     *
+     * @param call the call to protect, subscribed at most once per subscription of the result
+     * @return the call, or an OpenAiUnavailableException if the breaker is open
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(new OpenAiUnavailableException(
+                        "OpenAI circuit breaker is open, the call was not sent.", retryAfter()));
+            }
+            long start = scheduler.now(TimeUnit.NANOSECONDS);
+            return call
+                    .doOnSuccess(value -> onResult(scheduler.now(TimeUnit.NANOSECONDS) - start, false))
+                    .doOnError(err -> onResult(scheduler.now(TimeUnit.NANOSECONDS) - start, isFailure.test(err)))
+                    .doOnCancel(this::release);
+        });
+    }
+
+    /**
+     * @return true while the breaker is open and its wait has not elapsed (calls are rejected)
+     */
+    public synchronized boolean isOpen() {
+        return enabled && state == State.OPEN && now() < openedAt + waitInOpenMillis;
+    }
+
+    /**
+     * @return time until the breaker lets probe calls through (at least one second)
+     */
+    public synchronized Duration retryAfter() {
+        long remaining = state == State.OPEN ? openedAt + waitInOpenMillis - now() : 0;
+        return Duration.ofMillis(Math.max(1000, remaining));
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return share of failed calls in the current window, in percent (0 with no calls)
+     */
+    public synchronized float failureRate() {
+        return windowCount == 0 ? 0 : failures * 100f / windowCount;
+    }
+
+    /**
+     * @return share of slow calls in the current window, in percent (0 with no calls)
+     */
+    public synchronized float slowCallRate() {
+        return windowCount == 0 ? 0 : slowCalls * 100f / windowCount;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (now() < openedAt + waitInOpenMillis) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            // Sólo pasan las llamadas de prueba; el resto sigue rechazado hasta decidir
+            if (probesInFlight + windowCount >= halfOpenCalls) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    synchronized void onResult(long durationNanos, boolean failed) {
+        if (state == State.OPEN) {
+            // Llamada que empezó antes de abrir: ya no cuenta
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+        record(failed, durationNanos >= slowCallNanos);
+
+        if (state == State.HALF_OPEN) {
+            if (windowCount >= halfOpenCalls) {
+                transition(exceedsThresholds() ? State.OPEN : State.CLOSED);
+            }
+        } else if (windowCount >= minimumCalls && exceedsThresholds()) {
+            transition(State.OPEN);
+        }
+    }
+
+    synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        byte outcome = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        if (windowCount == window.length) {
+            byte evicted = window[windowNext];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = outcome;
+        windowNext = (windowNext + 1) % window.length;
+        failures += outcome & 1;
+        slowCalls += (outcome >> 1) & 1;
+    }
+
+    private boolean exceedsThresholds() {
+        return failureRate() >= failureRateThreshold || slowCallRate() >= slowCallRateThreshold;
+    }
+
+    private void transition(State next) {
+        log.warn("OpenAI circuit breaker {} -> {} (failure rate {}%, slow call rate {}%)",
+                state, next, failureRate(), slowCallRate());
+        state = next;
+        // Cada estado empieza con la ventana vacía
+        windowNext = 0;
+        windowCount = 0;
+        failures = 0;
+        slowCalls = 0;
+        probesInFlight = 0;
+        if (next == State.OPEN) {
+            openedAt = now();
+        }
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+}
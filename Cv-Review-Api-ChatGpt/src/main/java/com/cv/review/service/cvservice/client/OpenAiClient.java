@@ -1,43 +1,109 @@
 package com.cv.review.service.cvservice.client;
 
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.ClientResponse;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.slf4j.Logger;
 
+import com.cv.review.service.cvservice.config.OpenAiProperties;
+import com.cv.review.service.cvservice.util.ChatPrompt;
+import com.cv.review.service.cvservice.util.TokenCounter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * WebClient-based client for the chat completions endpoint.
+ *
+ * Calls are routed by an OpenAiRouter over one or more endpoints in priority order
+ * (cvreview.openai.routing.endpoints; by default only cvreview.openai.api-url). A call that is
+ * slower than the usual latency of its endpoint is hedged to the next one and the first answer
+ * wins.
+ *
+ * Each endpoint has its own rate limiter (requests and tokens per minute, adapted from the
+ * x-ratelimit-* headers), circuit breaker (failure and slow-call rates) and bulkhead (maximum
+ * concurrent calls). Calls rejected with 429 are retried with jittered exponential backoff, after
+ * the pause the API asked for in Retry-After. Connect, read and response timeouts are explicit.
+ * Errors are reported as OpenAiException / OpenAiRateLimitException / OpenAiUnavailableException.
+ *
+ * Responses are read with a streaming parser (ChatCompletion) that only materializes the
+ * content of the first choice and the token usage. JSON goes through the application's
+ * shared ObjectMapper.
+ */
 @Component
 public class OpenAiClient {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAiClient.class);
     
-    private final WebClient webClient;
-    private final String apiUrl;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
+
+    private static final String STREAM_DONE = "[DONE]";
+    // Tokens que el formato de chat añade por mensaje
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private final OpenAiRouter router;
+    private final int completionTokens;
 
     /**
      * Constructor.
      *
-     * @param apiUrl  The base URL of the API (e.g., https://api.openai.com/v1/chat/completions).
-     * @param apiKey  The Bearer authorization key (injected from environment variables).
+     * @param properties cvreview.openai.* settings. Calls are routed over
+     *                   cvreview.openai.routing.endpoints ("url|model|apiKey" separated by commas,
+     *                   model and key optional), or only over cvreview.openai.api-url with the
+     *                   requested model when it is empty.
      */
+    public OpenAiClient(OpenAiProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        OpenAiProperties.Timeouts timeouts = properties.getTimeouts();
+        // Connect, read and write timeouts of every call; the whole non-streaming call is
+        // bounded per endpoint by cvreview.openai.timeouts.response-ms
+        HttpClient httpClient = httpClient(timeouts.getConnectMs(), timeouts.getReadMs(), timeouts.getWriteMs());
+        OpenAiProperties.RateLimit rateLimit = properties.getRateLimit();
+        this.completionTokens = rateLimit.getCompletionTokens();
+        // Retries only 429s from the API: the limiter is paused for Retry-After before the
+        // retry is let through, and the jitter keeps concurrent callers from retrying in lockstep
+        Retry rateLimitRetry = Retry.backoff(properties.getRetry().getMaxAttempts(),
+                        Duration.ofMillis(properties.getRetry().getMinBackoffMs()))
+                .maxBackoff(Duration.ofMillis(properties.getRetry().getMaxBackoffMs()))
+                .jitter(0.5)
+                .filter(err -> err instanceof OpenAiRateLimitException limited && !limited.isLocal())
+                .onRetryExhaustedThrow((spec, signal) -> {
+                    OpenAiRateLimitException last = (OpenAiRateLimitException) signal.failure();
+                    return new OpenAiRateLimitException("OpenAI: Too many requests, please try again later.",
+                            last.getRetryAfter(), false);
+                });
 
-    public OpenAiClient(@Value("${cvreview.openai.api-url}") String apiUrl,
-                        @Value("${cvreview.openai.api-key}") String apiKey) {
-        this.apiUrl = apiUrl;
-        this.webClient = WebClient.builder()
-                                .baseUrl(apiUrl)
-                                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                                .build();
+        OpenAiProperties.CircuitBreaker breaker = properties.getCircuitBreaker();
+        List<OpenAiEndpoint> routed = new ArrayList<>();
+        for (String[] endpoint : parseEndpoints(properties.getRouting().getEndpoints(), properties.getApiUrl(),
+                properties.getApiKey())) {
+            OpenAiRateLimiter rateLimiter = new OpenAiRateLimiter(rateLimit.isEnabled(), rateLimit.getRequestsPerMinute(),
+                    rateLimit.getTokensPerMinute(), Duration.ofMillis(rateLimit.getMaxWaitMs()), Schedulers.parallel());
+            OpenAiCircuitBreaker circuitBreaker = new OpenAiCircuitBreaker(breaker.isEnabled(),
+                    breaker.getFailureRateThreshold(), breaker.getSlowCallRateThreshold(),
+                    Duration.ofMillis(breaker.getSlowCallDurationMs()), breaker.getWindowSize(), breaker.getMinimumCalls(),
+                    Duration.ofMillis(breaker.getWaitInOpenMs()), breaker.getHalfOpenCalls(), OpenAiEndpoint::isFailure,
+                    Schedulers.parallel());
+            routed.add(new OpenAiEndpoint(endpoint[0], endpoint[2], endpoint[1], httpClient, rateLimiter, circuitBreaker,
+                    rateLimitRetry, properties, objectMapper.getFactory(), meterRegistry));
+        }
+        this.router = new OpenAiRouter(routed, properties, Schedulers.parallel(), meterRegistry);
     }
 
     /**
@@ -49,89 +115,183 @@ public class OpenAiClient {
      * @return Mono<String> with the text returned by the model (or an error in case of failure).
      */
     public Mono<String> sendPrompt(String model, String prompt) {
-        try {
-            // We build the JSON structure required by the API:
-            // { “model”: “...”, “messages”: [ { “role”: “user”, ‘content’: “...” } ] }
-            JsonNode responseBody = objectMapper.createObjectNode()
-                    .put("model", model)
-                    .set("messages", objectMapper.createArrayNode()
-                            .add(objectMapper.createObjectNode()
-                                    .put("role", "user")
-                                    .put("content", prompt)));
-            
-            // POST call and return of the complete JSON as JsonNode
-            return webClient.post()
-                            .bodyValue(objectMapper.writeValueAsString(responseBody))
-                            .retrieve()
-                            // Manejo de respuestas HTTP no-ok: convertir a error descriptivo
-                            .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
-                            .bodyToMono(JsonNode.class)
-                            .map(this::extractFirstChoiceContent)
-                            .doOnSuccess(text -> log.debug("OpenAI response content length: {}", text == null ? 0 : text.length()))
-                            .doOnError(err -> log.error("Error calling OpenAI: {}", err.getMessage(), err));
-        } catch (Exception e) {
-            // Serialization or body construction errors
-            log.error("Error building request to OpenAI", e);
-            return Mono.error(new RuntimeException("Error building request to OpenAI", e));
-        }
+        return sendPrompt(model, ChatPrompt.ofUser(prompt));
     }
 
     /**
-     * Extracts the textual content of the first choice from OpenAI's JSON response.
-     * If the expected format does not exist, returns the complete JSON as text (fallback).
+     * Sends a structured prompt (system instructions + user content parts) to the chat
+     * completions endpoint and returns the textual content of the first choice.
      *
-     * Expected response structure:
-     * {
-     *   “choices”: [
-     *     { “message”: { “role”:“assistant”, ‘content’:“...” }, ... }
-     *   ],
-     *   ...
-     * }
+     * @param model  The identifier of the model to be used (e.g., “gpt-4o-mini”); endpoints
+     *               configured with their own model use that one instead.
+     * @param prompt The messages to be sent.
+     * @return Mono<String> with the text returned by the model (or an error in case of failure).
+     */
+    public Mono<String> sendPrompt(String model, ChatPrompt prompt) {
+        return complete(model, prompt).map(ChatCompletion::content);
+    }
+
+    /**
+     * Like {@link #sendPrompt(String, ChatPrompt)}, but also returns the tokens billed for the
+     * call (usage.total_tokens).
      *
-     * @param response JsonNode (parsed response)
-     * @return String with the content or the complete JSON if the field was not found.
+     * @param model  The identifier of the model to be used (e.g., “gpt-4o-mini”); endpoints
+     *               configured with their own model use that one instead.
+     * @param prompt The messages to be sent.
+     * @return Mono<ChatCompletion> with the content of the first choice and the usage.
      */
-    private String extractFirstChoiceContent(JsonNode response) {
-        try {
-            if (response == null) {
-                return "";
-            }
-            JsonNode choices = response.get("choices");
-            if (choices != null && choices.isArray() && choices.size() > 0) {
-                JsonNode first = choices.get(0);
-                JsonNode message = first.get("message");
-                if (message != null) {
-                    JsonNode content = message.get("content");
-                    if (content != null && !content.isNull()) {
-                        return content.asText();
-                    }
+    public Mono<ChatCompletion> complete(String model, ChatPrompt prompt) {
+        int estimatedTokens = estimateTokens(prompt);
+
+        // The body is built per endpoint, since each one may use a different model
+        return router.hedged(endpoint -> Mono.fromCallable(() ->
+                                objectMapper.writeValueAsString(buildRequestBody(objectMapper, endpoint.model(model), prompt, false)))
+                        .onErrorMap(e -> new RuntimeException("Error building request to OpenAI", e))
+                        .flatMap(requestBody -> endpoint.send(requestBody, estimatedTokens)))
+                .doOnSuccess(completion -> log.debug("OpenAI response content length: {}",
+                        completion == null ? 0 : completion.content().length()))
+                .doOnError(err -> log.error("Error calling OpenAI: {}", err.getMessage(), err));
+    }
+
+    /**
+     * Sends a prompt with "stream": true and returns the fragments of the first choice
+     * (choices[0].delta.content) as they arrive in the server-sent events of the response.
+     * The stream ends with the "[DONE]" event sent by the API.
+     *
+     * @param model  The identifier of the model to be used (e.g., “gpt-4o-mini”).
+     * @param prompt The text of the prompt to be sent as a role=user message.
+     * @return Flux<String> with the text fragments in order (or an error in case of failure).
+     */
+    public Flux<String> streamPrompt(String model, String prompt) {
+        return streamPrompt(model, ChatPrompt.ofUser(prompt));
+    }
+
+    /**
+     * Streaming variant of {@link #sendPrompt(String, ChatPrompt)}. Streams are not hedged:
+     * they go to the first endpoint whose circuit breaker is closed.
+     *
+     * @param model  The identifier of the model to be used (e.g., “gpt-4o-mini”).
+     * @param prompt The messages to be sent.
+     * @return Flux<String> with the text fragments in order (or an error in case of failure).
+     */
+    public Flux<String> streamPrompt(String model, ChatPrompt prompt) {
+        int estimatedTokens = estimateTokens(prompt);
+
+        return router.firstAvailable(endpoint -> Mono.fromCallable(() ->
+                                objectMapper.writeValueAsString(buildRequestBody(objectMapper, endpoint.model(model), prompt, true)))
+                        .onErrorMap(e -> new RuntimeException("Error building request to OpenAI", e))
+                        .flatMapMany(requestBody -> endpoint.stream(requestBody, estimatedTokens)))
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .map(this::extractFirstChoiceDelta)
+                .filter(delta -> !delta.isEmpty())
+                .doOnError(err -> log.error("Error streaming from OpenAI: {}", err.getMessage(), err));
+    }
+
+    /**
+     * reactor-netty client with the cvreview.openai.timeouts.* settings, shared with
+     * OpenAiBatchClient. The read timeout (responseTimeout) bounds the silence between reads,
+     * including the wait for the response headers.
+     */
+    static HttpClient httpClient(int connectTimeoutMillis, long readTimeoutMillis, long writeTimeoutMillis) {
+        return HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(Duration.ofMillis(readTimeoutMillis))
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new WriteTimeoutHandler(writeTimeoutMillis, TimeUnit.MILLISECONDS)));
+    }
+
+    /**
+     * Parses cvreview.openai.routing.endpoints into [url, model, apiKey] triples, model null
+     * when not given (the requested one is used) and apiKey defaulting to the main key.
+     */
+    static List<String[]> parseEndpoints(String endpoints, String apiUrl, String apiKey) {
+        List<String[]> parsed = new ArrayList<>();
+        if (endpoints != null) {
+            for (String entry : endpoints.split(",")) {
+                if (entry.isBlank()) {
+                    continue;
                 }
+                String[] fields = entry.trim().split("\\|", -1);
+                String model = fields.length > 1 && !fields[1].isBlank() ? fields[1].trim() : null;
+                String key = fields.length > 2 && !fields[2].isBlank() ? fields[2].trim() : apiKey;
+                parsed.add(new String[] {fields[0].trim(), model, key});
             }
-            // Fallback: return the complete JSON if we don't find the expected field
-            return objectMapper.writeValueAsString(response);
-        } catch (Exception e) {
-            log.warn("Could not extract choice[0].message.content, returning raw JSON", e);
-            try {
-                return objectMapper.writeValueAsString(response);
-            } catch (Exception ex) {
-                return "";
+        }
+        if (parsed.isEmpty()) {
+            parsed.add(new String[] {apiUrl, null, apiKey});
+        }
+        return parsed;
+    }
+
+    /**
+     * Tokens reserved in the rate limiter for a call: the prompt plus the expected completion.
+     */
+    private int estimateTokens(ChatPrompt prompt) {
+        int tokens = completionTokens + TOKENS_PER_MESSAGE * 2 + TokenCounter.count(prompt.getSystem());
+        for (String part : prompt.getUserParts()) {
+            tokens += TokenCounter.count(part);
+        }
+        return tokens;
+    }
+
+    /**
+     * Builds the JSON structure required by the API:
+     * { “model”: “...”, “messages”: [ { “role”: “system”, ... }, { “role”: “user”, ‘content’: ... } ] }
+     *
+     * A single user part is sent as plain string content; several parts are sent as an array
+     * of { "type": "text", "text": "..." } content parts. The text is not escaped beyond
+     * what JSON encoding requires (non-ASCII characters are written as UTF-8). A prompt with a
+     * response schema adds "response_format": { "type": "json_schema", ... } in strict mode.
+     * Also used for the lines of batch input files (OpenAiBatchClient).
+     */
+    static ObjectNode buildRequestBody(ObjectMapper objectMapper, String model, ChatPrompt prompt, boolean stream) {
+        ObjectNode requestBody = objectMapper.createObjectNode().put("model", model);
+        if (stream) {
+            requestBody.put("stream", true);
+        }
+        if (prompt.getResponseSchema() != null) {
+            // Structured outputs: the answer is guaranteed to be JSON that matches the schema
+            ObjectNode jsonSchema = requestBody.putObject("response_format")
+                    .put("type", "json_schema")
+                    .putObject("json_schema");
+            jsonSchema.put("name", prompt.getSchemaName())
+                    .put("strict", true)
+                    .set("schema", prompt.getResponseSchema());
+        }
+
+        ArrayNode messages = requestBody.putArray("messages");
+        if (prompt.getSystem() != null) {
+            messages.addObject()
+                    .put("role", "system")
+                    .put("content", prompt.getSystem());
+        }
+
+        ObjectNode user = messages.addObject().put("role", "user");
+        if (prompt.getUserParts().size() == 1) {
+            user.put("content", prompt.getUserParts().get(0));
+        } else {
+            ArrayNode content = user.putArray("content");
+            for (String part : prompt.getUserParts()) {
+                content.addObject()
+                        .put("type", "text")
+                        .put("text", part);
             }
         }
+        return requestBody;
     }
 
     /**
-     * Converts a non-2xx HTTP response into an exception that propagates as a Mono error.
-     * Reads the body (if available) to provide more context. clientResponse.statusCode().value(), body);
+     * Extracts choices[0].delta.content from one streamed chunk.
+     * Chunks without content (role announcement, finish_reason) produce an empty string.
      */
-    private Mono<? extends Throwable> mapToException(ClientResponse clientResponse) {
-        return clientResponse.bodyToMono(String.class)
-                .defaultIfEmpty("No body")
-                .flatMap(body -> {
-                    String msg = String.format("OpenAI API returned status %d: %s",
-                            clientResponse.statusCode(), body);
-                    log.error(msg);
-                    return Mono.error(new RuntimeException(msg));
-                });
+    private String extractFirstChoiceDelta(String chunk) {
+        try {
+            JsonNode content = objectMapper.readTree(chunk).path("choices").path(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : "";
+        } catch (Exception e) {
+            log.warn("Could not parse streamed chunk from OpenAI: {}", chunk);
+            return "";
+        }
     }
-    
 }
@@ -0,0 +1,280 @@
+package com.cv.review.service.cvservice.client;
+
+import com.cv.review.service.cvservice.config.OpenAiProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.timeout.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * One chat completions endpoint (URL, API key and optionally a fixed model) with its own
+ * rate limiter, circuit breaker and bulkhead, so that a degraded endpoint does not consume the
+ * quota or the concurrency of the others. Meters are tagged with the endpoint name.
+ */
+final class OpenAiEndpoint {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiEndpoint.class);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final String name;
+    private final String model;
+    private final WebClient webClient;
+    private final OpenAiRateLimiter rateLimiter;
+    private final OpenAiCircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final Duration responseTimeout;
+    private final Retry retry;
+    private final LatencyWindow latencies;
+    private final Counter throttled;
+    private final Timer latency;
+    private final JsonFactory jsonFactory;
+
+    /**
+     * @param url        chat completions URL
+     * @param apiKey     Bearer key of the endpoint
+     * @param model      model to use on this endpoint, or null to use the one asked by the caller
+     * @param httpClient shared reactor-netty client (connect, read and write timeouts)
+     * @param retry      retry of 429s, applied to each call of this endpoint
+     * @param properties bulkhead size, duration of a whole non-streaming call
+     *                   (cvreview.openai.timeouts.response-ms) and latency samples kept for hedging
+     * @param jsonFactory factory of the shared ObjectMapper, to read the responses
+     */
+    OpenAiEndpoint(String url, String apiKey, String model, HttpClient httpClient,
+                   OpenAiRateLimiter rateLimiter, OpenAiCircuitBreaker circuitBreaker, Retry retry,
+                   OpenAiProperties properties, JsonFactory jsonFactory, MeterRegistry meterRegistry) {
+        this.name = nameOf(url, model);
+        this.model = model;
+        this.webClient = WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = new Semaphore(properties.getBulkhead().getMaxConcurrentCalls());
+        this.responseTimeout = Duration.ofMillis(properties.getTimeouts().getResponseMs());
+        this.retry = retry;
+        this.latencies = new LatencyWindow(properties.getRouting().getHedging().getLatencySamples());
+        this.jsonFactory = jsonFactory;
+
+        Gauge.builder("cvreview.openai.ratelimit.queued", rateLimiter, OpenAiRateLimiter::queued)
+                .description("Calls waiting in the OpenAI rate limiter")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("cvreview.openai.ratelimit.requests.available", rateLimiter, OpenAiRateLimiter::availableRequests)
+                .description("Requests left in the per-minute bucket")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("cvreview.openai.ratelimit.tokens.available", rateLimiter, OpenAiRateLimiter::availableTokens)
+                .description("Tokens left in the per-minute bucket")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        this.throttled = Counter.builder("cvreview.openai.ratelimit.throttled")
+                .description("Calls answered with 429 by OpenAI")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("cvreview.openai.circuitbreaker.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("cvreview.openai.circuitbreaker.failure.rate", circuitBreaker, OpenAiCircuitBreaker::failureRate)
+                .description("Failed calls in the circuit breaker window, in percent")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("cvreview.openai.circuitbreaker.slow.rate", circuitBreaker, OpenAiCircuitBreaker::slowCallRate)
+                .description("Slow calls in the circuit breaker window, in percent")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Gauge.builder("cvreview.openai.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free concurrent call slots to OpenAI")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        this.latency = Timer.builder("cvreview.openai.endpoint.latency")
+                .description("Duration of successful calls to the endpoint, rate limiter wait included")
+                .tag("endpoint", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return host (and port) of the URL, plus the fixed model if any
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return the model configured for this endpoint, or the requested one if none
+     */
+    String model(String requested) {
+        return model != null ? model : requested;
+    }
+
+    LatencyWindow latencies() {
+        return latencies;
+    }
+
+    /**
+     * @return true while this endpoint's circuit breaker rejects calls
+     */
+    boolean isOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    /**
+     * Records the duration of a call for the hedge delay; successful calls also go to the timer.
+     */
+    void recordLatency(long nanos, boolean success) {
+        latencies.record(nanos);
+        if (success) {
+            latency.record(Duration.ofNanos(nanos));
+        }
+    }
+
+    /**
+     * POSTs a request body and returns the completion read from the response. The call waits
+     * for the rate limiter, runs inside the bulkhead and the circuit breaker and is retried on 429.
+     */
+    Mono<ChatCompletion> send(String requestBody, int estimatedTokens) {
+        return rejectIfOpen()
+                .then(Mono.defer(() -> rateLimiter.acquire(estimatedTokens)
+                        .then(guarded(webClient.post()
+                                .bodyValue(requestBody)
+                                .retrieve()
+                                // Manejo de respuestas HTTP no-ok: convertir a error descriptivo
+                                .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
+                                .toEntity(String.class)
+                                .timeout(responseTimeout, Mono.error(() -> new OpenAiException(504,
+                                        "OpenAI did not answer within " + responseTimeout.toMillis() + " ms"))))))
+                        .retryWhen(retry))
+                .map(response -> {
+                    rateLimiter.onResponse(response.getHeaders());
+                    ChatCompletion completion = parse(response.getBody());
+                    rateLimiter.adjust(estimatedTokens, completion.totalTokens());
+                    return completion;
+                });
+    }
+
+    private ChatCompletion parse(String body) {
+        try {
+            return ChatCompletion.parse(jsonFactory, body);
+        } catch (IOException e) {
+            log.warn("Could not read the response of {}, returning it raw: {}", name, e.getMessage());
+            return new ChatCompletion(body, -1);
+        }
+    }
+
+    /**
+     * POSTs a streaming request body and returns its server-sent events. Only the request
+     * (status and headers) is retried: once events flow, errors propagate. The circuit breaker
+     * and the bulkhead cover the exchange up to the response headers.
+     */
+    Flux<ServerSentEvent<String>> stream(String requestBody, int estimatedTokens) {
+        return rejectIfOpen()
+                .then(Mono.defer(() -> rateLimiter.acquire(estimatedTokens)
+                        .then(guarded(webClient.post()
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                                .bodyValue(requestBody)
+                                .retrieve()
+                                .onStatus(status -> !status.is2xxSuccessful(), this::mapToException)
+                                .toEntityFlux(SSE_TYPE))))
+                        .retryWhen(retry))
+                .flatMapMany(response -> {
+                    rateLimiter.onResponse(response.getHeaders());
+                    return response.getBody() == null ? Flux.<ServerSentEvent<String>>empty() : response.getBody();
+                });
+    }
+
+    /**
+     * Fails before queuing in the rate limiter when the circuit breaker is open.
+     */
+    private Mono<Void> rejectIfOpen() {
+        return Mono.defer(() -> circuitBreaker.isOpen()
+                ? Mono.error(new OpenAiUnavailableException("OpenAI circuit breaker is open, the call was not sent.",
+                        circuitBreaker.retryAfter()))
+                : Mono.empty());
+    }
+
+    /**
+     * Runs one HTTP exchange inside the bulkhead and the circuit breaker. A full bulkhead
+     * rejects the call at once rather than queuing it behind slow calls.
+     */
+    private <T> Mono<T> guarded(Mono<T> exchange) {
+        return Mono.defer(() -> {
+            if (!bulkhead.tryAcquire()) {
+                return Mono.error(new OpenAiUnavailableException("Too many concurrent calls to OpenAI.",
+                        Duration.ofSeconds(1)));
+            }
+            // Connection and read errors carry no status (and often no message): report them as 502/504
+            Mono<T> call = exchange.onErrorMap(WebClientRequestException.class, ex -> new OpenAiException(
+                    ex.getRootCause() instanceof TimeoutException ? 504 : 502,
+                    "OpenAI request failed: " + ex.getMostSpecificCause()));
+            return circuitBreaker.protect(call).doFinally(signal -> bulkhead.release());
+        });
+    }
+
+    /**
+     * Errors that count against the circuit breaker: server errors, timeouts and connection
+     * failures. Client errors and 429s say nothing about the health of the API.
+     */
+    static boolean isFailure(Throwable err) {
+        return !(err instanceof OpenAiException openAi) || openAi.getStatusCode() >= 500;
+    }
+
+    /**
+     * Converts a non-2xx HTTP response into an exception that propagates as a Mono error.
+     * Reads the body (if available) to provide more context. A 429 becomes an
+     * OpenAiRateLimitException and pauses the rate limiter for the Retry-After of the response.
+     */
+    private Mono<? extends Throwable> mapToException(ClientResponse clientResponse) {
+        return clientResponse.bodyToMono(String.class)
+                .defaultIfEmpty("No body")
+                .flatMap(body -> {
+                    int status = clientResponse.statusCode().value();
+                    String msg = String.format("OpenAI API (%s) returned status %d: %s", name, status, body);
+                    if (status == 429) {
+                        throttled.increment();
+                        Duration retryAfter = rateLimiter.onThrottled(clientResponse.headers().asHttpHeaders());
+                        log.warn(msg);
+                        return Mono.error(new OpenAiRateLimitException(msg, retryAfter, false));
+                    }
+                    log.error(msg);
+                    return Mono.error(new OpenAiException(status, msg));
+                });
+    }
+
+    private static String nameOf(String url, String model) {
+        String host;
+        try {
+            URI uri = URI.create(url);
+            host = uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            host = url;
+        }
+        return model == null ? host : host + "/" + model;
+    }
+}
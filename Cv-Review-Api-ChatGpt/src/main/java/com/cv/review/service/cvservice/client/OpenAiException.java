@@ -0,0 +1,21 @@
+package com.cv.review.service.cvservice.client;
+
+/**
+ * Error returned by the OpenAI API (non-2xx response).
+ */
+public class OpenAiException extends RuntimeException {
+
+    private final int statusCode;
+
+    public OpenAiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return HTTP status of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
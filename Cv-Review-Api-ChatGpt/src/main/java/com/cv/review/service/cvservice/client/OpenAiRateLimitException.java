@@ -0,0 +1,33 @@
+package com.cv.review.service.cvservice.client;
+
+import java.time.Duration;
+
+/**
+ * The request was not sent or was rejected because of rate limits: either OpenAI answered
+ * 429, or the request waited in the local rate limiter longer than allowed.
+ */
+public class OpenAiRateLimitException extends OpenAiException {
+
+    private final Duration retryAfter;
+    private final boolean local;
+
+    public OpenAiRateLimitException(String message, Duration retryAfter, boolean local) {
+        super(429, message);
+        this.retryAfter = retryAfter;
+        this.local = local;
+    }
+
+    /**
+     * @return time after which the request may succeed (Retry-After or limiter estimate)
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @return true if the limit was hit in the local rate limiter, without calling OpenAI
+     */
+    public boolean isLocal() {
+        return local;
+    }
+}
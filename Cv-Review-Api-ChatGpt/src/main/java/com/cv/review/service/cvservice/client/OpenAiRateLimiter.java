@@ -0,0 +1,320 @@
+package com.cv.review.service.cvservice.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side rate limiter for the OpenAI API, shared by every call of an OpenAiClient.
+ *
+ * Two token buckets refill continuously: requests per minute and tokens per minute. Callers
+ * ask for one request plus their estimated tokens and wait in a FIFO queue, so a large prompt
+ * is not starved by a stream of small ones and nobody jumps the queue when capacity frees up.
+ *
+ * The buckets follow what the API reports:
+ * - x-ratelimit-limit-requests / -tokens set the bucket sizes (our account's real quota);
+ * - x-ratelimit-remaining-requests / -tokens lower the buckets when other clients of the same
+ *   key consumed quota, and x-ratelimit-reset-* pauses the queue when one is exhausted;
+ * - a 429 pauses the whole queue for Retry-After (or retry-after-ms), so queued callers do not
+ *   hit the API again until the window has passed.
+ *
+ * A caller that would wait longer than maxWait fails with a local OpenAiRateLimitException.
+ */
+public class OpenAiRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiRateLimiter.class);
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final boolean enabled;
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final long maxWaitMillis;
+    private final Scheduler scheduler;
+
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private long pausedUntil;
+    private Disposable wakeUp;
+
+    private static final class Waiter {
+        final int tokens;
+        final long deadline;
+        final MonoSink<Void> sink;
+        boolean cancelled;
+
+        Waiter(int tokens, long deadline, MonoSink<Void> sink) {
+            this.tokens = tokens;
+            this.deadline = deadline;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Bucket of capacity units per minute, refilled continuously. The content may go negative
+     * when a call used more tokens than estimated; later callers then wait for the debt.
+     */
+    private static final class Bucket {
+        double capacity;
+        double available;
+        long lastRefill;
+
+        Bucket(double capacity, long now) {
+            this.capacity = capacity;
+            this.available = capacity;
+            this.lastRefill = now;
+        }
+
+        void refill(long now) {
+            available = Math.min(capacity, available + (now - lastRefill) * capacity / 60_000d);
+            lastRefill = now;
+        }
+
+        long millisUntil(double amount) {
+            // A request larger than the whole bucket waits for a full bucket
+            double missing = Math.min(amount, capacity) - available;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing * 60_000d / capacity);
+        }
+
+        void take(double amount) {
+            available -= Math.min(amount, capacity);
+        }
+    }
+
+    /**
+     * @param enabled           false to let every call through immediately
+     * @param requestsPerMinute initial request quota (updated from the response headers)
+     * @param tokensPerMinute   initial token quota (updated from the response headers)
+     * @param maxWait           longest time a caller may wait in the queue
+     * @param scheduler         scheduler used to wake the queue up (and as its clock)
+     */
+    public OpenAiRateLimiter(boolean enabled, int requestsPerMinute, int tokensPerMinute, Duration maxWait,
+                             Scheduler scheduler) {
+        this.enabled = enabled;
+        this.scheduler = scheduler;
+        long now = now();
+        this.requests = new Bucket(Math.max(1, requestsPerMinute), now);
+        this.tokens = new Bucket(Math.max(1, tokensPerMinute), now);
+        this.maxWaitMillis = maxWait.toMillis();
+    }
+
+    /**
+     * Waits for one request and the given tokens.
+     *
+     * @param estimatedTokens prompt tokens plus the expected completion
+     * @return Mono that completes when the call may be sent, or fails with a local
+     *         OpenAiRateLimitException if it would wait longer than maxWait
+     */
+    public Mono<Void> acquire(int estimatedTokens) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(estimatedTokens, now() + maxWaitMillis, sink);
+            sink.onCancel(() -> {
+                synchronized (this) {
+                    waiter.cancelled = true;
+                }
+                drain();
+            });
+            synchronized (this) {
+                waiters.add(waiter);
+            }
+            drain();
+        });
+    }
+
+    /**
+     * Corrects the token bucket once the real usage of a call is known.
+     */
+    public synchronized void adjust(int estimatedTokens, int actualTokens) {
+        if (enabled && actualTokens >= 0) {
+            tokens.refill(now());
+            tokens.available = Math.min(tokens.capacity, tokens.available + estimatedTokens - actualTokens);
+        }
+    }
+
+    /**
+     * Updates quotas and remaining capacity from the x-ratelimit-* headers of a response.
+     */
+    public void onResponse(HttpHeaders headers) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            long now = now();
+            update(requests, headers, "requests", now);
+            update(tokens, headers, "tokens", now);
+        }
+        drain();
+    }
+
+    /**
+     * Pauses the queue after a 429 response.
+     *
+     * @return how long the API asked us to wait
+     */
+    public Duration onThrottled(HttpHeaders headers) {
+        Duration retryAfter = retryAfter(headers);
+        if (enabled) {
+            synchronized (this) {
+                pausedUntil = Math.max(pausedUntil, now() + retryAfter.toMillis());
+                requests.available = Math.min(requests.available, 0);
+            }
+            log.warn("OpenAI rate limit hit, pausing calls for {} ms", retryAfter.toMillis());
+            drain();
+        }
+        return retryAfter;
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+
+    public synchronized double availableRequests() {
+        requests.refill(now());
+        return requests.available;
+    }
+
+    public synchronized double availableTokens() {
+        tokens.refill(now());
+        return tokens.available;
+    }
+
+    private void update(Bucket bucket, HttpHeaders headers, String kind, long now) {
+        bucket.refill(now);
+        Double limit = parseNumber(headers.getFirst("x-ratelimit-limit-" + kind));
+        if (limit != null && limit > 0 && limit != bucket.capacity) {
+            bucket.capacity = limit;
+            bucket.available = Math.min(bucket.available, limit);
+        }
+        Double remaining = parseNumber(headers.getFirst("x-ratelimit-remaining-" + kind));
+        if (remaining != null) {
+            bucket.available = Math.min(bucket.available, remaining);
+            Duration reset = parseDuration(headers.getFirst("x-ratelimit-reset-" + kind));
+            if (remaining < 1 && reset != null) {
+                pausedUntil = Math.max(pausedUntil, now + reset.toMillis());
+            }
+        }
+    }
+
+    /**
+     * Grants the queue head while the buckets allow it, in order, and schedules a wake-up for
+     * when the next one will fit. Sinks are completed outside the lock.
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        List<Waiter> expired = new ArrayList<>();
+        long retryAfter = 0;
+        synchronized (this) {
+            long now = now();
+            requests.refill(now);
+            tokens.refill(now);
+            long delay = 0;
+            while (!waiters.isEmpty()) {
+                Waiter head = waiters.peek();
+                if (head.cancelled) {
+                    waiters.poll();
+                    continue;
+                }
+                delay = Math.max(pausedUntil - now,
+                        Math.max(requests.millisUntil(1), tokens.millisUntil(head.tokens)));
+                if (delay <= 0) {
+                    requests.take(1);
+                    tokens.take(head.tokens);
+                    granted.add(waiters.poll());
+                } else if (now + delay > head.deadline) {
+                    expired.add(waiters.poll());
+                    retryAfter = delay;
+                } else {
+                    break;
+                }
+            }
+            if (wakeUp != null) {
+                wakeUp.dispose();
+                wakeUp = null;
+            }
+            if (!waiters.isEmpty()) {
+                wakeUp = scheduler.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        granted.forEach(waiter -> waiter.sink.success());
+        for (Waiter waiter : expired) {
+            waiter.sink.error(new OpenAiRateLimitException(
+                    "OpenAI: Too many requests, please try again later.", Duration.ofMillis(retryAfter), true));
+        }
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Retry-After (seconds), retry-after-ms, or the token/request reset times, in that order.
+     */
+    static Duration retryAfter(HttpHeaders headers) {
+        Double millis = parseNumber(headers.getFirst("retry-after-ms"));
+        if (millis != null) {
+            return Duration.ofMillis(millis.longValue());
+        }
+        Double seconds = parseNumber(headers.getFirst(HttpHeaders.RETRY_AFTER));
+        if (seconds != null) {
+            return Duration.ofMillis((long) (seconds * 1000));
+        }
+        Duration requestsReset = parseDuration(headers.getFirst("x-ratelimit-reset-requests"));
+        Duration tokensReset = parseDuration(headers.getFirst("x-ratelimit-reset-tokens"));
+        if (requestsReset != null || tokensReset != null) {
+            Duration a = requestsReset == null ? Duration.ZERO : requestsReset;
+            Duration b = tokensReset == null ? Duration.ZERO : tokensReset;
+            return a.compareTo(b) > 0 ? a : b;
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+
+    private static Double parseNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the reset format of the API: "1s", "6m0s", "20ms", "1.5s".
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "ms" -> amount;
+                case "s" -> amount * 1000;
+                case "m" -> amount * 60_000;
+                default -> amount * 3_600_000;
+            };
+        }
+        return found ? Duration.ofMillis((long) Math.ceil(millis)) : null;
+    }
+}
@@ -0,0 +1,159 @@
+package com.cv.review.service.cvservice.client;
+
+import com.cv.review.service.cvservice.config.OpenAiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Routes calls over several endpoints in priority order, hedging slow calls.
+ *
+ * A call goes to the first endpoint. If it has not answered after the hedge delay of that
+ * endpoint (the configured percentile of its recent latencies, clamped to [minDelay, maxDelay];
+ * initialDelay until minSamples calls have been seen), a duplicate is sent to the next endpoint,
+ * which may in turn be hedged to the one after it. The first answer wins and the other calls
+ * are cancelled. A call that fails (including an open circuit breaker) starts the next endpoint
+ * at once instead of waiting for the delay. When every endpoint failed, the error of the
+ * highest-priority one is reported. With hedging disabled, the next endpoint is only used
+ * when the previous one fails.
+ *
+ * The duration of cancelled calls is recorded too, as a lower bound of their latency, so that
+ * hedging does not make the endpoint look faster than it is.
+ */
+final class OpenAiRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiRouter.class);
+
+    private final List<OpenAiEndpoint> endpoints;
+    private final boolean hedging;
+    private final double percentile;
+    private final Duration initialDelay;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final int minSamples;
+    private final Scheduler scheduler;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+
+    /**
+     * @param properties hedging settings (cvreview.openai.routing.hedging.*)
+     */
+    OpenAiRouter(List<OpenAiEndpoint> endpoints, OpenAiProperties properties, Scheduler scheduler,
+                 MeterRegistry meterRegistry) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one OpenAI endpoint is required");
+        }
+        OpenAiProperties.Hedging hedging = properties.getRouting().getHedging();
+        this.endpoints = List.copyOf(endpoints);
+        this.hedging = hedging.isEnabled();
+        this.percentile = hedging.getPercentile();
+        this.initialDelay = Duration.ofMillis(hedging.getInitialDelayMs());
+        this.minDelay = Duration.ofMillis(hedging.getMinDelayMs());
+        this.maxDelay = Duration.ofMillis(hedging.getMaxDelayMs());
+        this.minSamples = hedging.getMinSamples();
+        this.scheduler = scheduler;
+        this.hedges = Counter.builder("cvreview.openai.hedge.sent")
+                .description("Calls duplicated to the next endpoint (slow or failed primary)")
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("cvreview.openai.hedge.won")
+                .description("Calls answered by a lower-priority endpoint (hedge or failover)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a call on the endpoints with hedging.
+     *
+     * @param call builds the call for one endpoint; it is subscribed only if that endpoint is used
+     * @return the first value produced by any endpoint
+     */
+    <T> Mono<T> hedged(Function<OpenAiEndpoint, Mono<T>> call) {
+        return Mono.defer(() -> {
+            AtomicReferenceArray<Throwable> errors = new AtomicReferenceArray<>(endpoints.size());
+            return attempt(0, call, errors)
+                    .onErrorMap(err -> {
+                        for (int i = 0; i < errors.length(); i++) {
+                            if (errors.get(i) != null) {
+                                return errors.get(i);
+                            }
+                        }
+                        return err;
+                    });
+        });
+    }
+
+    /**
+     * Runs a streaming call on the first endpoint whose circuit breaker is not open (the first
+     * endpoint if all are). Streams are not hedged: duplicating them would double the tokens
+     * for the whole answer, not just until the first byte.
+     */
+    <T> Flux<T> firstAvailable(Function<OpenAiEndpoint, Flux<T>> call) {
+        return Flux.defer(() -> {
+            for (OpenAiEndpoint endpoint : endpoints) {
+                if (!endpoint.isOpen()) {
+                    return call.apply(endpoint);
+                }
+            }
+            return call.apply(endpoints.get(0));
+        });
+    }
+
+    /**
+     * Time to wait for an endpoint before sending the duplicate to the next one.
+     */
+    Duration hedgeDelay(OpenAiEndpoint endpoint) {
+        LatencyWindow latencies = endpoint.latencies();
+        if (latencies.count() < minSamples) {
+            return initialDelay;
+        }
+        Duration observed = Duration.ofNanos(latencies.percentile(percentile));
+        if (observed.compareTo(minDelay) < 0) {
+            return minDelay;
+        }
+        return observed.compareTo(maxDelay) > 0 ? maxDelay : observed;
+    }
+
+    private <T> Mono<T> attempt(int index, Function<OpenAiEndpoint, Mono<T>> call,
+                                AtomicReferenceArray<Throwable> errors) {
+        OpenAiEndpoint endpoint = endpoints.get(index);
+        Mono<T> own = timed(endpoint, Mono.defer(() -> call.apply(endpoint)))
+                .doOnError(err -> errors.compareAndSet(index, null, err));
+        if (index == endpoints.size() - 1) {
+            return own;
+        }
+
+        // The next endpoint starts after the hedge delay, or as soon as this one fails
+        Sinks.Empty<Void> failed = Sinks.empty();
+        Mono<T> primary = own.doOnError(err -> failed.tryEmitEmpty());
+        Mono<Void> trigger = hedging
+                ? Mono.firstWithSignal(Mono.delay(hedgeDelay(endpoint), scheduler).then(), failed.asMono())
+                : failed.asMono();
+        Mono<T> backup = trigger
+                .then(Mono.defer(() -> {
+                    hedges.increment();
+                    log.debug("Hedging call on {} to {}", endpoint.name(), endpoints.get(index + 1).name());
+                    return attempt(index + 1, call, errors);
+                }))
+                .doOnNext(value -> hedgeWins.increment());
+        return Mono.firstWithValue(primary, backup);
+    }
+
+    private <T> Mono<T> timed(OpenAiEndpoint endpoint, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = scheduler.now(TimeUnit.NANOSECONDS);
+            return call
+                    .doOnSuccess(value -> endpoint.recordLatency(scheduler.now(TimeUnit.NANOSECONDS) - start, true))
+                    .doOnCancel(() -> endpoint.recordLatency(scheduler.now(TimeUnit.NANOSECONDS) - start, false));
+        });
+    }
+}
@@ -0,0 +1,24 @@
+package com.cv.review.service.cvservice.client;
+
+import java.time.Duration;
+
+/**
+ * The request was not sent because OpenAI is considered unavailable: the circuit breaker is
+ * open or every concurrent call slot (bulkhead) is taken.
+ */
+public class OpenAiUnavailableException extends OpenAiException {
+
+    private final Duration retryAfter;
+
+    public OpenAiUnavailableException(String message, Duration retryAfter) {
+        super(503, message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return time after which the request may be accepted again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,33 @@
+package com.cv.review.service.cvservice.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Multipart resolution as Spring Boot configures it (spring.servlet.multipart.*), except for
+ * POST /api/v1/reviews/pipelined: that endpoint reads the raw multipart body itself
+ * (StreamingUploadService), so Spring MVC must not resolve it first.
+ */
+@Configuration
+public class MultipartConfig {
+
+    static final String PIPELINED_PATH = "/api/v1/reviews/pipelined";
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public StandardServletMultipartResolver multipartResolver(MultipartProperties properties) {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return super.isMultipart(request)
+                        && !PIPELINED_PATH.equals(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+            }
+        };
+        resolver.setResolveLazily(properties.isResolveLazily());
+        return resolver;
+    }
+}
@@ -0,0 +1,389 @@
+package com.cv.review.service.cvservice.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the OpenAI clients (cvreview.openai.*), bound once and shared by OpenAiClient,
+ * its endpoints and router, and OpenAiBatchClient. Defaults match application.properties.
+ *
+ * cvreview.openai.api-url and cvreview.openai.api-key are required. The model and the
+ * structured-output switch are read by the review services themselves.
+ */
+@ConfigurationProperties(prefix = "cvreview.openai")
+public class OpenAiProperties implements InitializingBean {
+
+    private String apiUrl;
+    private String apiKey;
+    private final RateLimit rateLimit = new RateLimit();
+    private final Retry retry = new Retry();
+    private final Timeouts timeouts = new Timeouts();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final Routing routing = new Routing();
+
+    @Override
+    public void afterPropertiesSet() {
+        if (apiUrl == null || apiUrl.isBlank()) {
+            throw new IllegalStateException("cvreview.openai.api-url is not configured");
+        }
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("cvreview.openai.api-key is not configured");
+        }
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public Timeouts getTimeouts() {
+        return timeouts;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    /**
+     * Client-side limiter of each endpoint (cvreview.openai.rate-limit.*).
+     */
+    public static class RateLimit {
+
+        private boolean enabled = true;
+        private int requestsPerMinute = 500;
+        private int tokensPerMinute = 200000;
+        private int completionTokens = 400;
+        private long maxWaitMs = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getTokensPerMinute() {
+            return tokensPerMinute;
+        }
+
+        public void setTokensPerMinute(int tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+        }
+
+        public int getCompletionTokens() {
+            return completionTokens;
+        }
+
+        public void setCompletionTokens(int completionTokens) {
+            this.completionTokens = completionTokens;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+    }
+
+    /**
+     * Retries of 429s from the API (cvreview.openai.retry.*).
+     */
+    public static class Retry {
+
+        private int maxAttempts = 3;
+        private long minBackoffMs = 1000;
+        private long maxBackoffMs = 30000;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getMinBackoffMs() {
+            return minBackoffMs;
+        }
+
+        public void setMinBackoffMs(long minBackoffMs) {
+            this.minBackoffMs = minBackoffMs;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+    }
+
+    /**
+     * Connection timeouts, shared with OpenAiBatchClient (cvreview.openai.timeouts.*).
+     */
+    public static class Timeouts {
+
+        private int connectMs = 5000;
+        private long readMs = 30000;
+        private long writeMs = 10000;
+        private long responseMs = 90000;
+
+        public int getConnectMs() {
+            return connectMs;
+        }
+
+        public void setConnectMs(int connectMs) {
+            this.connectMs = connectMs;
+        }
+
+        public long getReadMs() {
+            return readMs;
+        }
+
+        public void setReadMs(long readMs) {
+            this.readMs = readMs;
+        }
+
+        public long getWriteMs() {
+            return writeMs;
+        }
+
+        public void setWriteMs(long writeMs) {
+            this.writeMs = writeMs;
+        }
+
+        public long getResponseMs() {
+            return responseMs;
+        }
+
+        public void setResponseMs(long responseMs) {
+            this.responseMs = responseMs;
+        }
+    }
+
+    /**
+     * Circuit breaker of each endpoint (cvreview.openai.circuit-breaker.*).
+     */
+    public static class CircuitBreaker {
+
+        private boolean enabled = true;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private long slowCallDurationMs = 20000;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private long waitInOpenMs = 30000;
+        private int halfOpenCalls = 3;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public float getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public float getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public long getSlowCallDurationMs() {
+            return slowCallDurationMs;
+        }
+
+        public void setSlowCallDurationMs(long slowCallDurationMs) {
+            this.slowCallDurationMs = slowCallDurationMs;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public long getWaitInOpenMs() {
+            return waitInOpenMs;
+        }
+
+        public void setWaitInOpenMs(long waitInOpenMs) {
+            this.waitInOpenMs = waitInOpenMs;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+
+    /**
+     * Concurrent calls allowed per endpoint (cvreview.openai.bulkhead.*).
+     */
+    public static class Bulkhead {
+
+        private int maxConcurrentCalls = 32;
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+    }
+
+    /**
+     * Endpoints in priority order, "url|model|apiKey" separated by commas (cvreview.openai.routing.*).
+     */
+    public static class Routing {
+
+        private String endpoints = "";
+        private final Hedging hedging = new Hedging();
+
+        public String getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(String endpoints) {
+            this.endpoints = endpoints;
+        }
+
+        public Hedging getHedging() {
+            return hedging;
+        }
+    }
+
+    /**
+     * Hedging of slow calls to the next endpoint (cvreview.openai.routing.hedging.*).
+     */
+    public static class Hedging {
+
+        private boolean enabled = true;
+        private double percentile = 95;
+        private long initialDelayMs = 10000;
+        private long minDelayMs = 500;
+        private long maxDelayMs = 30000;
+        private int minSamples = 20;
+        private int latencySamples = 200;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public long getInitialDelayMs() {
+            return initialDelayMs;
+        }
+
+        public void setInitialDelayMs(long initialDelayMs) {
+            this.initialDelayMs = initialDelayMs;
+        }
+
+        public long getMinDelayMs() {
+            return minDelayMs;
+        }
+
+        public void setMinDelayMs(long minDelayMs) {
+            this.minDelayMs = minDelayMs;
+        }
+
+        public long getMaxDelayMs() {
+            return maxDelayMs;
+        }
+
+        public void setMaxDelayMs(long maxDelayMs) {
+            this.maxDelayMs = maxDelayMs;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public int getLatencySamples() {
+            return latencySamples;
+        }
+
+        public void setLatencySamples(int latencySamples) {
+            this.latencySamples = latencySamples;
+        }
+    }
+}
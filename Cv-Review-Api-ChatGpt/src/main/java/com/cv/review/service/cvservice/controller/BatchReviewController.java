@@ -0,0 +1,162 @@
+package com.cv.review.service.cvservice.controller;
+
+import com.cv.review.service.cvservice.dto.BatchJobResponse;
+import com.cv.review.service.cvservice.dto.BulkReviewItem;
+import com.cv.review.service.cvservice.dto.ExtractedText;
+import com.cv.review.service.cvservice.service.BatchReviewService;
+import com.cv.review.service.cvservice.service.TextExtractionService;
+import com.cv.review.service.cvservice.service.VacancyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * REST controller for offline bulk scoring through the OpenAI Batch API (see BatchReviewService).
+ * Results arrive within the batch completion window (up to 24h), at a lower price than the
+ * synchronous POST /api/v1/reviews/bulk.
+ *
+ * POST /api/v1/batches
+ *  - multipart: files (several CV files) + vacancyDescription or vacancyId
+ *  - application/x-ndjson: one {"id": "...", "cvText": "..."} per line + vacancyDescription or
+ *    vacancyId request param
+ * Response: 202 with the job (Location header points to the job), 404 if the vacancy id is unknown.
+ *
+ * GET /api/v1/batches/{jobId}
+ * Response: job status and the results mapped so far, one {"id": "...", "review": {...}} per CV
+ * ("error" instead of "review" for the CVs that failed). Ids repeated in the input are listed in
+ * "duplicateIds"; only the first CV with each id is reviewed. 404 once the job has been purged
+ * (cvreview.batch.retention-ms after it ended).
+ *
+ * POST /api/v1/batches/{jobId}/resume
+ * Submits again the CVs without a review of a PARTIAL or FAILED job (409 in other states).
+ */
+@RestController
+@RequestMapping("/api/v1/batches")
+public class BatchReviewController {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchReviewController.class);
+
+    private final BatchReviewService batchService;
+    private final TextExtractionService extractionService;
+    private final VacancyService vacancyService;
+    private final ObjectMapper objectMapper;
+
+    public BatchReviewController(BatchReviewService batchService, TextExtractionService extractionService,
+                                 VacancyService vacancyService, ObjectMapper objectMapper) {
+        this.batchService = batchService;
+        this.extractionService = extractionService;
+        this.vacancyService = vacancyService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BatchJobResponse>> submitFiles(
+            @RequestPart("files") List<MultipartFile> files,
+            @RequestPart(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestPart(value = "vacancyId", required = false) String vacancyId) {
+
+        String vacancy;
+        try {
+            vacancy = vacancyService.resolve(vacancyId, vacancyDescription);
+        } catch (NoSuchElementException e) {
+            return Mono.just(error(HttpStatus.NOT_FOUND, e.getMessage()));
+        }
+
+        log.info("Batch review received with {} files", files.size());
+        Flux<BulkReviewItem> items = Flux.fromIterable(files)
+                .concatMap(file -> extractionService.extract(file)
+                        .onErrorResume(ex -> Mono.just(ExtractedText.empty()))
+                        .map(extracted -> new BulkReviewItem(file.getOriginalFilename(), extracted.getText(), extracted.isTruncated())), 1);
+        return batchService.submit(items, vacancy).map(BatchReviewController::accepted);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BatchJobResponse>> submitText(
+            HttpServletRequest request,
+            @RequestParam(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestParam(value = "vacancyId", required = false) String vacancyId) {
+
+        String vacancy;
+        try {
+            vacancy = vacancyService.resolve(vacancyId, vacancyDescription);
+        } catch (NoSuchElementException e) {
+            return Mono.just(error(HttpStatus.NOT_FOUND, e.getMessage()));
+        }
+
+        // The body is read line by line while the input file is written, never held whole in memory
+        Flux<BulkReviewItem> items = Flux.using(
+                        () -> new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)),
+                        reader -> Flux.fromStream(reader.lines()),
+                        reader -> {
+                            try {
+                                reader.close();
+                            } catch (Exception e) {
+                                log.debug("Error closing batch request body: {}", e.getMessage());
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                // Lines are numbered before blank ones are skipped, so ids match the client's lines
+                .index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> {
+                    long n = line.getT1() + 1;
+                    try {
+                        BulkReviewItem item = objectMapper.readValue(line.getT2(), BulkReviewItem.class);
+                        if (item.getId() == null) {
+                            item.setId(String.valueOf(n));
+                        }
+                        return item;
+                    } catch (Exception e) {
+                        log.warn("Invalid batch review line {}: {}", n, e.getMessage());
+                        return new BulkReviewItem(String.valueOf(n), null);
+                    }
+                });
+        return batchService.submit(items, vacancy).map(BatchReviewController::accepted);
+    }
+
+    @GetMapping(value = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchJobResponse> getJob(@PathVariable String jobId) {
+        BatchJobResponse job = batchService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @PostMapping(value = "/{jobId}/resume", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BatchJobResponse>> resume(@PathVariable String jobId) {
+        return batchService.resume(jobId)
+                .map(BatchReviewController::accepted)
+                .onErrorResume(NoSuchElementException.class, ex -> Mono.just(error(HttpStatus.NOT_FOUND, ex.getMessage())))
+                .onErrorResume(IllegalStateException.class, ex -> Mono.just(error(HttpStatus.CONFLICT, ex.getMessage())));
+    }
+
+    private static ResponseEntity<BatchJobResponse> accepted(BatchJobResponse job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/batches/" + job.getJobId()))
+                .body(job);
+    }
+
+    private static ResponseEntity<BatchJobResponse> error(HttpStatusCode status, String message) {
+        BatchJobResponse response = new BatchJobResponse();
+        response.setError(message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
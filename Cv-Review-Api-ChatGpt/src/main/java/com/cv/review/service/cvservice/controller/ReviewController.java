@@ -1,16 +1,45 @@
 package com.cv.review.service.cvservice.controller;
 
 
+import com.cv.review.service.cvservice.client.OpenAiRateLimitException;
+import com.cv.review.service.cvservice.client.OpenAiUnavailableException;
+import com.cv.review.service.cvservice.dto.BulkReviewItem;
+import com.cv.review.service.cvservice.dto.BulkReviewResult;
+import com.cv.review.service.cvservice.dto.ExtractedText;
 import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.dto.ReviewStreamEvent;
+import com.cv.review.service.cvservice.service.BulkReviewService;
 import com.cv.review.service.cvservice.service.CvReviewService;
-import com.cv.review.service.cvservice.util.TextExtractor;
+import com.cv.review.service.cvservice.service.StreamingUploadService;
+import com.cv.review.service.cvservice.service.TextExtractionService;
+import com.cv.review.service.cvservice.service.VacancyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * REST controller that exposes the endpoint for uploading CVs and requesting reviews.
@@ -20,8 +49,37 @@ import reactor.core.publisher.Mono;
  * Form data:
  *  - file: CV file (pdf/docx/txt)
  *  - vacancyDescription: (optional) text with the job description
+ *  - vacancyId: (optional) id of a vacancy registered in POST /api/v1/vacancies, used instead
+ *    of vacancyDescription (404 if unknown). Also accepted by the other endpoints below.
+ *  - tier: (optional) model tier to use instead of the one chosen by the tiering rules
+ *    (see ModelTierRouter); unknown tiers are ignored
  *
  * Response: JSON with the ReviewResponse structure
+ *
+ * Bulk endpoint (one vacancy, many CVs), streamed back as NDJSON as each review completes:
+ * POST /api/v1/reviews/bulk
+ *  - multipart: files (several CV files) + vacancyDescription
+ *  - application/x-ndjson: one {"id": "...", "cvText": "..."} per line + vacancyDescription request param
+ *
+ * Multi-vacancy review (one CV, several vacancies, evaluated together in as few calls as possible):
+ * POST /api/v1/reviews/multi
+ *  - file: CV file
+ *  - vacancyId: (repeatable) ids of registered vacancies
+ *  - vacancyDescription: (repeatable) vacancy texts
+ * Response: JSON array with one {"id": "...", "review": {...}} per vacancy, registered ones first;
+ * the id is the vacancy id, or the 1-based position of the description among vacancyDescription.
+ * No vacancies, or more than cvreview.multi.max-vacancies, is a 400 answered before the file is read.
+ *
+ * Pipelined upload (same form data and response as POST /api/v1/reviews): the body is read as
+ * a stream instead of being resolved by Spring MVC, and the file part is parsed as soon as it
+ * has arrived, while the rest of the form is still being read:
+ * POST /api/v1/reviews/pipelined
+ *
+ * Streaming endpoint (same form data as POST /api/v1/reviews), text/event-stream:
+ * POST /api/v1/reviews/stream
+ *  - "delta" events ({"text": "..."}) with the text generated by the model as it arrives
+ *  - a final "result" event with the ReviewResponse (or an "error" event)
+ * An unknown vacancyId is answered with 404 before any event is sent.
  */
 @RestController
 @RequestMapping("/api/v1/reviews")
@@ -30,41 +88,326 @@ public class ReviewController {
     private static final Logger log = LoggerFactory.getLogger(ReviewController.class);
 
     private final CvReviewService service;
+    private final BulkReviewService bulkService;
+    private final TextExtractionService extractionService;
+    private final StreamingUploadService uploadService;
+    private final VacancyService vacancyService;
+    private final ObjectMapper objectMapper;
+    private final int maxMultiVacancies;
 
-    public ReviewController(CvReviewService service) {
+    public ReviewController(CvReviewService service, BulkReviewService bulkService,
+                            TextExtractionService extractionService, StreamingUploadService uploadService,
+                            VacancyService vacancyService, ObjectMapper objectMapper,
+                            @Value("${cvreview.multi.max-vacancies:20}") int maxMultiVacancies) {
         this.service = service;
+        this.bulkService = bulkService;
+        this.extractionService = extractionService;
+        this.uploadService = uploadService;
+        this.vacancyService = vacancyService;
+        this.objectMapper = objectMapper;
+        this.maxMultiVacancies = maxMultiVacancies;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<ReviewResponse>> reviewCv(
             @RequestPart("file") MultipartFile file,
-            @RequestPart(value = "vacancyDescription", required = false) String vacancyDescription) {
-
-        // Extract text from the file
-        String text = TextExtractor.extractText(file);
-        if (text.isEmpty()) {
-            // Quick response if no text was extracted
-            ReviewResponse response = new ReviewResponse();
-            response.setApto("no");
-            response.setPuntuacion(0);
-            response.setResumen("Text cannot be extracted from the selected file.");
-            response.setRawOpenAiResponse("");
-            return Mono.just(ResponseEntity.badRequest().body(response));
+            @RequestPart(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestPart(value = "vacancyId", required = false) String vacancyId,
+            @RequestPart(value = "tier", required = false) String tier) {
+
+        if (isUnknownVacancy(vacancyId)) {
+            return Mono.just(unknownVacancy(vacancyId));
+        }
+
+        // Extract text from the file (on the extraction executor, not on this thread)
+        return extractionService.extract(file)
+            .flatMap(extracted -> {
+                if (extracted.isEmpty()) {
+                    // Quick response if no text was extracted
+                    return Mono.just(ResponseEntity.badRequest().body(errorResponse("Text cannot be extracted from the selected file.")));
+                }
+
+                log.info("File received. Length of text extracted: {} (truncated: {})",
+                        extracted.getText().length(), extracted.isTruncated());
+
+                // Call the service that builds the prompt and query OpenAI
+                return service.reviewTextForVacancy(extracted.getText(), vacancyId, vacancyDescription, extracted.isTruncated(), tier)
+                    .map(ResponseEntity::ok)
+                    .onErrorResume(NoSuchElementException.class, ex -> Mono.just(unknownVacancy(vacancyId)))
+                    .onErrorResume(OpenAiRateLimitException.class, ex -> Mono.just(rateLimited(ex)))
+                    .onErrorResume(OpenAiUnavailableException.class, ex -> Mono.just(unavailable(ex)))
+                    .onErrorResume(ex -> {
+                        log.error("Error processing reviewCv: {}", ex.getMessage(), ex);
+                        return Mono.just(ResponseEntity.status(500).body(errorResponse("Internal error while processing the CV: " + ex.getMessage())));
+                    });
+            })
+            .onErrorResume(ReviewController::isExtractionFailure, ex -> Mono.just(extractionFailure(ex)));
+    }
+
+    @PostMapping(value = "/multi", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<BulkReviewResult>>> reviewCvMulti(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "vacancyId", required = false) List<String> vacancyIds,
+            @RequestParam(value = "vacancyDescription", required = false) List<String> vacancyDescriptions) {
+
+        int requested = (vacancyIds == null ? 0 : vacancyIds.size()) + (vacancyDescriptions == null ? 0 : vacancyDescriptions.size());
+        if (requested == 0 || requested > maxMultiVacancies) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        List<String> ids = new ArrayList<>();
+        List<String> vacancies = new ArrayList<>();
+        try {
+            for (String vacancyId : vacancyIds == null ? List.<String>of() : vacancyIds) {
+                vacancies.add(vacancyService.resolve(vacancyId, null));
+                ids.add(vacancyId);
+            }
+        } catch (NoSuchElementException e) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        List<String> descriptions = vacancyDescriptions == null ? List.of() : vacancyDescriptions;
+        for (int i = 0; i < descriptions.size(); i++) {
+            vacancies.add(descriptions.get(i));
+            ids.add(String.valueOf(i + 1));
+        }
+
+        return extractionService.extract(file)
+            .flatMap(extracted -> {
+                if (extracted.isEmpty()) {
+                    return Mono.just(ResponseEntity.badRequest().<List<BulkReviewResult>>build());
+                }
+
+                log.info("File received for {} vacancies. Length of text extracted: {}", vacancies.size(), extracted.getText().length());
+
+                return service.reviewTextMulti(extracted.getText(), vacancies, extracted.isTruncated())
+                    .map(reviews -> {
+                        List<BulkReviewResult> results = new ArrayList<>();
+                        for (int i = 0; i < reviews.size(); i++) {
+                            results.add(new BulkReviewResult(ids.get(i), reviews.get(i), null));
+                        }
+                        return ResponseEntity.ok(results);
+                    })
+                    .onErrorResume(IllegalArgumentException.class, ex ->
+                            Mono.just(ResponseEntity.badRequest().<List<BulkReviewResult>>build()))
+                    .onErrorResume(OpenAiRateLimitException.class, ex ->
+                            Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+                                    .<List<BulkReviewResult>>build()))
+                    .onErrorResume(OpenAiUnavailableException.class, ex ->
+                            Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+                                    .<List<BulkReviewResult>>build()))
+                    .onErrorResume(ex -> {
+                        log.error("Error processing reviewCvMulti: {}", ex.getMessage(), ex);
+                        return Mono.just(ResponseEntity.status(500).<List<BulkReviewResult>>build());
+                    });
+            })
+            .onErrorResume(ReviewController::isExtractionFailure, ex ->
+                    Mono.just(ResponseEntity.status(extractionFailure(ex).getStatusCode()).<List<BulkReviewResult>>build()));
+    }
+
+    @PostMapping(value = "/pipelined", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ReviewResponse>> reviewCvPipelined(HttpServletRequest request) {
+
+        return uploadService.read(request)
+            .flatMap(upload -> {
+                ExtractedText extracted = upload.extracted();
+                if (extracted.isEmpty()) {
+                    return Mono.just(ResponseEntity.badRequest().body(errorResponse("Text cannot be extracted from the selected file.")));
+                }
+
+                log.info("File streamed. Length of text extracted: {} (truncated: {})",
+                        extracted.getText().length(), extracted.isTruncated());
+
+                // The vacancy id may arrive after the file, so it is resolved once the upload is read
+                return service.reviewTextForVacancy(extracted.getText(), upload.vacancyId(), upload.vacancyDescription(), extracted.isTruncated())
+                    .map(ResponseEntity::ok)
+                    .onErrorResume(NoSuchElementException.class, ex -> Mono.just(unknownVacancy(upload.vacancyId())))
+                    .onErrorResume(OpenAiRateLimitException.class, ex -> Mono.just(rateLimited(ex)))
+                    .onErrorResume(OpenAiUnavailableException.class, ex -> Mono.just(unavailable(ex)))
+                    .onErrorResume(ex -> {
+                        log.error("Error processing reviewCvPipelined: {}", ex.getMessage(), ex);
+                        return Mono.just(ResponseEntity.status(500).body(errorResponse("Internal error while processing the CV: " + ex.getMessage())));
+                    });
+            })
+            .onErrorResume(ReviewController::isExtractionFailure, ex -> Mono.just(extractionFailure(ex)))
+            .onErrorResume(DataBufferLimitException.class, ex ->
+                    Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse("The file is too large."))));
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Object>>> reviewCvStream(
+            @RequestPart("file") MultipartFile file,
+            @RequestPart(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestPart(value = "vacancyId", required = false) String vacancyId) {
+
+        // Resolved before the stream is committed, so an unknown id is still a 404
+        String vacancy;
+        try {
+            vacancy = vacancyService.resolve(vacancyId, vacancyDescription);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
         }
 
-        log.info("File received. Length of text extracted: {}", text.length());
+        return ResponseEntity.ok(extractionService.extract(file)
+            .flatMapMany(extracted -> {
+                if (extracted.isEmpty()) {
+                    return Flux.just(errorEvent("Text cannot be extracted from the selected file."));
+                }
 
-        // Call the service that builds the prompt and query OpenAI
-        return service.reviewText(text, vacancyDescription)
-            .map(ResponseEntity::ok)
+                log.info("File received for streaming review. Length of text extracted: {}", extracted.getText().length());
+
+                return service.reviewTextStream(extracted.getText(), vacancy, extracted.isTruncated())
+                    .map(event -> event.getType() == ReviewStreamEvent.Type.DELTA
+                            // Deltas are sent as JSON so leading spaces and line breaks survive SSE parsing
+                            ? ServerSentEvent.<Object>builder(Map.of("text", event.getDelta())).event("delta").build()
+                            : ServerSentEvent.<Object>builder(event.getReview()).event("result").build());
+            })
             .onErrorResume(ex -> {
-                log.error("Error processing reviewCv: {}", ex.getMessage(), ex);
-                ReviewResponse response = new ReviewResponse();
-                response.setApto("no");
-                response.setPuntuacion(0);
-                response.setResumen("Internal error while processing the CV: " + ex.getMessage());
-                response.setRawOpenAiResponse("");
-                return Mono.just(ResponseEntity.status(500).body(response));
-            });
+                log.error("Error processing reviewCvStream: {}", ex.getMessage(), ex);
+                String message = "Internal error while processing the CV: " + ex.getMessage();
+                if (isExtractionFailure(ex)) {
+                    message = extractionFailure(ex).getBody().getResumen();
+                } else if (ex instanceof OpenAiUnavailableException unavailable) {
+                    message = unavailable(unavailable).getBody().getResumen();
+                }
+                return Flux.just(errorEvent(message));
+            }));
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<BulkReviewResult>> reviewBulkFiles(
+            @RequestPart("files") List<MultipartFile> files,
+            @RequestPart(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestPart(value = "vacancyId", required = false) String vacancyId) {
+
+        String vacancy;
+        try {
+            vacancy = vacancyService.resolve(vacancyId, vacancyDescription);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        log.info("Bulk review received with {} files", files.size());
+        // Extraction is deferred so that it only happens when the item is requested downstream
+        Flux<BulkReviewItem> items = Flux.fromIterable(files)
+                .concatMap(file -> extractionService.extract(file)
+                        .map(extracted -> new BulkReviewItem(file.getOriginalFilename(), extracted.getText(), extracted.isTruncated()))
+                        .onErrorResume(ex -> {
+                            BulkReviewItem failed = new BulkReviewItem(file.getOriginalFilename(), null);
+                            // A full extraction queue or a timeout is not an unreadable file: say which
+                            failed.setError(isExtractionFailure(ex)
+                                    ? extractionFailure(ex).getBody().getResumen()
+                                    : "Text cannot be extracted from the CV.");
+                            return Mono.just(failed);
+                        }), 1);
+        return ResponseEntity.ok(bulkService.reviewAll(items, vacancy));
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<BulkReviewResult>> reviewBulkText(
+            HttpServletRequest request,
+            @RequestParam(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestParam(value = "vacancyId", required = false) String vacancyId) {
+
+        String vacancy;
+        try {
+            vacancy = vacancyService.resolve(vacancyId, vacancyDescription);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Lines are read from the request body only as fast as reviews complete
+        Flux<BulkReviewItem> items = Flux.using(
+                        () -> new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)),
+                        reader -> Flux.fromStream(reader.lines()),
+                        reader -> {
+                            try {
+                                reader.close();
+                            } catch (Exception e) {
+                                log.debug("Error closing bulk request body: {}", e.getMessage());
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                // Lines are numbered before blank ones are skipped, so ids match the client's lines
+                .index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> {
+                    long n = line.getT1() + 1;
+                    try {
+                        BulkReviewItem item = objectMapper.readValue(line.getT2(), BulkReviewItem.class);
+                        if (item.getId() == null) {
+                            item.setId(String.valueOf(n));
+                        }
+                        return item;
+                    } catch (Exception e) {
+                        log.warn("Invalid bulk review line {}: {}", n, e.getMessage());
+                        return new BulkReviewItem(String.valueOf(n), null);
+                    }
+                });
+        return ResponseEntity.ok(bulkService.reviewAll(items, vacancy));
+    }
+
+    /**
+     * Lets the review endpoint answer 404 before extracting the file.
+     */
+    private boolean isUnknownVacancy(String vacancyId) {
+        return vacancyId != null && !vacancyId.isBlank() && vacancyService.get(vacancyId) == null;
+    }
+
+    private static ResponseEntity<ReviewResponse> unknownVacancy(String vacancyId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse("Unknown vacancy: " + vacancyId));
+    }
+
+    /**
+     * OpenAI quota exhausted even after retrying: 429 with the wait suggested by the API.
+     */
+    private static ResponseEntity<ReviewResponse> rateLimited(OpenAiRateLimitException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+                .body(errorResponse("Too many requests to OpenAI, please try again later."));
+    }
+
+    /**
+     * OpenAI circuit breaker open or no free call slot: 503 right away, without waiting for
+     * the upstream timeouts.
+     */
+    private static ResponseEntity<ReviewResponse> unavailable(OpenAiUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+                .body(errorResponse("OpenAI is temporarily unavailable, please try again later."));
+    }
+
+    private static String retryAfterSeconds(Duration retryAfter) {
+        return String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+
+    /**
+     * Extraction stage failures: the executor queue is full or the document took too long.
+     */
+    static boolean isExtractionFailure(Throwable ex) {
+        return ex instanceof RejectedExecutionException || ex instanceof TimeoutException;
+    }
+
+    static ResponseEntity<ReviewResponse> extractionFailure(Throwable ex) {
+        if (ex instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(errorResponse("Too many documents being processed, please try again later."));
+        }
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(errorResponse("The file could not be processed in time."));
+    }
+
+    private static ReviewResponse errorResponse(String message) {
+        ReviewResponse response = new ReviewResponse();
+        response.setApto("no");
+        response.setPuntuacion(0);
+        response.setResumen(message);
+        response.setRawOpenAiResponse("");
+        return response;
+    }
+
+    private static ServerSentEvent<Object> errorEvent(String message) {
+        return ServerSentEvent.<Object>builder(errorResponse(message)).event("error").build();
     }
 }
@@ -0,0 +1,102 @@
+package com.cv.review.service.cvservice.controller;
+
+import com.cv.review.service.cvservice.dto.ReviewJobResponse;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.service.ReviewJobService;
+import com.cv.review.service.cvservice.service.TextExtractionService;
+import com.cv.review.service.cvservice.service.VacancyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for asynchronous reviews.
+ *
+ * POST /api/v1/reviews/jobs
+ * Form data:
+ *  - file: CV file (pdf/docx/txt)
+ *  - vacancyDescription: (optional) text with the job description
+ *  - vacancyId: (optional) id of a registered vacancy, used instead of vacancyDescription
+ * Response: 202 with the job id (Location header points to the job), 429 if the queue is full,
+ * 404 if the vacancy id is unknown.
+ *
+ * GET /api/v1/reviews/jobs/{jobId}
+ * Response: job status and, once COMPLETED, the ReviewResponse.
+ */
+@RestController
+@RequestMapping("/api/v1/reviews/jobs")
+public class ReviewJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewJobController.class);
+
+    private final ReviewJobService jobService;
+    private final TextExtractionService extractionService;
+    private final VacancyService vacancyService;
+
+    public ReviewJobController(ReviewJobService jobService, TextExtractionService extractionService,
+                               VacancyService vacancyService) {
+        this.jobService = jobService;
+        this.extractionService = extractionService;
+        this.vacancyService = vacancyService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ReviewJobResponse>> submitReview(
+            @RequestPart("file") MultipartFile file,
+            @RequestPart(value = "vacancyDescription", required = false) String vacancyDescription,
+            @RequestPart(value = "vacancyId", required = false) String vacancyId) {
+
+        String vacancy;
+        try {
+            vacancy = vacancyService.resolve(vacancyId, vacancyDescription);
+        } catch (NoSuchElementException e) {
+            return Mono.just(error(HttpStatus.NOT_FOUND, e.getMessage()));
+        }
+
+        return extractionService.extract(file)
+            .map(extracted -> {
+                if (extracted.isEmpty()) {
+                    return error(HttpStatus.BAD_REQUEST, "Text cannot be extracted from the selected file.");
+                }
+
+                try {
+                    ReviewJobResponse job = jobService.submit(extracted.getText(), vacancy, extracted.isTruncated());
+                    log.info("Review job {} queued. Length of text extracted: {}", job.getJobId(), extracted.getText().length());
+                    return ResponseEntity.accepted()
+                            .location(URI.create("/api/v1/reviews/jobs/" + job.getJobId()))
+                            .body(job);
+                } catch (RejectedExecutionException e) {
+                    return error(HttpStatus.TOO_MANY_REQUESTS, "Too many pending reviews, please try again later.");
+                }
+            })
+            .onErrorResume(ReviewController::isExtractionFailure, ex -> {
+                ResponseEntity<ReviewResponse> failure = ReviewController.extractionFailure(ex);
+                return Mono.just(error(failure.getStatusCode(), failure.getBody().getResumen()));
+            });
+    }
+
+    @GetMapping(value = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ReviewJobResponse> getJob(@PathVariable String jobId) {
+        ReviewJobResponse job = jobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    private static ResponseEntity<ReviewJobResponse> error(HttpStatusCode status, String message) {
+        ReviewJobResponse response = new ReviewJobResponse();
+        response.setError(message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
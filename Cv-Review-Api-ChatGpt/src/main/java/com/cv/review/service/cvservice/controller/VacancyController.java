@@ -0,0 +1,64 @@
+package com.cv.review.service.cvservice.controller;
+
+import com.cv.review.service.cvservice.dto.VacancyRequest;
+import com.cv.review.service.cvservice.dto.VacancyResponse;
+import com.cv.review.service.cvservice.service.VacancyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+/**
+ * REST controller for the vacancy registry.
+ *
+ * POST /api/v1/vacancies
+ * Body: {"description": "..."}
+ * Response: 201 with the vacancy and its id (Location header points to it).
+ * The id can then be sent as vacancyId to the review endpoints instead of vacancyDescription.
+ *
+ * GET /api/v1/vacancies/{id}    -> the vacancy, 404 if unknown or expired
+ * DELETE /api/v1/vacancies/{id} -> 204, 404 if unknown
+ */
+@RestController
+@RequestMapping("/api/v1/vacancies")
+public class VacancyController {
+
+    private static final Logger log = LoggerFactory.getLogger(VacancyController.class);
+
+    private final VacancyService vacancyService;
+
+    public VacancyController(VacancyService vacancyService) {
+        this.vacancyService = vacancyService;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<VacancyResponse> register(@RequestBody VacancyRequest request) {
+        if (request.getDescription() == null || request.getDescription().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        VacancyResponse vacancy = vacancyService.register(request.getDescription());
+        log.info("Vacancy {} registered", vacancy.getId());
+        return ResponseEntity.created(URI.create("/api/v1/vacancies/" + vacancy.getId())).body(vacancy);
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<VacancyResponse> get(@PathVariable String id) {
+        VacancyResponse vacancy = vacancyService.get(id);
+        if (vacancy == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(vacancy);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        if (!vacancyService.delete(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
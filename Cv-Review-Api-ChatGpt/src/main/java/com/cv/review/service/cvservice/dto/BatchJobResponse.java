@@ -0,0 +1,122 @@
+package com.cv.review.service.cvservice.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO returned by the batch review API: state of the job and the results mapped so far, one
+ * BulkReviewResult per CV (review, or error for the CVs that failed). Ids given to more than
+ * one CV are listed in duplicateIds, once per extra CV; only the first CV with the id is reviewed.
+ */
+public class BatchJobResponse {
+
+    private String jobId;
+    private BatchJobStatus status;
+    private String batchId;
+    private String batchStatus; // estado del batch en OpenAI (validating, in_progress, completed...)
+    private int total;
+    private int completed;
+    private int failed;
+    private String error;
+    private Instant createdAt;
+    private Instant completedAt;
+    private List<BulkReviewResult> results = new ArrayList<>();
+    private List<String> duplicateIds = new ArrayList<>();
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public BatchJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BatchJobStatus status) {
+        this.status = status;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public String getBatchStatus() {
+        return batchStatus;
+    }
+
+    public void setBatchStatus(String batchStatus) {
+        this.batchStatus = batchStatus;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public List<BulkReviewResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BulkReviewResult> results) {
+        this.results = results;
+    }
+
+    public List<String> getDuplicateIds() {
+        return duplicateIds;
+    }
+
+    public void setDuplicateIds(List<String> duplicateIds) {
+        this.duplicateIds = duplicateIds;
+    }
+}
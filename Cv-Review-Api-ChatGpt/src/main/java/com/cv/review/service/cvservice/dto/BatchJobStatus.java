@@ -0,0 +1,11 @@
+package com.cv.review.service.cvservice.dto;
+
+/**
+ * Lifecycle of a batch review job (see BatchReviewService).
+ */
+public enum BatchJobStatus {
+    SUBMITTED, // running in the Batch API
+    COMPLETED, // every CV has its review
+    PARTIAL,   // the batch ended without a review for some CVs; can be resumed
+    FAILED     // the batch could not be submitted; can be resumed
+}
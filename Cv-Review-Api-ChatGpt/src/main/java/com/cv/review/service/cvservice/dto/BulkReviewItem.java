@@ -0,0 +1,64 @@
+package com.cv.review.service.cvservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One line of a bulk review request (NDJSON): an identifier chosen by the client
+ * and the CV text to review. The id is echoed back in the BulkReviewResult so
+ * results can be correlated, since they are streamed in completion order.
+ */
+public class BulkReviewItem {
+
+    private String id;
+    private String cvText;
+    @JsonIgnore
+    private boolean truncated; // set when the text comes from a file whose extraction hit the budget
+    @JsonIgnore
+    private String error; // set when the file could not be extracted; reported instead of reviewing
+
+    public BulkReviewItem() {
+    }
+
+    public BulkReviewItem(String id, String cvText) {
+        this.id = id;
+        this.cvText = cvText;
+    }
+
+    public BulkReviewItem(String id, String cvText, boolean truncated) {
+        this.id = id;
+        this.cvText = cvText;
+        this.truncated = truncated;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCvText() {
+        return cvText;
+    }
+
+    public void setCvText(String cvText) {
+        this.cvText = cvText;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,45 @@
+package com.cv.review.service.cvservice.dto;
+
+/**
+ * One line of a bulk review response (NDJSON).
+ * Carries the id of the BulkReviewItem and either the review or an error message.
+ */
+public class BulkReviewResult {
+
+    private String id;
+    private ReviewResponse review;
+    private String error;
+
+    public BulkReviewResult() {
+    }
+
+    public BulkReviewResult(String id, ReviewResponse review, String error) {
+        this.id = id;
+        this.review = review;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public ReviewResponse getReview() {
+        return review;
+    }
+
+    public void setReview(ReviewResponse review) {
+        this.review = review;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
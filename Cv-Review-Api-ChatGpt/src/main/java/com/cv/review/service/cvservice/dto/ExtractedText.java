@@ -0,0 +1,35 @@
+package com.cv.review.service.cvservice.dto;
+
+/**
+ * Text extracted from an uploaded document.
+ * truncated is true when the extraction stopped at the character budget,
+ * so the document contains more text than what was extracted.
+ */
+public class ExtractedText {
+
+    private static final ExtractedText EMPTY = new ExtractedText("", false);
+
+    private final String text;
+    private final boolean truncated;
+
+    public ExtractedText(String text, boolean truncated) {
+        this.text = text == null ? "" : text;
+        this.truncated = truncated;
+    }
+
+    public static ExtractedText empty() {
+        return EMPTY;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean isEmpty() {
+        return text.isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package com.cv.review.service.cvservice.dto;
+
+import java.time.Instant;
+
+/**
+ * DTO returned by the asynchronous review jobs API.
+ * The result is only present once the job is COMPLETED; error only when FAILED.
+ */
+public class ReviewJobResponse {
+
+    private String jobId;
+    private ReviewJobStatus status;
+    private ReviewResponse result;
+    private String error;
+    private Instant createdAt;
+    private Instant completedAt;
+
+    public ReviewJobResponse() {
+    }
+
+    /**
+     * Copy of another job (the review itself is shared, it is not modified once set).
+     */
+    public ReviewJobResponse(ReviewJobResponse other) {
+        this.jobId = other.jobId;
+        this.status = other.status;
+        this.result = other.result;
+        this.error = other.error;
+        this.createdAt = other.createdAt;
+        this.completedAt = other.completedAt;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public ReviewJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReviewJobStatus status) {
+        this.status = status;
+    }
+
+    public ReviewResponse getResult() {
+        return result;
+    }
+
+    public void setResult(ReviewResponse result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.cv.review.service.cvservice.dto;
+
+/**
+ * Lifecycle of an asynchronous review job.
+ */
+public enum ReviewJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
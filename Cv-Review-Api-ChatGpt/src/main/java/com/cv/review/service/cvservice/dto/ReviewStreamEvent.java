@@ -0,0 +1,44 @@
+package com.cv.review.service.cvservice.dto;
+
+/**
+ * Event of a streamed review.
+ * - DELTA: a fragment of the text generated by the model (delta).
+ * - RESULT: the final ReviewResponse, parsed from the assembled text (review).
+ */
+public class ReviewStreamEvent {
+
+    public enum Type {
+        DELTA,
+        RESULT
+    }
+
+    private final Type type;
+    private final String delta;
+    private final ReviewResponse review;
+
+    private ReviewStreamEvent(Type type, String delta, ReviewResponse review) {
+        this.type = type;
+        this.delta = delta;
+        this.review = review;
+    }
+
+    public static ReviewStreamEvent delta(String delta) {
+        return new ReviewStreamEvent(Type.DELTA, delta, null);
+    }
+
+    public static ReviewStreamEvent result(ReviewResponse review) {
+        return new ReviewStreamEvent(Type.RESULT, null, review);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getDelta() {
+        return delta;
+    }
+
+    public ReviewResponse getReview() {
+        return review;
+    }
+}
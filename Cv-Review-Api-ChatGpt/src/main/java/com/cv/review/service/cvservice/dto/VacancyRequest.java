@@ -0,0 +1,17 @@
+package com.cv.review.service.cvservice.dto;
+
+/**
+ * DTO to register a vacancy (POST /api/v1/vacancies).
+ */
+public class VacancyRequest {
+
+    private String description;
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,38 @@
+package com.cv.review.service.cvservice.dto;
+
+import java.time.Instant;
+
+/**
+ * DTO returned by the vacancy registry API. The id can be sent as vacancyId
+ * instead of the vacancy text in the review endpoints.
+ */
+public class VacancyResponse {
+
+    private String id;
+    private String description;
+    private Instant createdAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
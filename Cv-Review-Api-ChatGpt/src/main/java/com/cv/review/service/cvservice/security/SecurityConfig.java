@@ -60,12 +60,17 @@ public class SecurityConfig {
         http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
-                // permitir salud / actuator si lo necesitas (ajusta según tu app)
-                .requestMatchers("/actuator/**", "/error").permitAll()
+                // salud pública; el resto de actuator (métricas) requiere autenticación
+                .requestMatchers("/actuator/health", "/actuator/health/**", "/error").permitAll()
+                .requestMatchers("/actuator/**").authenticated()
                 // permitir OPTIONS preflight
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 // proteger la API de reviews
                 .requestMatchers("/api/v1/reviews/**").authenticated()
+                // y el registro de vacantes
+                .requestMatchers("/api/v1/vacancies/**").authenticated()
+                // y los trabajos de revisión por lotes (Batch API)
+                .requestMatchers("/api/v1/batches/**").authenticated()
                 // resto público (opcional)
                 .anyRequest().permitAll()
             )
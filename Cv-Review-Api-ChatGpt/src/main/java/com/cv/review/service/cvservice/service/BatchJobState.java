@@ -0,0 +1,161 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.dto.BatchJobResponse;
+import com.cv.review.service.cvservice.dto.BatchJobStatus;
+import com.cv.review.service.cvservice.dto.BulkReviewResult;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a batch review job, persisted as JSON by BatchReviewService after every change so
+ * that a restart resumes polling and keeps the results already mapped.
+ */
+class BatchJobState {
+
+    /**
+     * CV sent to the batch, by custom_id.
+     *
+     * @param cacheKey  key the review is cached under (see CvReviewService.BatchEntry)
+     * @param truncated truncated flag of the review
+     */
+    record Item(String cacheKey, boolean truncated) {
+    }
+
+    private String jobId;
+    private BatchJobStatus status;
+    private String batchId;
+    private String batchStatus;
+    private String error;
+    private Instant createdAt;
+    private Instant completedAt;
+    private int attempts;
+    private Map<String, Item> items = new LinkedHashMap<>();
+    // Resultados por custom_id, en el orden de entrada
+    private Map<String, BulkReviewResult> results = new LinkedHashMap<>();
+    // Ids repetidos en la entrada: solo se revisa el primer CV con cada id
+    private List<String> duplicateIds = new ArrayList<>();
+
+    /**
+     * @return true if some CV sent to the batch has no review yet
+     */
+    boolean hasPending() {
+        return items.keySet().stream().anyMatch(id -> !isReviewed(id));
+    }
+
+    boolean isReviewed(String id) {
+        BulkReviewResult result = results.get(id);
+        return result != null && result.getReview() != null;
+    }
+
+    /**
+     * Copy for the API, safe to serialize while the job keeps changing.
+     */
+    BatchJobResponse toResponse() {
+        BatchJobResponse response = new BatchJobResponse();
+        response.setJobId(jobId);
+        response.setStatus(status);
+        response.setBatchId(batchId);
+        response.setBatchStatus(batchStatus);
+        response.setError(error);
+        response.setCreatedAt(createdAt);
+        response.setCompletedAt(completedAt);
+        response.setTotal(results.size() + (int) items.keySet().stream().filter(id -> !results.containsKey(id)).count());
+        response.setCompleted((int) results.values().stream().filter(result -> result.getReview() != null).count());
+        response.setFailed((int) results.values().stream().filter(result -> result.getReview() == null).count());
+        response.setResults(new ArrayList<>(results.values()));
+        response.setDuplicateIds(new ArrayList<>(duplicateIds));
+        return response;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public BatchJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BatchJobStatus status) {
+        this.status = status;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public String getBatchStatus() {
+        return batchStatus;
+    }
+
+    public void setBatchStatus(String batchStatus) {
+        this.batchStatus = batchStatus;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Map<String, Item> getItems() {
+        return items;
+    }
+
+    public void setItems(Map<String, Item> items) {
+        this.items = items;
+    }
+
+    public Map<String, BulkReviewResult> getResults() {
+        return results;
+    }
+
+    public void setResults(Map<String, BulkReviewResult> results) {
+        this.results = results;
+    }
+
+    public List<String> getDuplicateIds() {
+        return duplicateIds;
+    }
+
+    public void setDuplicateIds(List<String> duplicateIds) {
+        this.duplicateIds = duplicateIds;
+    }
+}
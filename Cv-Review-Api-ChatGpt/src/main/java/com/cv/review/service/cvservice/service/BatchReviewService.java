@@ -0,0 +1,560 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.client.ChatCompletion;
+import com.cv.review.service.cvservice.client.OpenAiBatchClient;
+import com.cv.review.service.cvservice.dto.BatchJobResponse;
+import com.cv.review.service.cvservice.dto.BatchJobStatus;
+import com.cv.review.service.cvservice.dto.BulkReviewItem;
+import com.cv.review.service.cvservice.dto.BulkReviewResult;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Offline scoring of many CVs against one vacancy through the OpenAI Batch API, cheaper than
+ * the synchronous path and without its rate limits, for jobs that can wait hours (e.g.
+ * re-scoring the whole applicant database overnight).
+ *
+ * Each CV is prepared like a synchronous review (cache, disk store, SkillPreFilter, compaction);
+ * the ones still needing the model are written as lines of a JSONL input file (custom_id = item
+ * id), which is uploaded and run as a batch. A background poller (cvreview.batch.poll-interval-ms)
+ * follows the batch and, once it ends, streams its output and error files back to disk and maps
+ * each line to its CV by custom_id, parsing and caching the reviews as the synchronous path does.
+ *
+ * Jobs are persisted under cvreview.batch.dir (state JSON plus the input file) after every
+ * change: after a restart, running batches are polled again and mapped results are kept. When a
+ * batch ends without a review for some CVs (failed requests, expired window) or could not be
+ * submitted, the job is PARTIAL/FAILED and {@link #resume} submits only the missing CVs again.
+ * Downloaded output and error files are deleted once mapped. Jobs that ended more than
+ * cvreview.batch.retention-ms ago are forgotten, together with their files.
+ *
+ * Each round of the poller checks the running jobs concurrently, each one bounded by its own
+ * timeout, so a slow batch does not hold back the others.
+ */
+@Service
+public class BatchReviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchReviewService.class);
+
+    /** Running jobs checked at the same time by a poller round. */
+    private static final int POLL_CONCURRENCY = 4;
+
+    private final CvReviewService reviewService;
+    private final OpenAiBatchClient batchClient;
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final int concurrency;
+    private final Duration callTimeout;
+    private final long retentionMillis;
+    private final ScheduledExecutorService poller;
+    private final Map<String, BatchJobState> jobs = new ConcurrentHashMap<>();
+    private final Counter requests;
+    private final Counter reviewed;
+    private final Counter failed;
+
+    public BatchReviewService(CvReviewService reviewService,
+                              OpenAiBatchClient batchClient,
+                              ObjectMapper objectMapper,
+                              @Value("${cvreview.batch.dir:${java.io.tmpdir}/cvservice/batches}") String dir,
+                              @Value("${cvreview.batch.prepare-concurrency:4}") int concurrency,
+                              @Value("${cvreview.batch.poll-interval-ms:60000}") long pollIntervalMillis,
+                              @Value("${cvreview.batch.timeout-ms:600000}") long timeoutMillis,
+                              @Value("${cvreview.batch.retention-ms:604800000}") long retentionMillis,
+                              MeterRegistry meterRegistry) throws IOException {
+        this.reviewService = reviewService;
+        this.batchClient = batchClient;
+        this.objectMapper = objectMapper;
+        this.dir = Files.createDirectories(Path.of(dir));
+        this.concurrency = Math.max(1, concurrency);
+        this.callTimeout = Duration.ofMillis(timeoutMillis);
+        this.retentionMillis = retentionMillis;
+        loadJobs();
+
+        this.requests = Counter.builder("cvreview.batch.requests")
+                .description("Review requests submitted through the Batch API")
+                .register(meterRegistry);
+        this.reviewed = Counter.builder("cvreview.batch.results")
+                .description("Batch review results mapped back to their CV")
+                .tag("outcome", "reviewed")
+                .register(meterRegistry);
+        this.failed = Counter.builder("cvreview.batch.results")
+                .description("Batch review results mapped back to their CV")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("cvreview.batch.jobs.running", jobs,
+                        all -> all.values().stream().filter(job -> job.getStatus() == BatchJobStatus.SUBMITTED).count())
+                .description("Batch review jobs waiting for the Batch API")
+                .register(meterRegistry);
+
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-review-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        this.poller.scheduleWithFixedDelay(this::pollRunningJobs, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        this.poller.scheduleWithFixedDelay(this::purgeFinishedJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Prepares the CVs and submits the ones needing the model as a batch.
+     *
+     * @param items              CVs to review; items without id get their 1-based position
+     * @param vacancyDescription job description shared by all items
+     * @return Mono with the job: SUBMITTED, COMPLETED if every review was already known, or
+     *         FAILED if the batch could not be submitted (see {@link #resume})
+     */
+    public Mono<BatchJobResponse> submit(Flux<BulkReviewItem> items, String vacancyDescription) {
+        BatchJobState job = new BatchJobState();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setCreatedAt(Instant.now());
+        Path input = dir.resolve(job.getJobId() + "-input.jsonl");
+        AtomicLong position = new AtomicLong();
+
+        Mono<Void> written = Mono.using(
+                () -> Files.newBufferedWriter(input, StandardCharsets.UTF_8),
+                writer -> items
+                        .map(item -> {
+                            long n = position.incrementAndGet();
+                            if (item.getId() == null || item.getId().isBlank()) {
+                                item.setId(String.valueOf(n));
+                            }
+                            return item;
+                        })
+                        .flatMapSequential(item -> prepare(item, vacancyDescription), concurrency)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(prepared -> add(job, prepared, writer))
+                        .then(),
+                writer -> {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        log.debug("Error closing batch input file: {}", e.getMessage());
+                    }
+                });
+
+        return written
+                .then(Mono.defer(() -> {
+                    jobs.put(job.getJobId(), job);
+                    if (job.getItems().isEmpty()) {
+                        log.info("Batch job {}: every review was already known, nothing to submit", job.getJobId());
+                        synchronized (job) {
+                            job.setStatus(BatchJobStatus.COMPLETED);
+                            job.setCompletedAt(Instant.now());
+                        }
+                        save(job);
+                        return Mono.just(job);
+                    }
+                    requests.increment(job.getItems().size());
+                    return submitBatch(job, input, Set.of());
+                }))
+                .map(this::snapshot);
+    }
+
+    /**
+     * Submits again the CVs of a PARTIAL or FAILED job that have no review yet.
+     *
+     * @return Mono with the job, or a NoSuchElementException / IllegalStateException error if the
+     *         job is unknown or still running / completed
+     */
+    public Mono<BatchJobResponse> resume(String jobId) {
+        BatchJobState job = jobs.get(jobId);
+        if (job == null) {
+            return Mono.error(new NoSuchElementException("Unknown batch job: " + jobId));
+        }
+        synchronized (job) {
+            if (job.getStatus() != BatchJobStatus.PARTIAL && job.getStatus() != BatchJobStatus.FAILED) {
+                return Mono.error(new IllegalStateException("Batch job " + jobId + " is " + job.getStatus()
+                        + ", only PARTIAL or FAILED jobs can be resumed."));
+            }
+            // Sin batchId el poller no vuelve a recoger el batch anterior mientras se envía el nuevo
+            BatchJobStatus previousStatus = job.getStatus();
+            String previousBatchId = job.getBatchId();
+            String previousError = job.getError();
+            Instant previousCompletedAt = job.getCompletedAt();
+            job.setStatus(BatchJobStatus.SUBMITTED);
+            job.setBatchId(null);
+            job.setError(null);
+            job.setCompletedAt(null);
+            Path retry = dir.resolve(jobId + "-input-" + (job.getAttempts() + 1) + ".jsonl");
+            return Mono.fromCallable(() -> writePending(job, retry))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnError(ex -> {
+                        // The job can be resumed again and keeps the results it had
+                        log.error("Could not write the retry file of batch job {}: {}", jobId, ex.getMessage());
+                        delete(retry);
+                        synchronized (job) {
+                            job.setStatus(previousStatus);
+                            job.setBatchId(previousBatchId);
+                            job.setError(previousError);
+                            job.setCompletedAt(previousCompletedAt);
+                        }
+                    })
+                    .flatMap(pending -> {
+                        log.info("Batch job {}: resubmitting {} reviews", jobId, pending.size());
+                        return submitBatch(job, retry, pending);
+                    })
+                    .map(this::snapshot);
+        }
+    }
+
+    /**
+     * @return the job with the given id, or null if unknown
+     */
+    public BatchJobResponse getJob(String jobId) {
+        BatchJobState job = jobs.get(jobId);
+        return job == null ? null : snapshot(job);
+    }
+
+    /**
+     * Checks the batch of a SUBMITTED job and, if it has ended, maps its results.
+     * Called by the background poller; jobs in other states are returned as they are.
+     */
+    public Mono<BatchJobResponse> poll(String jobId) {
+        BatchJobState job = jobs.get(jobId);
+        if (job == null) {
+            return Mono.error(new NoSuchElementException("Unknown batch job: " + jobId));
+        }
+        if (job.getStatus() != BatchJobStatus.SUBMITTED || job.getBatchId() == null) {
+            return Mono.just(snapshot(job));
+        }
+        return batchClient.get(job.getBatchId())
+                .flatMap(batch -> {
+                    synchronized (job) {
+                        job.setBatchStatus(batch.status());
+                    }
+                    if (!batch.isTerminal()) {
+                        save(job);
+                        return Mono.just(job);
+                    }
+                    log.info("Batch {} of job {} ended as {} ({} completed, {} failed)", batch.id(), jobId,
+                            batch.status(), batch.completed(), batch.failed());
+                    return collect(job, batch.id(), batch.outputFileId())
+                            .then(collect(job, batch.id(), batch.errorFileId()))
+                            .then(Mono.fromCallable(() -> finish(job, batch.status())));
+                })
+                .map(this::snapshot);
+    }
+
+    private record Prepared(BulkReviewItem item, CvReviewService.BatchEntry entry, String error) {
+    }
+
+    private Mono<Prepared> prepare(BulkReviewItem item, String vacancyDescription) {
+        if (item.getCvText() == null || item.getCvText().isBlank()) {
+            return Mono.just(new Prepared(item, null, "Text cannot be extracted from the CV."));
+        }
+        return reviewService.prepareBatchEntry(item.getCvText(), vacancyDescription, item.isTruncated())
+                .map(entry -> new Prepared(item, entry, null))
+                .onErrorResume(ex -> {
+                    log.error("Error preparing batch item {}: {}", item.getId(), ex.getMessage());
+                    return Mono.just(new Prepared(item, null, ex.getMessage()));
+                });
+    }
+
+    /**
+     * Records a prepared CV in the job and, if it needs the model, writes its request line.
+     */
+    private void add(BatchJobState job, Prepared prepared, BufferedWriter writer) {
+        String id = prepared.item().getId();
+        if (job.getResults().containsKey(id) || job.getItems().containsKey(id)) {
+            // custom_id must be unique: only the first CV with the id is reviewed
+            job.getDuplicateIds().add(id);
+            return;
+        }
+        CvReviewService.BatchEntry entry = prepared.entry();
+        if (entry == null) {
+            job.getResults().put(id, new BulkReviewResult(id, null, prepared.error()));
+        } else if (entry.review() != null) {
+            job.getResults().put(id, new BulkReviewResult(id, entry.review(), null));
+        } else {
+            try {
+                writer.write(batchClient.requestLine(id, entry.model(), entry.prompt()));
+                writer.newLine();
+                job.getItems().put(id, new BatchJobState.Item(entry.cacheKey(), entry.truncated()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write the batch input file", e);
+            }
+        }
+    }
+
+    /**
+     * Uploads an input file and creates its batch; a failure leaves the job FAILED.
+     *
+     * @param replaced CVs whose current (error) results are dropped once the batch is created
+     */
+    private Mono<BatchJobState> submitBatch(BatchJobState job, Path input, Set<String> replaced) {
+        return batchClient.upload(input)
+                .flatMap(batchClient::create)
+                .map(batch -> {
+                    synchronized (job) {
+                        job.setAttempts(job.getAttempts() + 1);
+                        job.setBatchId(batch.id());
+                        job.setBatchStatus(batch.status());
+                        job.setStatus(BatchJobStatus.SUBMITTED);
+                        // Los errores de estos CVs se sustituyen por el resultado del nuevo batch
+                        replaced.forEach(job.getResults()::remove);
+                    }
+                    return job;
+                })
+                .onErrorResume(ex -> {
+                    log.error("Could not submit batch job {}: {}", job.getJobId(), ex.getMessage());
+                    synchronized (job) {
+                        job.setStatus(BatchJobStatus.FAILED);
+                        job.setError(ex.getMessage());
+                        job.setCompletedAt(Instant.now());
+                    }
+                    return Mono.just(job);
+                })
+                .doOnNext(this::save);
+    }
+
+    /**
+     * Downloads an output or error file of a batch, maps its lines to the CVs of the job and
+     * deletes it: the mapped results are kept in the job state.
+     */
+    private Mono<Void> collect(BatchJobState job, String batchId, String fileId) {
+        if (fileId == null) {
+            return Mono.empty();
+        }
+        Path file = dir.resolve(job.getJobId() + "-" + batchId + "-" + fileId + ".jsonl");
+        return batchClient.download(fileId, file)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(downloaded -> {
+                    try (BufferedReader reader = Files.newBufferedReader(downloaded, StandardCharsets.UTF_8)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (!line.isBlank()) {
+                                map(job, line);
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not read batch file " + fileId, e);
+                    }
+                    save(job);
+                    delete(downloaded);
+                })
+                .then();
+    }
+
+    /**
+     * Maps one line of an output or error file:
+     * {"custom_id": "...", "response": {"status_code": 200, "body": {chat completion}}, "error": null}
+     */
+    private void map(BatchJobState job, String line) {
+        String id = null;
+        try {
+            JsonNode result = objectMapper.readTree(line);
+            id = result.path("custom_id").asText();
+            BatchJobState.Item item = job.getItems().get(id);
+            if (item == null || job.isReviewed(id)) {
+                return;
+            }
+            JsonNode response = result.path("response");
+            BulkReviewResult mapped;
+            if (response.path("status_code").asInt() == 200) {
+                String content = ChatCompletion.parse(objectMapper.getFactory(), response.path("body").toString()).content();
+                ReviewResponse review = reviewService.completeBatchEntry(item.cacheKey(), item.truncated(), content);
+                mapped = new BulkReviewResult(id, review, null);
+                reviewed.increment();
+            } else {
+                mapped = new BulkReviewResult(id, null, errorMessage(result));
+                failed.increment();
+            }
+            synchronized (job) {
+                job.getResults().put(id, mapped);
+            }
+        } catch (Exception e) {
+            log.warn("Could not map batch result line of job {} (custom_id {}): {}", job.getJobId(), id, e.getMessage());
+        }
+    }
+
+    private static String errorMessage(JsonNode result) {
+        JsonNode error = result.path("error");
+        if (error.isMissingNode() || error.isNull()) {
+            error = result.path("response").path("body").path("error");
+        }
+        String message = error.path("message").asText("");
+        int status = result.path("response").path("status_code").asInt();
+        if (message.isEmpty()) {
+            message = "Batch request failed" + (status > 0 ? " with status " + status : "");
+        }
+        return message;
+    }
+
+    /**
+     * Closes a job whose batch has ended: COMPLETED if every CV has its review, PARTIAL otherwise.
+     */
+    private BatchJobState finish(BatchJobState job, String batchStatus) {
+        synchronized (job) {
+            for (String id : job.getItems().keySet()) {
+                if (!job.getResults().containsKey(id)) {
+                    job.getResults().put(id, new BulkReviewResult(id, null, "No result in the batch (" + batchStatus + ")."));
+                }
+            }
+            job.setStatus(job.hasPending() ? BatchJobStatus.PARTIAL : BatchJobStatus.COMPLETED);
+            job.setCompletedAt(Instant.now());
+        }
+        save(job);
+        return job;
+    }
+
+    /**
+     * Copies the lines of the CVs still without a review from the original input file.
+     *
+     * @return ids of the CVs written
+     */
+    private Set<String> writePending(BatchJobState job, Path target) throws IOException {
+        Set<String> pending;
+        synchronized (job) {
+            pending = job.getItems().keySet().stream()
+                    .filter(id -> !job.isReviewed(id))
+                    .collect(Collectors.toSet());
+        }
+        Set<String> written = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(dir.resolve(job.getJobId() + "-input.jsonl"), StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String id = line.isBlank() ? null : objectMapper.readTree(line).path("custom_id").asText();
+                if (id != null && pending.contains(id)) {
+                    writer.write(line);
+                    writer.newLine();
+                    written.add(id);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * One poller round. Each job has its own timeout (a status call plus two downloads) and
+     * the round ends once every job has been checked, so rounds never overlap.
+     */
+    private void pollRunningJobs() {
+        try {
+            Flux.fromIterable(jobs.values())
+                    .filter(job -> job.getStatus() == BatchJobStatus.SUBMITTED)
+                    .flatMap(job -> poll(job.getJobId())
+                            .timeout(callTimeout.multipliedBy(3))
+                            .onErrorResume(e -> {
+                                // The next round tries again
+                                log.warn("Could not poll batch job {}: {}", job.getJobId(), e.toString());
+                                return Mono.empty();
+                            }), POLL_CONCURRENCY)
+                    .then()
+                    .block();
+        } catch (Exception e) {
+            log.warn("Batch poller round failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets the jobs that ended more than cvreview.batch.retention-ms ago and deletes their
+     * state and input files.
+     */
+    void purgeFinishedJobs() {
+        Instant limit = Instant.now().minusMillis(retentionMillis);
+        for (BatchJobState job : jobs.values()) {
+            synchronized (job) {
+                if (job.getStatus() == BatchJobStatus.SUBMITTED || job.getCompletedAt() == null
+                        || !job.getCompletedAt().isBefore(limit)) {
+                    continue;
+                }
+                jobs.remove(job.getJobId());
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, job.getJobId() + "*")) {
+                files.forEach(this::delete);
+            } catch (IOException e) {
+                log.warn("Could not delete the files of batch job {}: {}", job.getJobId(), e.getMessage());
+            }
+            log.info("Batch job {} purged", job.getJobId());
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete batch file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private BatchJobResponse snapshot(BatchJobState job) {
+        synchronized (job) {
+            return job.toResponse();
+        }
+    }
+
+    /**
+     * Writes the state of the job (to a temporary file first, so a crash never leaves it half written).
+     */
+    private void save(BatchJobState job) {
+        Path state = dir.resolve(job.getJobId() + ".json");
+        Path temp = dir.resolve(job.getJobId() + ".json.tmp");
+        try {
+            synchronized (job) {
+                objectMapper.writeValue(temp.toFile(), job);
+            }
+            Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Could not save batch job {}: {}", job.getJobId(), e.getMessage(), e);
+        }
+    }
+
+    private void loadJobs() {
+        try (DirectoryStream<Path> states = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path state : states) {
+                try {
+                    BatchJobState job = objectMapper.readValue(state.toFile(), BatchJobState.class);
+                    jobs.put(job.getJobId(), job);
+                } catch (IOException e) {
+                    log.warn("Ignoring unreadable batch job state {}: {}", state, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not read batch jobs from {}: {}", dir, e.getMessage(), e);
+        }
+        if (!jobs.isEmpty()) {
+            log.info("Loaded {} batch jobs from {} ({} running)", jobs.size(), dir,
+                    jobs.values().stream().filter(job -> job.getStatus() == BatchJobStatus.SUBMITTED).count());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+}
@@ -0,0 +1,59 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.dto.BulkReviewItem;
+import com.cv.review.service.cvservice.dto.BulkReviewResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Scores a stream of CVs against a single vacancy.
+ *
+ * Items are pulled from the input Flux on demand and reviewed with at most
+ * cvreview.bulk.concurrency calls in flight (flatMap with a limit), so a slow
+ * OpenAI or a slow reader of the response slows down the consumption of the input
+ * instead of buffering it. Results are emitted in completion order.
+ */
+@Service
+public class BulkReviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkReviewService.class);
+
+    private final CvReviewService reviewService;
+    private final int concurrency;
+
+    public BulkReviewService(CvReviewService reviewService,
+                             @Value("${cvreview.bulk.concurrency:4}") int concurrency) {
+        this.reviewService = reviewService;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Reviews every item against the same vacancy.
+     *
+     * @param items              CVs to review (consumed lazily)
+     * @param vacancyDescription job description shared by all items
+     * @return Flux with one BulkReviewResult per item; failures are reported per item
+     */
+    public Flux<BulkReviewResult> reviewAll(Flux<BulkReviewItem> items, String vacancyDescription) {
+        return items.flatMap(item -> reviewOne(item, vacancyDescription), concurrency, 1);
+    }
+
+    private Mono<BulkReviewResult> reviewOne(BulkReviewItem item, String vacancyDescription) {
+        if (item.getError() != null) {
+            return Mono.just(new BulkReviewResult(item.getId(), null, item.getError()));
+        }
+        if (item.getCvText() == null || item.getCvText().isBlank()) {
+            return Mono.just(new BulkReviewResult(item.getId(), null, "Text cannot be extracted from the CV."));
+        }
+        return reviewService.reviewText(item.getCvText(), vacancyDescription, item.isTruncated())
+                .map(review -> new BulkReviewResult(item.getId(), review, null))
+                .onErrorResume(ex -> {
+                    log.error("Error reviewing bulk item {}: {}", item.getId(), ex.getMessage());
+                    return Mono.just(new BulkReviewResult(item.getId(), null, ex.getMessage()));
+                });
+    }
+}
@@ -0,0 +1,253 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.util.TokenCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fits CV and vacancy text into a token budget while keeping as much signal as possible.
+ *
+ * Instead of cutting the text at a fixed number of characters (which drops everything after
+ * the first lines, usually experience and skills), the CV is:
+ * 1. normalized (blank lines and repeated spaces removed, they are pure token overhead),
+ * 2. split into sections by their headings (experience, skills, education, ...),
+ * 3. filled up to cvreview.compaction.cv-token-budget: every section first gets an equal
+ *    share, then the remaining tokens go to sections in cvreview.compaction.section-priority
+ *    order. Sections keep their original order and headings.
+ *
+ * Tokens are counted with the local tokenizer (TokenCounter).
+ */
+@Component
+public class CvCompactor {
+
+    /** Text before the first recognized heading (name, contact, short intro). */
+    static final String HEADER = "header";
+    static final String OTHER = "other";
+
+    private static final int MAX_HEADING_LENGTH = 40;
+
+    private static final Map<String, List<String>> HEADINGS = new LinkedHashMap<>();
+
+    static {
+        HEADINGS.put("experience", List.of("experiencia", "experiencia laboral", "experiencia profesional",
+                "trayectoria", "trayectoria profesional", "historial laboral", "experience", "work experience",
+                "professional experience", "employment", "employment history"));
+        HEADINGS.put("skills", List.of("habilidades", "competencias", "conocimientos", "tecnologias",
+                "aptitudes", "herramientas", "habilidades tecnicas", "conocimientos tecnicos", "skills",
+                "technical skills", "technologies", "tech stack", "stack tecnologico"));
+        HEADINGS.put("summary", List.of("perfil", "perfil profesional", "resumen", "resumen profesional",
+                "sobre mi", "acerca de mi", "objetivo", "objetivo profesional", "summary", "profile",
+                "professional summary", "about me", "objective"));
+        HEADINGS.put("education", List.of("educacion", "formacion", "formacion academica", "estudios",
+                "education", "academic background"));
+        HEADINGS.put("certifications", List.of("certificaciones", "certificados", "cursos", "certifications",
+                "courses", "licenses"));
+        HEADINGS.put("languages", List.of("idiomas", "lenguas", "languages"));
+        HEADINGS.put("projects", List.of("proyectos", "projects"));
+    }
+
+    private final int cvTokenBudget;
+    private final int vacancyTokenBudget;
+    private final List<String> priority;
+
+    public CvCompactor(@Value("${cvreview.compaction.cv-token-budget:600}") int cvTokenBudget,
+                       @Value("${cvreview.compaction.vacancy-token-budget:300}") int vacancyTokenBudget,
+                       @Value("${cvreview.compaction.section-priority:experience,skills,summary,header,projects,education,certifications,languages,other}")
+                       String priority) {
+        this.cvTokenBudget = cvTokenBudget;
+        this.vacancyTokenBudget = vacancyTokenBudget;
+        this.priority = Arrays.stream(priority.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Result of a compaction: the text to send and whether anything was left out.
+     */
+    public record Compacted(String text, boolean truncated, int tokens) {
+    }
+
+    public int getCvTokenBudget() {
+        return cvTokenBudget;
+    }
+
+    /**
+     * Compacts CV text to cvreview.compaction.cv-token-budget tokens.
+     */
+    public Compacted compactCv(String cvText) {
+        return compactCv(cvText, cvTokenBudget);
+    }
+
+    /**
+     * Compacts CV text to the given number of tokens, by section priority.
+     */
+    public Compacted compactCv(String cvText, int budget) {
+        String normalized = normalizeWhitespace(cvText);
+        int total = TokenCounter.count(normalized);
+        if (total <= budget) {
+            return new Compacted(normalized, false, total);
+        }
+
+        List<Section> sections = splitSections(normalized);
+        int[] allowance = allocate(sections, budget);
+
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            if (allowance[i] <= 0) {
+                continue;
+            }
+            Section section = sections.get(i);
+            String part = allowance[i] >= section.tokens
+                    ? section.text
+                    : TokenCounter.truncate(section.text, allowance[i]).strip();
+            if (part.isEmpty()) {
+                continue;
+            }
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(part);
+            used += Math.min(allowance[i], section.tokens);
+        }
+        return new Compacted(out.toString(), true, used);
+    }
+
+    /**
+     * Compacts a vacancy description to cvreview.compaction.vacancy-token-budget tokens.
+     * Vacancies are short and unstructured, so this only normalizes and cuts at the budget.
+     */
+    public Compacted compactVacancy(String vacancyDescription) {
+        String normalized = normalizeWhitespace(vacancyDescription);
+        int total = TokenCounter.count(normalized);
+        if (total <= vacancyTokenBudget) {
+            return new Compacted(normalized, false, total);
+        }
+        return new Compacted(TokenCounter.truncate(normalized, vacancyTokenBudget).strip(), true, vacancyTokenBudget);
+    }
+
+    /**
+     * Equal share for every section first (so no section disappears completely),
+     * then the leftover tokens in priority order.
+     */
+    private int[] allocate(List<Section> sections, int budget) {
+        int[] allowance = new int[sections.size()];
+        int share = budget / sections.size();
+        int remaining = budget;
+        for (int i = 0; i < sections.size(); i++) {
+            allowance[i] = Math.min(share, sections.get(i).tokens);
+            remaining -= allowance[i];
+        }
+        for (int i : byPriority(sections)) {
+            if (remaining <= 0) {
+                break;
+            }
+            int extra = Math.min(remaining, sections.get(i).tokens - allowance[i]);
+            allowance[i] += extra;
+            remaining -= extra;
+        }
+        return allowance;
+    }
+
+    private List<Integer> byPriority(List<Section> sections) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Integer.compare(rank(sections.get(a).kind), rank(sections.get(b).kind)));
+        return order;
+    }
+
+    private int rank(String kind) {
+        int index = priority.indexOf(kind);
+        if (index < 0) {
+            index = priority.indexOf(OTHER);
+        }
+        return index < 0 ? priority.size() : index;
+    }
+
+    static List<Section> splitSections(String text) {
+        List<Section> sections = new ArrayList<>();
+        String kind = HEADER;
+        StringBuilder current = new StringBuilder();
+        for (String line : text.split("\n")) {
+            String heading = headingKind(line);
+            if (heading != null && current.length() > 0) {
+                sections.add(new Section(kind, current.toString()));
+                current.setLength(0);
+            }
+            if (heading != null) {
+                kind = heading;
+            }
+            if (current.length() > 0) {
+                current.append('\n');
+            }
+            current.append(line);
+        }
+        if (current.length() > 0) {
+            sections.add(new Section(kind, current.toString()));
+        }
+        return sections;
+    }
+
+    /**
+     * @return the section kind if the line is a heading (short line made of a known title), else null
+     */
+    static String headingKind(String line) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.length() > MAX_HEADING_LENGTH) {
+            return null;
+        }
+        String key = Normalizer.normalize(trimmed, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z ]", " ")
+                .replaceAll("\\s+", " ")
+                .strip();
+        for (Map.Entry<String, List<String>> entry : HEADINGS.entrySet()) {
+            if (entry.getValue().contains(key)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    static String normalizeWhitespace(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        for (String line : text.split("\\R")) {
+            String clean = line.replaceAll("[ \\t\\u00A0]+", " ").strip();
+            if (clean.isEmpty()) {
+                continue;
+            }
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(clean);
+        }
+        return out.toString();
+    }
+
+    static final class Section {
+        final String kind;
+        final String text;
+        final int tokens;
+
+        Section(String kind, String text) {
+            this.kind = kind;
+            this.text = text;
+            this.tokens = TokenCounter.count(text);
+        }
+    }
+}
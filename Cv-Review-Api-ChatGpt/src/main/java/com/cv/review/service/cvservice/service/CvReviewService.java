@@ -1,25 +1,51 @@
 package com.cv.review.service.cvservice.service;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.cv.review.service.cvservice.cache.DiskReviewStore;
+import com.cv.review.service.cvservice.cache.ReviewCache;
+import com.cv.review.service.cvservice.client.ChatCompletion;
 import com.cv.review.service.cvservice.client.OpenAiClient;
 import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.dto.ReviewStreamEvent;
+import com.cv.review.service.cvservice.util.ChatPrompt;
+import com.cv.review.service.cvservice.util.JsonSchemas;
+import com.cv.review.service.cvservice.util.JsonText;
 import com.cv.review.service.cvservice.util.PromptTemplates;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
 /**
  * Service that orchestrates CV review:
- * - builds the prompt,
+ * - serves repeated requests from the ReviewCache and the DiskReviewStore,
+ * - coalesces identical reviews running at the same time into one call,
+ * - discards CVs with no overlap with the vacancy skills locally (SkillPreFilter),
+ * - picks the model tier of each review from local features (ModelTierRouter),
+ * - summarizes long CVs by chunks (CvSummarizer) or compacts them (CvCompactor),
+ * - builds the prompt (with a response_format JSON schema derived from ReviewResponse when
+ *   cvreview.openai.structured-output.enabled is set),
  * - calls the OpenAI client,
- * - parses the JSON response to ReviewResponse.
+ * - parses the JSON response straight into ReviewResponse, recovering JSON wrapped in
+ *   markdown fences or prose.
  *
  * Returns a Mono<ReviewResponse> (reactive) since OpenAiClient is reactive.
  */
@@ -29,16 +55,101 @@ public class CvReviewService {
     private static final Logger log = LoggerFactory.getLogger(CvReviewService.class);
 
     private final OpenAiClient openAiClient;
-    private final String model;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final int maxCharacters; // límite de caracteres para el CV
+    private final ReviewCache reviewCache;
+    private final DiskReviewStore diskReviewStore;
+    private final ModelTierRouter tierRouter; // elige el modelo de cada revisión
+    private final ObjectMapper objectMapper;
+    private final ObjectReader reviewReader;
+    // Schemas de structured outputs (null si el modo está desactivado)
+    private final ObjectNode reviewSchema;
+    private final ObjectNode multiReviewSchema;
+    // Revisiones en curso por clave, para no repetir llamadas idénticas simultáneas
+    private final Map<String, Mono<ReviewResponse>> inFlight = new ConcurrentHashMap<>();
+    private final CvCompactor compactor; // ajusta CV y vacante al presupuesto de tokens
+    private final VacancyService vacancyService;
+    private final CvSummarizer summarizer; // modo map-reduce para CVs largos
+    private final SkillPreFilter preFilter; // descarta localmente CVs sin competencias de la vacante
+    private final int vacanciesPerCall;
+    private final int maxMultiPromptTokens;
+    private final int maxVacancies;
 
     public CvReviewService(OpenAiClient openAiClient,
-                           @Value("${cvreview.openai.model}") String model,
-                           @Value("${cvreview.max.chars}") int maxCharacters) {
+                           ReviewCache reviewCache,
+                           DiskReviewStore diskReviewStore,
+                           CvCompactor compactor,
+                           VacancyService vacancyService,
+                           CvSummarizer summarizer,
+                           SkillPreFilter preFilter,
+                           ModelTierRouter tierRouter,
+                           ObjectMapper objectMapper,
+                           @Value("${cvreview.openai.structured-output.enabled:true}") boolean structuredOutput,
+                           @Value("${cvreview.multi.vacancies-per-call:5}") int vacanciesPerCall,
+                           @Value("${cvreview.multi.max-prompt-tokens:4000}") int maxMultiPromptTokens,
+                           @Value("${cvreview.multi.max-vacancies:20}") int maxVacancies) {
         this.openAiClient = openAiClient;
-        this.model = model;
-        this.maxCharacters = maxCharacters;
+        this.reviewCache = reviewCache;
+        this.diskReviewStore = diskReviewStore;
+        this.tierRouter = tierRouter;
+        this.compactor = compactor;
+        this.vacancyService = vacancyService;
+        this.summarizer = summarizer;
+        this.preFilter = preFilter;
+        this.vacanciesPerCall = Math.max(1, vacanciesPerCall);
+        this.maxMultiPromptTokens = maxMultiPromptTokens;
+        this.maxVacancies = maxVacancies;
+        this.objectMapper = objectMapper;
+        this.reviewReader = objectMapper.readerFor(ReviewResponse.class);
+        this.reviewSchema = structuredOutput ? reviewSchema(objectMapper) : null;
+        this.multiReviewSchema = structuredOutput ? multiReviewSchema(objectMapper, reviewSchema) : null;
+    }
+
+    /**
+     * Schema of a single review: the properties of ReviewResponse except the raw answer,
+     * which is filled in by the service.
+     */
+    private static ObjectNode reviewSchema(ObjectMapper objectMapper) {
+        return JsonSchemas.forType(objectMapper, ReviewResponse.class, Set.of("rawOpenAiResponse"));
+    }
+
+    /**
+     * Schema of a multi-vacancy answer: {"evaluaciones": [review + "vacante" number, ...]}.
+     */
+    private static ObjectNode multiReviewSchema(ObjectMapper objectMapper, ObjectNode reviewSchema) {
+        ObjectNode evaluation = reviewSchema.deepCopy();
+        ((ObjectNode) evaluation.get("properties")).putObject("vacante").put("type", "integer");
+        evaluation.withArray("required").add("vacante");
+
+        ObjectNode schema = objectMapper.createObjectNode().put("type", "object");
+        schema.putObject("properties").putObject("evaluaciones")
+                .put("type", "array")
+                .set("items", evaluation);
+        schema.putArray("required").add("evaluaciones");
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    /**
+     * Checks the text of the CV against a vacancy of the registry (see VacancyService).
+     * When no vacancy id is given, the inline description is used.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyId          id returned by POST /api/v1/vacancies (optional)
+     * @param vacancyDescription job description, used only if vacancyId is empty
+     * @param cvTruncated        true if the extraction already stopped at its character budget
+     * @param tierHint           model tier asked by the caller (optional, see ModelTierRouter)
+     * @return Mono with ReviewResponse, or a NoSuchElementException error if the id is unknown
+     */
+    public Mono<ReviewResponse> reviewTextForVacancy(String cvText, String vacancyId, String vacancyDescription,
+                                                     boolean cvTruncated, String tierHint) {
+        return Mono.defer(() -> reviewText(cvText, vacancyService.resolve(vacancyId, vacancyDescription), cvTruncated, tierHint));
+    }
+
+    /**
+     * Checks the text of the CV against a vacancy of the registry, with the tier chosen by the rules.
+     */
+    public Mono<ReviewResponse> reviewTextForVacancy(String cvText, String vacancyId, String vacancyDescription,
+                                                     boolean cvTruncated) {
+        return reviewTextForVacancy(cvText, vacancyId, vacancyDescription, cvTruncated, null);
     }
 
     /**
@@ -49,69 +160,482 @@ public class CvReviewService {
      * @return Mono with ReviewResponse (parsed or fallback)
      */
     public Mono<ReviewResponse> reviewText(String cvText, String vacancyDescription) {
+        return reviewText(cvText, vacancyDescription, false);
+    }
 
-        boolean truncated = false;
+    /**
+     * Checks the text of the CV against the job description.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyDescription job description
+     * @param cvTruncated        true if the extraction already stopped at its character budget
+     * @return Mono with ReviewResponse (parsed or fallback)
+     */
+    public Mono<ReviewResponse> reviewText(String cvText, String vacancyDescription, boolean cvTruncated) {
+        return reviewText(cvText, vacancyDescription, cvTruncated, null);
+    }
 
-        if (cvText == null) cvText = "";
+    /**
+     * Checks the text of the CV against the job description.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyDescription job description
+     * @param cvTruncated        true if the extraction already stopped at its character budget
+     * @param tierHint           model tier asked by the caller (optional, see ModelTierRouter)
+     * @return Mono with ReviewResponse (parsed or fallback)
+     */
+    public Mono<ReviewResponse> reviewText(String cvText, String vacancyDescription, boolean cvTruncated, String tierHint) {
 
+        String cv = cvText == null ? "" : cvText;
         // protect vacancyDescription from null
-        if (vacancyDescription == null) vacancyDescription = "";
-        
-        if (cvText.length() > maxCharacters) {
-            log.warn("The CV text was truncated to {} characters to comply with the limit.", maxCharacters);
-            cvText = cvText.substring(0, maxCharacters);
-            truncated = true;
+        String vacancy = vacancyDescription == null ? "" : vacancyDescription;
+
+        return Mono.defer(() -> {
+            // The tier is part of the cache key; its skill score is reused by the pre-filter
+            ModelTierRouter.Route route = tierRouter.route(cv, vacancy, tierHint);
+            ModelTierRouter.Tier tier = route.tier();
+            String cacheKey = reviewCache.keyFor(cv, vacancy, tier.model());
+            ReviewResponse cached = reviewCache.get(cacheKey);
+            if (cached != null) {
+                log.debug("Review served from cache (key {})", cacheKey);
+                return Mono.just(cached);
+            }
+
+            Mono<ReviewResponse> fromOpenAi = Mono.defer(() -> {
+                        ReviewResponse screened = preFilter.screen(cv, vacancy, route.score());
+                        if (screened != null) {
+                            return Mono.just(screened);
+                        }
+                        return preparePrompt(cv, vacancy, cvTruncated).flatMap(prepared -> send(tier, prepared, cacheKey));
+                    })
+                    .doOnError(err -> log.error("Error processing reviewText: {}", err.getMessage(), err));
+
+            return coalesce(cacheKey, fromStore(cacheKey).switchIfEmpty(fromOpenAi));
+        });
+    }
+
+    /**
+     * Single flight: concurrent calls for the same review (same key, so same prompt and model)
+     * share one in-flight Mono instead of each calling OpenAI. The shared call is cancelled
+     * only when every subscriber has cancelled, and is forgotten once it terminates; a caller
+     * that arrives in between finds the result in the cache. The shared call is looked up or
+     * registered on subscription, so a Mono that is never subscribed leaves nothing behind.
+     */
+    private Mono<ReviewResponse> coalesce(String cacheKey, Mono<ReviewResponse> review) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<ReviewResponse>> created = new AtomicReference<>();
+            Mono<ReviewResponse> inFlight = this.inFlight.computeIfAbsent(cacheKey, key -> {
+                created.set(Mono.defer(() -> Mono.justOrEmpty(reviewCache.get(key)))
+                        .switchIfEmpty(review)
+                        .doFinally(signal -> this.inFlight.remove(key, created.get()))
+                        .flux()
+                        .publish()
+                        .refCount(1)
+                        .next());
+                return created.get();
+            });
+            if (inFlight != created.get()) {
+                log.debug("Joining the in-flight review (key {})", cacheKey);
+            }
+            return inFlight;
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #reviewText}: emits the model output as it is generated
+     * (DELTA events) and, at the end, the assembled response parsed into a ReviewResponse
+     * (RESULT event). Cached results are emitted directly as a single RESULT event.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyDescription job description
+     * @param cvTruncated        true if the extraction already stopped at its character budget
+     * @return Flux of ReviewStreamEvent, always ending with a RESULT event on success
+     */
+    public Flux<ReviewStreamEvent> reviewTextStream(String cvText, String vacancyDescription, boolean cvTruncated) {
+        String cv = cvText == null ? "" : cvText;
+        String vacancy = vacancyDescription == null ? "" : vacancyDescription;
+
+        return Flux.defer(() -> {
+            ModelTierRouter.Route route = tierRouter.route(cv, vacancy, null);
+            ModelTierRouter.Tier tier = route.tier();
+            String cacheKey = reviewCache.keyFor(cv, vacancy, tier.model());
+            ReviewResponse cached = reviewCache.get(cacheKey);
+            if (cached != null) {
+                log.debug("Review served from cache (key {})", cacheKey);
+                return Flux.just(ReviewStreamEvent.result(cached));
+            }
+
+            Flux<ReviewStreamEvent> fromOpenAi = Flux.defer(() -> {
+                        ReviewResponse screened = preFilter.screen(cv, vacancy, route.score());
+                        if (screened != null) {
+                            return Flux.just(ReviewStreamEvent.result(screened));
+                        }
+                        return preparePrompt(cv, vacancy, cvTruncated).flatMapMany(prepared -> {
+                            StringBuilder assembled = new StringBuilder();
+                            long start = System.nanoTime();
+                            tierRouter.recordRequest(tier);
+                            // Usage is not reported in the stream: only the latency is recorded
+                            return openAiClient.streamPrompt(tier.model(), prepared.prompt())
+                                    .doOnComplete(() -> tierRouter.record(tier, Duration.ofNanos(System.nanoTime() - start), -1))
+                                    .doOnNext(assembled::append)
+                                    .map(ReviewStreamEvent::delta)
+                                    .concatWith(Mono.fromCallable(() ->
+                                            ReviewStreamEvent.result(parseResponse(assembled.toString(), prepared.truncated(), cacheKey))));
+                        });
+                    })
+                    .doOnError(err -> log.error("Error processing reviewTextStream: {}", err.getMessage(), err));
+
+            return fromStore(cacheKey).map(ReviewStreamEvent::result).flux().switchIfEmpty(fromOpenAi);
+        });
+    }
+
+    /**
+     * Checks one CV against several vacancies. The CV is sent once with all the vacancies and
+     * the model answers with one evaluation per vacancy, so the CV tokens and the round trip
+     * are paid once instead of once per vacancy.
+     *
+     * Vacancies already reviewed for this CV are served from the cache, and those discarded by
+     * the SkillPreFilter get its local "no". The rest are split by model tier and grouped
+     * into calls of at most cvreview.multi.vacancies-per-call vacancies and
+     * cvreview.multi.max-prompt-tokens prompt tokens; groups run concurrently. A group of one
+     * vacancy, and any vacancy missing from a multi-vacancy answer, is reviewed with the
+     * single-vacancy prompt.
+     *
+     * @param cvText       text extracted from the CV
+     * @param vacancies    job descriptions
+     * @param cvTruncated  true if the extraction already stopped at its character budget
+     * @return Mono with one ReviewResponse per vacancy, in the same order, or an
+     *         IllegalArgumentException error if there are no vacancies or more than cvreview.multi.max-vacancies
+     */
+    public Mono<List<ReviewResponse>> reviewTextMulti(String cvText, List<String> vacancies, boolean cvTruncated) {
+        if (vacancies.isEmpty() || vacancies.size() > maxVacancies) {
+            return Mono.error(new IllegalArgumentException(
+                    "Between 1 and " + maxVacancies + " vacancies can be reviewed at once."));
         }
+        String cv = cvText == null ? "" : cvText;
+        List<String> vacancyTexts = vacancies.stream().map(v -> v == null ? "" : v).toList();
+        return Mono.defer(() -> reviewMulti(cv, vacancyTexts, cvTruncated));
+    }
 
-        if (vacancyDescription.length() > maxCharacters) {
-            log.warn("The job description was truncated to {} characters to comply with the limit.", maxCharacters);
-            vacancyDescription = vacancyDescription.substring(0, maxCharacters);
-            truncated = true;
-            
+    private Mono<List<ReviewResponse>> reviewMulti(String cv, List<String> vacancyTexts, boolean cvTruncated) {
+        List<ModelTierRouter.Route> routes = vacancyTexts.stream().map(v -> tierRouter.route(cv, v, null)).toList();
+        List<ModelTierRouter.Tier> tiers = routes.stream().map(ModelTierRouter.Route::tier).toList();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < vacancyTexts.size(); i++) {
+            keys.add(reviewCache.keyFor(cv, vacancyTexts.get(i), tiers.get(i).model()));
         }
+        ReviewResponse[] results = new ReviewResponse[vacancyTexts.size()];
 
-        String prompt = PromptTemplates.buildCvPrompt(cvText, vacancyDescription);
-        log.debug("Prompt length: {}", prompt.length());
+        Mono<Void> cached = Flux.range(0, keys.size())
+                .concatMap(i -> Mono.justOrEmpty(reviewCache.get(keys.get(i)))
+                        .switchIfEmpty(fromStore(keys.get(i)))
+                        .doOnNext(review -> results[i] = review))
+                .then();
 
-        boolean finalTruncated = truncated;
+        Mono<Void> missing = Mono.defer(() -> {
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = preFilter.screen(cv, vacancyTexts.get(i), routes.get(i).score());
+                }
+                if (results[i] == null) {
+                    pending.add(i);
+                }
+            }
+            if (pending.isEmpty()) {
+                return Mono.empty();
+            }
+            return prepareCv(cv).flatMap(compactedCv -> {
+                Map<Integer, CvCompactor.Compacted> compacted = new HashMap<>();
+                pending.forEach(i -> compacted.put(i, compactVacancy(vacancyTexts.get(i))));
+                // Una llamada solo agrupa vacantes del mismo tier
+                Map<ModelTierRouter.Tier, List<Integer>> byTier = new LinkedHashMap<>();
+                pending.forEach(i -> byTier.computeIfAbsent(tiers.get(i), tier -> new ArrayList<>()).add(i));
+                return Flux.fromIterable(byTier.entrySet())
+                        .flatMap(entry -> Flux.fromIterable(groupVacancies(compactedCv, entry.getValue(), compacted))
+                                .flatMap(group -> reviewGroup(entry.getKey(), compactedCv, group, compacted, keys, cvTruncated)))
+                        .doOnNext(reviewed -> reviewed.forEach((i, review) -> results[i] = review))
+                        .then();
+            });
+        });
 
-        return openAiClient.sendPrompt(model, prompt)
-                .map(openAiRaw -> {
-                    // We attempt to parse the text returned by OpenAI as JSON to ReviewResponse.
-                    try {
-                        ReviewResponse parsed = objectMapper.readValue(openAiRaw, ReviewResponse.class);
-                        // Guardamos raw por auditoría/debug
-                        parsed.setRawOpenAiResponse(openAiRaw);
+        return cached.then(missing)
+                .then(Mono.fromSupplier(() -> List.of(results)))
+                .doOnError(err -> log.error("Error processing reviewTextMulti: {}", err.getMessage(), err));
+    }
 
-                        if (finalTruncated) {
-                            parsed.setResumen(parsed.getResumen() 
-                            + " (Note: The CV or job description has been truncated due to character limits.)");
-                        }
-                        return parsed;
-                    } catch (Exception e) {
-                        // If parsing fails, we return an object with fallback and save the raw data.
-                        log.warn("Unable to parse OpenAI's response as JSON: {}. Error: {}", openAiRaw, e.getMessage());
-                        ReviewResponse fallback = new ReviewResponse();
-                        fallback.setApto("no");
-                        fallback.setPuntuacion(0);
-                        String resumenMsg = "The response from OpenAI could not be parsed.";
-                        if (finalTruncated) {
-                            resumenMsg += "In addition, the text was truncated to " + maxCharacters + " characters.";
+    /**
+     * Greedily packs the vacancies into groups that fit the per-call limits.
+     */
+    private List<List<Integer>> groupVacancies(CvCompactor.Compacted cv, List<Integer> pending,
+                                               Map<Integer, CvCompactor.Compacted> vacancies) {
+        int baseTokens = PromptTemplates.MULTI_INSTRUCTIONS_TOKENS + cv.tokens();
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int tokens = baseTokens;
+        for (int i : pending) {
+            int vacancyTokens = PromptTemplates.MULTI_VACANCY_LABEL_TOKENS + vacancies.get(i).tokens();
+            if (!current.isEmpty() && (current.size() >= vacanciesPerCall || tokens + vacancyTokens > maxMultiPromptTokens)) {
+                groups.add(current);
+                current = new ArrayList<>();
+                tokens = baseTokens;
+            }
+            current.add(i);
+            tokens += vacancyTokens;
+        }
+        groups.add(current);
+        return groups;
+    }
+
+    /**
+     * Reviews one group of vacancies with a single call.
+     *
+     * @return Mono with the review of each vacancy of the group, by vacancy index
+     */
+    private Mono<Map<Integer, ReviewResponse>> reviewGroup(ModelTierRouter.Tier tier, CvCompactor.Compacted cv, List<Integer> group,
+                                                          Map<Integer, CvCompactor.Compacted> vacancies,
+                                                          List<String> keys, boolean cvTruncated) {
+        if (group.size() == 1) {
+            int i = group.get(0);
+            return send(tier, buildPrompt(cv, vacancies.get(i), cvTruncated), keys.get(i)).map(review -> Map.of(i, review));
+        }
+
+        List<String> texts = group.stream().map(i -> vacancies.get(i).text()).toList();
+        ChatPrompt prompt = PromptTemplates.buildMultiVacancyPrompt(cv.text(), texts);
+        if (multiReviewSchema != null) {
+            prompt = prompt.withResponseSchema("cv_reviews", multiReviewSchema);
+        }
+        log.debug("Multi-vacancy prompt for {} vacancies, length: {}", group.size(), prompt.length());
+
+        return complete(tier, prompt)
+                .flatMap(raw -> {
+                    // Fallback reviews complete concurrently
+                    Map<Integer, ReviewResponse> reviewed = new ConcurrentHashMap<>();
+                    List<JsonNode> evaluations = parseEvaluations(raw, group.size());
+                    for (int j = 0; j < group.size(); j++) {
+                        int i = group.get(j);
+                        boolean truncated = cvTruncated || cv.truncated() || vacancies.get(i).truncated();
+                        ReviewResponse review = toReview(evaluations.get(j), truncated, keys.get(i));
+                        if (review != null) {
+                            reviewed.put(i, review);
                         }
-                        fallback.setResumen(resumenMsg);
-                        fallback.setRawOpenAiResponse(openAiRaw);
-                        return fallback;
                     }
-                })
-                .retryWhen(
-                    Retry.backoff(3, Duration.ofSeconds(2))
-                        .filter(err -> {
-                            String m = err.getMessage() == null ? "" : err.getMessage();
-                            return m.contains("429") || m.contains("Too Many Requests");
-                        })
-                        .onRetryExhaustedThrow((spec, signal) ->
-                            new RuntimeException("OpenAI: Too many requests, please try again later."))
-                )
-                .doOnError(err -> log.error("Error processing reviewText: {}", err.getMessage(), err));
+
+                    // Vacancies the model skipped or answered badly are reviewed one by one
+                    return Flux.fromIterable(group)
+                            .filter(i -> !reviewed.containsKey(i))
+                            .doOnNext(i -> log.warn("Vacancy {} missing from the multi-vacancy answer, reviewing it alone", i))
+                            .flatMap(i -> send(tier, buildPrompt(cv, vacancies.get(i), cvTruncated), keys.get(i))
+                                    .doOnNext(review -> reviewed.put(i, review)))
+                            .then(Mono.fromSupplier(() -> reviewed));
+                });
+    }
+
+    /**
+     * Prepares a review to be run through the Batch API (BatchReviewService): the cache, the
+     * disk store and the SkillPreFilter are checked as in {@link #reviewText}, and only the
+     * reviews they cannot answer get a prompt.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyDescription job description
+     * @param cvTruncated        true if the extraction already stopped at its character budget
+     * @return Mono with the entry: its review if already known, otherwise the model and prompt to send
+     */
+    public Mono<BatchEntry> prepareBatchEntry(String cvText, String vacancyDescription, boolean cvTruncated) {
+        String cv = cvText == null ? "" : cvText;
+        String vacancy = vacancyDescription == null ? "" : vacancyDescription;
+        return Mono.defer(() -> {
+            ModelTierRouter.Route route = tierRouter.route(cv, vacancy, null);
+            ModelTierRouter.Tier tier = route.tier();
+            String cacheKey = reviewCache.keyFor(cv, vacancy, tier.model());
+
+            Mono<BatchEntry> known = Mono.justOrEmpty(reviewCache.get(cacheKey))
+                    .switchIfEmpty(fromStore(cacheKey))
+                    .switchIfEmpty(Mono.fromSupplier(() -> preFilter.screen(cv, vacancy, route.score())))
+                    .map(review -> new BatchEntry(cacheKey, tier.model(), null, false, review));
+            // The entry is sent to the model as part of the batch
+            return known.switchIfEmpty(preparePrompt(cv, vacancy, cvTruncated)
+                    .doOnNext(prepared -> tierRouter.recordRequest(tier))
+                    .map(prepared -> new BatchEntry(cacheKey, tier.model(), prepared.prompt(), prepared.truncated(), null)));
+        });
+    }
+
+    /**
+     * Parses the answer of a batch request like a synchronous one; successfully parsed
+     * reviews are cached.
+     *
+     * @param cacheKey  key of the BatchEntry
+     * @param truncated truncated flag of the BatchEntry
+     * @param openAiRaw content of the first choice of the batch response
+     */
+    public ReviewResponse completeBatchEntry(String cacheKey, boolean truncated, String openAiRaw) {
+        return parseResponse(openAiRaw, truncated, cacheKey);
+    }
+
+    /**
+     * Extracts the evaluations of a multi-vacancy answer ({"evaluaciones": [...]}), placed by
+     * their "vacante" number (1-based) or, if absent, by position. Missing ones are null.
+     */
+    private List<JsonNode> parseEvaluations(String raw, int expected) {
+        JsonNode[] evaluations = new JsonNode[expected];
+        try {
+            JsonNode root = JsonText.readLeniently(raw, objectMapper.readerFor(JsonNode.class));
+            JsonNode array = root.isArray() ? root : root.path("evaluaciones");
+            for (int j = 0; j < array.size(); j++) {
+                JsonNode evaluation = array.get(j);
+                int position = evaluation.path("vacante").asInt(j + 1) - 1;
+                if (position >= 0 && position < expected && evaluation.isObject()) {
+                    evaluations[position] = evaluation;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Unable to parse the multi-vacancy response as JSON: {}. Error: {}", raw, e.getMessage());
+        }
+        return Arrays.asList(evaluations);
+    }
+
+    private ReviewResponse toReview(JsonNode evaluation, boolean truncated, String cacheKey) {
+        if (evaluation == null || !evaluation.hasNonNull("apto")) {
+            return null;
+        }
+        try {
+            ObjectNode fields = ((ObjectNode) evaluation).deepCopy();
+            fields.remove("vacante");
+            ReviewResponse parsed = objectMapper.treeToValue(fields, ReviewResponse.class);
+            return accept(parsed, objectMapper.writeValueAsString(fields), truncated, cacheKey);
+        } catch (Exception e) {
+            log.warn("Unable to map an evaluation of the multi-vacancy response: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sends a single-vacancy prompt and parses the answer.
+     */
+    private Mono<ReviewResponse> send(ModelTierRouter.Tier tier, PreparedPrompt prepared, String cacheKey) {
+        return complete(tier, prepared.prompt())
+                .map(openAiRaw -> parseResponse(openAiRaw, prepared.truncated(), cacheKey));
+    }
+
+    /**
+     * Calls the model of the tier and records the latency and tokens of the call.
+     *
+     * @return Mono with the content of the answer
+     */
+    private Mono<String> complete(ModelTierRouter.Tier tier, ChatPrompt prompt) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            tierRouter.recordRequest(tier);
+            return openAiClient.complete(tier.model(), prompt)
+                    .doOnNext(completion -> tierRouter.record(tier, Duration.ofNanos(System.nanoTime() - start),
+                            completion.totalTokens()))
+                    .map(ChatCompletion::content);
+        });
+    }
+
+    /**
+     * Second level: results persisted by a previous run of the service.
+     */
+    private Mono<ReviewResponse> fromStore(String cacheKey) {
+        return diskReviewStore.get(cacheKey)
+                .doOnNext(stored -> {
+                    log.debug("Review served from disk store (key {})", cacheKey);
+                    reviewCache.put(cacheKey, stored);
+                });
+    }
+
+    /**
+     * Builds the prompt once the CV fits.
+     */
+    private Mono<PreparedPrompt> preparePrompt(String cvText, String vacancyDescription, boolean cvTruncated) {
+        return prepareCv(cvText).map(cv -> buildPrompt(cv, compactVacancy(vacancyDescription), cvTruncated));
+    }
+
+    /**
+     * Fits the CV into its token budget: long CVs are first summarized by chunks
+     * (CvSummarizer), the rest go straight to compaction. Nothing is counted or summarized
+     * until the Mono is subscribed, so callers can assemble it as a fallback for free.
+     */
+    private Mono<CvCompactor.Compacted> prepareCv(String cvText) {
+        Mono<String> text = Mono.defer(() -> summarizer.isLong(cvText) ? summarizer.summarize(cvText) : Mono.just(cvText));
+        return text.map(cv -> {
+            CvCompactor.Compacted compacted = compactor.compactCv(cv);
+            if (compacted.truncated()) {
+                log.warn("The CV text was compacted to {} tokens to comply with the budget.", compacted.tokens());
+            }
+            return compacted;
+        });
+    }
+
+    private CvCompactor.Compacted compactVacancy(String vacancyDescription) {
+        CvCompactor.Compacted vacancy = compactor.compactVacancy(vacancyDescription);
+        if (vacancy.truncated()) {
+            log.warn("The job description was truncated to {} tokens to comply with the budget.", vacancy.tokens());
+        }
+        return vacancy;
+    }
+
+    private PreparedPrompt buildPrompt(CvCompactor.Compacted cv, CvCompactor.Compacted vacancy, boolean cvTruncated) {
+        ChatPrompt prompt = PromptTemplates.buildCvChatPrompt(cv.text(), vacancy.text());
+        if (reviewSchema != null) {
+            prompt = prompt.withResponseSchema("cv_review", reviewSchema);
+        }
+        log.debug("Prompt length: {}", prompt.length());
+        return new PreparedPrompt(prompt, cvTruncated || cv.truncated() || vacancy.truncated());
+    }
+
+    /**
+     * We attempt to parse the text returned by OpenAI as JSON to ReviewResponse.
+     * Successfully parsed results are cached; fallbacks are not, so they can be retried.
+     */
+    private ReviewResponse parseResponse(String openAiRaw, boolean truncated, String cacheKey) {
+        try {
+            ReviewResponse parsed = JsonText.readLeniently(openAiRaw, reviewReader);
+            return accept(parsed, openAiRaw, truncated, cacheKey);
+        } catch (Exception e) {
+            // If parsing fails, we return an object with fallback and save the raw data.
+            log.warn("Unable to parse OpenAI's response as JSON: {}. Error: {}", openAiRaw, e.getMessage());
+            ReviewResponse fallback = new ReviewResponse();
+            fallback.setApto("no");
+            fallback.setPuntuacion(0);
+            String resumenMsg = "The response from OpenAI could not be parsed.";
+            if (truncated) {
+                resumenMsg += " In addition, the text was shortened to " + compactor.getCvTokenBudget() + " tokens.";
+            }
+            fallback.setResumen(resumenMsg);
+            fallback.setRawOpenAiResponse(openAiRaw);
+            return fallback;
+        }
+    }
+
+    /**
+     * Completes a parsed review and stores it in the cache and the disk store.
+     */
+    private ReviewResponse accept(ReviewResponse parsed, String openAiRaw, boolean truncated, String cacheKey) {
+        // Guardamos raw por auditoría/debug
+        parsed.setRawOpenAiResponse(openAiRaw);
+
+        if (truncated) {
+            parsed.setResumen(parsed.getResumen() 
+            + " (Note: The CV or job description has been shortened to fit the token budget.)");
+        }
+        reviewCache.put(cacheKey, parsed);
+        diskReviewStore.put(cacheKey, parsed);
+        return parsed;
+    }
+
+    /**
+     * Review prepared for the Batch API.
+     *
+     * @param cacheKey  key the result is cached under
+     * @param model     model of the tier chosen for the review
+     * @param prompt    prompt to send, or null if the review is already known
+     * @param truncated true if the CV or the vacancy was shortened to fit the budget
+     * @param review    review already known (cache, disk store or pre-filter), or null
+     */
+    public record BatchEntry(String cacheKey, String model, ChatPrompt prompt, boolean truncated, ReviewResponse review) {
+    }
+
+    private record PreparedPrompt(ChatPrompt prompt, boolean truncated) {
     }
 }
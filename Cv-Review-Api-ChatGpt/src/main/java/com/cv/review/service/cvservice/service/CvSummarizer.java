@@ -0,0 +1,151 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.cache.BoundedCache;
+import com.cv.review.service.cvservice.client.OpenAiClient;
+import com.cv.review.service.cvservice.util.ContentHash;
+import com.cv.review.service.cvservice.util.PromptTemplates;
+import com.cv.review.service.cvservice.util.TokenCounter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Long CV mode (map-reduce): CVs above cvreview.long-cv.threshold-tokens are not compacted
+ * down to the CV budget, which would drop most of a senior candidate's career. Instead:
+ *
+ * - map: the text is split into chunks of cvreview.long-cv.chunk-tokens (on line boundaries)
+ *   and every chunk is summarized by the model, at most cvreview.long-cv.concurrency at a
+ *   time, so latency grows with the slowest chunk rather than with the CV length;
+ * - reduce: the summaries are merged in their original order and CvReviewService runs the
+ *   usual evaluation prompt over them.
+ *
+ * Each summary is asked to fit in its share of the CV token budget. Summaries do not depend
+ * on the vacancy, so they are cached by chunk and reused when the same CV is scored against
+ * several vacancies.
+ */
+@Component
+public class CvSummarizer {
+
+    private static final Logger log = LoggerFactory.getLogger(CvSummarizer.class);
+
+    // Por debajo de esto un resumen deja de ser útil
+    private static final int MIN_SUMMARY_TOKENS = 80;
+
+    private final OpenAiClient openAiClient;
+    private final String model;
+    private final boolean enabled;
+    private final int thresholdTokens;
+    private final int chunkTokens;
+    private final int concurrency;
+    private final int cvTokenBudget;
+    private final BoundedCache<String, String> summaries;
+
+    public CvSummarizer(OpenAiClient openAiClient,
+                        @Value("${cvreview.openai.model}") String model,
+                        @Value("${cvreview.long-cv.enabled:true}") boolean enabled,
+                        @Value("${cvreview.long-cv.threshold-tokens:1200}") int thresholdTokens,
+                        @Value("${cvreview.long-cv.chunk-tokens:2000}") int chunkTokens,
+                        @Value("${cvreview.long-cv.concurrency:4}") int concurrency,
+                        @Value("${cvreview.compaction.cv-token-budget:600}") int cvTokenBudget,
+                        @Value("${cvreview.long-cv.summary-cache.max-entries:1000}") int cacheEntries,
+                        @Value("${cvreview.cache.ttl-ms:3600000}") long cacheTtlMillis) {
+        this.openAiClient = openAiClient;
+        this.model = model;
+        this.enabled = enabled;
+        this.thresholdTokens = thresholdTokens;
+        this.chunkTokens = Math.max(1, chunkTokens);
+        this.concurrency = Math.max(1, concurrency);
+        this.cvTokenBudget = cvTokenBudget;
+        this.summaries = new BoundedCache<>(cacheEntries, cacheTtlMillis);
+    }
+
+    /**
+     * @return true if the CV is long enough to be summarized by chunks
+     */
+    public boolean isLong(String cvText) {
+        return enabled && TokenCounter.count(cvText) > thresholdTokens;
+    }
+
+    /**
+     * Summarizes every chunk of the CV concurrently and merges the summaries in order.
+     *
+     * @param cvText text extracted from the CV
+     * @return Mono with the merged summaries
+     */
+    public Mono<String> summarize(String cvText) {
+        List<String> chunks = split(cvText, chunkTokens);
+        if (chunks.isEmpty()) {
+            return Mono.just("");
+        }
+        int summaryTokens = Math.max(MIN_SUMMARY_TOKENS, cvTokenBudget / chunks.size());
+        log.info("Long CV: summarizing {} chunks of up to {} tokens ({} at a time)",
+                chunks.size(), chunkTokens, concurrency);
+
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            indexes.add(i);
+        }
+        // flatMapSequential runs the chunks concurrently but emits the summaries in CV order
+        return Flux.fromIterable(indexes)
+                .flatMapSequential(i -> summarizeChunk(chunks.get(i), i + 1, chunks.size(), summaryTokens), concurrency)
+                .collectList()
+                .map(parts -> String.join("\n\n", parts));
+    }
+
+    private Mono<String> summarizeChunk(String chunk, int part, int totalParts, int summaryTokens) {
+        String key = ContentHash.sha256Hex(chunk, String.valueOf(summaryTokens), model, PromptTemplates.VERSION);
+        String cached = summaries.get(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return openAiClient.sendPrompt(model, PromptTemplates.buildCvChunkSummaryPrompt(chunk, part, totalParts, summaryTokens))
+                .map(String::trim)
+                .doOnNext(summary -> summaries.put(key, summary));
+    }
+
+    /**
+     * Splits the text into chunks of at most maxTokens tokens, cutting between lines;
+     * a single line longer than that is cut by tokens.
+     */
+    static List<String> split(String text, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+
+        for (String line : text.split("\n")) {
+            int lineTokens = TokenCounter.count(line) + 1;
+            if (currentTokens + lineTokens > maxTokens && current.length() > 0) {
+                chunks.add(current.toString().strip());
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            String rest = line;
+            while (TokenCounter.count(rest) > maxTokens) {
+                // A piece can take one token more than its prefix once tokenized on its own
+                int budget = maxTokens;
+                String piece = TokenCounter.truncate(rest, budget);
+                while (budget > 1 && TokenCounter.count(piece.strip()) > maxTokens) {
+                    piece = TokenCounter.truncate(rest, --budget);
+                }
+                if (piece.isEmpty()) {
+                    piece = rest.substring(0, 1);
+                }
+                chunks.add(piece.strip());
+                rest = rest.substring(piece.length());
+            }
+            current.append(rest).append('\n');
+            currentTokens += TokenCounter.count(rest) + 1;
+        }
+        if (!current.toString().isBlank()) {
+            chunks.add(current.toString().strip());
+        }
+        return chunks;
+    }
+}
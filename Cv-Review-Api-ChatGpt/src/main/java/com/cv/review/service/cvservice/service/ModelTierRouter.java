@@ -0,0 +1,331 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.util.TokenCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Chooses the model tier of each review from cheap local features, so that easy cases run on
+ * the fastest model and borderline ones on a stronger one.
+ *
+ * Tiers are listed in cvreview.tiering.tiers as "name:model" pairs. The features of a request
+ * are the CV length in tokens, the language of the CV and of the vacancy, and the skill overlap
+ * computed by the SkillPreFilter taxonomy. Rules (cvreview.tiering.rules) are evaluated in
+ * order and the first match decides; each rule is "condition&condition...:tier", a condition
+ * being feature, operator (&lt; &lt;= &gt; &gt;= = !=) and value, for example
+ * "overlap&gt;=0.75:fast" or "vacancySkills&gt;=3&amp;overlap&lt;0.75:strong". Features:
+ * tokens, overlap, vacancySkills (numbers, any operator), language (of the CV: es, en or
+ * unknown) and languageMismatch (true/false), which only take = and !=. Invalid rules fail at
+ * startup. Without a match the default tier is used. A caller hint naming a known tier
+ * overrides the rules.
+ *
+ * Only the features the rules use are computed. The skill score is handed back with the tier,
+ * so the SkillPreFilter does not scan the texts again.
+ *
+ * With tiering disabled every request goes to cvreview.openai.model. Calls, latency and tokens
+ * are recorded per tier (cvreview.tier.*) for the calls actually sent to the model.
+ */
+@Component
+public class ModelTierRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelTierRouter.class);
+
+    private static final Pattern CONDITION = Pattern.compile("\\s*(\\w+)\\s*(<=|>=|!=|<|>|=)\\s*([\\w.\\-]+)\\s*");
+    private static final Set<String> NUMERIC_FEATURES = Set.of("tokens", "overlap", "vacancySkills");
+    private static final Map<String, Set<String>> TEXT_FEATURES = Map.of(
+            "language", Set.of("es", "en", "unknown"),
+            "languageMismatch", Set.of("true", "false"));
+    private static final Pattern WORD = Pattern.compile("\\p{L}+");
+    private static final Set<String> SPANISH = Set.of("de", "la", "que", "el", "y", "los", "las", "del",
+            "con", "por", "para", "una", "experiencia", "años", "conocimientos", "desarrollo");
+    private static final Set<String> ENGLISH = Set.of("the", "and", "of", "to", "in", "with", "for", "on",
+            "experience", "years", "skills", "development", "knowledge");
+    // Frequent words needed to guess a language; below it a short text (a title, a skill list) is "unknown"
+    private static final int MIN_LANGUAGE_WORDS = 6;
+
+    /**
+     * Model tier.
+     *
+     * @param name  name used in the rules, hints and metrics
+     * @param model model sent to OpenAI
+     */
+    public record Tier(String name, String model) {
+    }
+
+    /**
+     * Routing decision.
+     *
+     * @param tier  tier of the review
+     * @param score skill score of the CV against the vacancy, or null if the rules did not need it
+     */
+    public record Route(Tier tier, SkillPreFilter.PreScore score) {
+    }
+
+    /**
+     * Local features of a review request; the ones no rule uses are not computed (tokens -1,
+     * languages "unknown", score null).
+     */
+    public record Features(int tokens, String language, String vacancyLanguage, SkillPreFilter.PreScore score) {
+
+        public double overlap() {
+            return score == null ? 1.0 : score.overlap();
+        }
+
+        public int vacancySkills() {
+            return score == null ? 0 : score.vacancySkills().size();
+        }
+
+        public boolean languageMismatch() {
+            return !"unknown".equals(language) && !"unknown".equals(vacancyLanguage) && !language.equals(vacancyLanguage);
+        }
+    }
+
+    /**
+     * Rule condition; number is the parsed value of numeric features.
+     */
+    private record Condition(String feature, String operator, String value, double number) {
+    }
+
+    private record Rule(List<Condition> conditions, Tier tier) {
+    }
+
+    private record TierMeters(Counter requests, Timer latency, DistributionSummary tokens) {
+    }
+
+    private final boolean enabled;
+    private final Map<String, Tier> tiers = new LinkedHashMap<>();
+    private final Tier defaultTier;
+    private final List<Rule> rules = new ArrayList<>();
+    private final SkillPreFilter preFilter;
+    private final Map<String, TierMeters> meters = new LinkedHashMap<>();
+    // Features used by the rules
+    private final Set<String> usedFeatures = new HashSet<>();
+
+    public ModelTierRouter(@Value("${cvreview.tiering.enabled:false}") boolean enabled,
+                           @Value("${cvreview.tiering.tiers:}") String tiers,
+                           @Value("${cvreview.tiering.default-tier:}") String defaultTier,
+                           @Value("${cvreview.tiering.rules:}") String rules,
+                           @Value("${cvreview.openai.model}") String model,
+                           SkillPreFilter preFilter,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.preFilter = preFilter;
+        if (enabled) {
+            for (String entry : tiers.split(",")) {
+                String[] fields = entry.split(":", 2);
+                if (fields.length == 2 && !fields[0].isBlank() && !fields[1].isBlank()) {
+                    this.tiers.put(fields[0].trim(), new Tier(fields[0].trim(), fields[1].trim()));
+                }
+            }
+        }
+        if (this.tiers.isEmpty()) {
+            this.tiers.put("default", new Tier("default", model));
+        }
+        this.defaultTier = this.tiers.getOrDefault(defaultTier.trim(), this.tiers.values().iterator().next());
+        if (enabled) {
+            parseRules(rules);
+            log.info("Model tiering enabled: tiers {}, default {}, {} rules", this.tiers.values(), this.defaultTier.name(),
+                    this.rules.size());
+        }
+
+        for (Tier tier : this.tiers.values()) {
+            meters.put(tier.name(), new TierMeters(
+                    Counter.builder("cvreview.tier.requests")
+                            .description("OpenAI calls sent to the tier")
+                            .tag("tier", tier.name())
+                            .register(meterRegistry),
+                    Timer.builder("cvreview.tier.latency")
+                            .description("Duration of the OpenAI calls of the tier")
+                            .tag("tier", tier.name())
+                            .publishPercentiles(0.5, 0.95)
+                            .register(meterRegistry),
+                    DistributionSummary.builder("cvreview.tier.tokens")
+                            .description("Tokens billed per OpenAI call of the tier")
+                            .baseUnit("tokens")
+                            .tag("tier", tier.name())
+                            .register(meterRegistry)));
+        }
+    }
+
+    /**
+     * Chooses the tier of a review. Nothing is recorded: the caller records the call with
+     * {@link #recordRequest} once it is actually sent.
+     *
+     * @param cvText             text of the CV
+     * @param vacancyDescription job description
+     * @param hint               tier asked by the caller (optional, ignored if unknown)
+     */
+    public Route route(String cvText, String vacancyDescription, String hint) {
+        if (!enabled) {
+            return new Route(defaultTier, null);
+        }
+        if (hint != null && tiers.containsKey(hint.trim())) {
+            return new Route(tiers.get(hint.trim()), null);
+        }
+        Features features = features(cvText, vacancyDescription);
+        for (Rule rule : rules) {
+            if (rule.conditions().stream().allMatch(condition -> matches(condition, features))) {
+                log.debug("Review routed to tier {} ({})", rule.tier().name(), features);
+                return new Route(rule.tier(), features.score());
+            }
+        }
+        log.debug("Review routed to default tier {} ({})", defaultTier.name(), features);
+        return new Route(defaultTier, features.score());
+    }
+
+    /**
+     * Records one OpenAI call sent to the tier.
+     */
+    public void recordRequest(Tier tier) {
+        meters.get(tier.name()).requests().increment();
+    }
+
+    /**
+     * Records the outcome of one OpenAI call of the tier.
+     *
+     * @param totalTokens tokens billed, or a negative value if unknown (streaming)
+     */
+    public void record(Tier tier, Duration latency, int totalTokens) {
+        TierMeters tierMeters = meters.get(tier.name());
+        tierMeters.latency().record(latency);
+        if (totalTokens >= 0) {
+            tierMeters.tokens().record(totalTokens);
+        }
+    }
+
+    Features features(String cvText, String vacancyDescription) {
+        boolean languages = usedFeatures.contains("language") || usedFeatures.contains("languageMismatch");
+        return new Features(
+                usedFeatures.contains("tokens") ? TokenCounter.count(cvText) : -1,
+                languages ? language(cvText) : "unknown",
+                usedFeatures.contains("languageMismatch") ? language(vacancyDescription) : "unknown",
+                usedFeatures.contains("overlap") || usedFeatures.contains("vacancySkills")
+                        ? preFilter.score(cvText, vacancyDescription) : null);
+    }
+
+    /**
+     * Guesses whether a text is Spanish or English by counting frequent words. Short texts and
+     * mixed texts, where neither language has at least twice the words of the other, are "unknown".
+     *
+     * @return "es", "en" or "unknown"
+     */
+    static String language(String text) {
+        int spanish = 0;
+        int english = 0;
+        Matcher words = WORD.matcher(text == null ? "" : text);
+        while (words.find()) {
+            String word = words.group().toLowerCase(Locale.ROOT);
+            if (SPANISH.contains(word)) {
+                spanish++;
+            } else if (ENGLISH.contains(word)) {
+                english++;
+            }
+        }
+        if (spanish + english < MIN_LANGUAGE_WORDS) {
+            return "unknown";
+        }
+        if (spanish >= 2 * english) {
+            return "es";
+        }
+        return english >= 2 * spanish ? "en" : "unknown";
+    }
+
+    private void parseRules(String rules) {
+        for (String entry : rules.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf(':');
+            Tier tier = separator < 0 ? null : tiers.get(entry.substring(separator + 1).trim());
+            if (tier == null) {
+                throw new IllegalArgumentException("Invalid tiering rule (unknown tier): " + entry);
+            }
+            List<Condition> conditions = new ArrayList<>();
+            for (String condition : entry.substring(0, separator).split("&")) {
+                conditions.add(parseCondition(condition));
+            }
+            this.rules.add(new Rule(conditions, tier));
+        }
+    }
+
+    /**
+     * Parses "feature operator value": numeric features need a number, the others one of
+     * their values and = or !=.
+     */
+    private Condition parseCondition(String condition) {
+        Matcher matcher = CONDITION.matcher(condition);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid tiering rule condition: " + condition);
+        }
+        String feature = matcher.group(1);
+        String operator = matcher.group(2);
+        String value = matcher.group(3);
+        double number = Double.NaN;
+        if (NUMERIC_FEATURES.contains(feature)) {
+            try {
+                number = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid tiering rule condition (not a number): " + condition);
+            }
+        } else if (TEXT_FEATURES.containsKey(feature)) {
+            if (!operator.equals("=") && !operator.equals("!=")) {
+                throw new IllegalArgumentException("Invalid tiering rule condition (" + feature + " only takes = and !=): "
+                        + condition);
+            }
+            if (!TEXT_FEATURES.get(feature).contains(value.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Invalid tiering rule condition (" + feature + " is one of "
+                        + TEXT_FEATURES.get(feature) + "): " + condition);
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid tiering rule condition (unknown feature): " + condition);
+        }
+        usedFeatures.add(feature);
+        return new Condition(feature, operator, value, number);
+    }
+
+    private static boolean matches(Condition condition, Features features) {
+        switch (condition.feature()) {
+            case "language":
+                return compare(features.language(), condition);
+            case "languageMismatch":
+                return compare(String.valueOf(features.languageMismatch()), condition);
+            default:
+                double value = switch (condition.feature()) {
+                    case "tokens" -> features.tokens();
+                    case "overlap" -> features.overlap();
+                    default -> features.vacancySkills();
+                };
+                double expected = condition.number();
+                return switch (condition.operator()) {
+                    case "<" -> value < expected;
+                    case "<=" -> value <= expected;
+                    case ">" -> value > expected;
+                    case ">=" -> value >= expected;
+                    case "!=" -> value != expected;
+                    default -> value == expected;
+                };
+        }
+    }
+
+    private static boolean compare(String value, Condition condition) {
+        boolean equal = value.equalsIgnoreCase(condition.value());
+        return condition.operator().equals("=") == equal;
+    }
+}
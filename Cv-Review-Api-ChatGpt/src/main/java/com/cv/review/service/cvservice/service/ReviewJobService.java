@@ -0,0 +1,163 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.dto.ReviewJobResponse;
+import com.cv.review.service.cvservice.dto.ReviewJobStatus;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs CV reviews as background jobs so clients don't hold an HTTP connection
+ * for the whole OpenAI latency.
+ *
+ * Jobs go to a bounded queue drained by a fixed number of workers
+ * (cvreview.jobs.concurrency). When the queue is full, submit throws
+ * RejectedExecutionException and the controller answers 429.
+ * Finished jobs are kept for cvreview.jobs.retention-ms so clients can poll the result.
+ *
+ * A job in the map is never modified: every state change stores a new copy, so a
+ * job being serialized by a GET is a consistent snapshot while the worker moves on.
+ */
+@Service
+public class ReviewJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewJobService.class);
+
+    private final CvReviewService reviewService;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService cleaner;
+    private final Map<String, ReviewJobResponse> jobs = new ConcurrentHashMap<>();
+    private final Duration jobTimeout;
+    private final long retentionMillis;
+
+    public ReviewJobService(CvReviewService reviewService,
+                            @Value("${cvreview.jobs.concurrency:4}") int concurrency,
+                            @Value("${cvreview.jobs.queue-capacity:1000}") int queueCapacity,
+                            @Value("${cvreview.jobs.timeout-ms:120000}") long timeoutMillis,
+                            @Value("${cvreview.jobs.retention-ms:3600000}") long retentionMillis,
+                            MeterRegistry meterRegistry) {
+        this.reviewService = reviewService;
+        this.jobTimeout = Duration.ofMillis(timeoutMillis);
+        this.retentionMillis = retentionMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "review-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "review-job-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        this.cleaner.scheduleWithFixedDelay(this::purgeFinishedJobs, 1, 1, TimeUnit.MINUTES);
+
+        Gauge.builder("cvreview.jobs.queued", workers, w -> w.getQueue().size())
+                .description("Review jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("cvreview.jobs.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Review jobs currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enqueues a review.
+     *
+     * @param cvText             text extracted from the CV
+     * @param vacancyDescription job description
+     * @param cvTruncated        true if the extraction stopped at its character budget
+     * @return snapshot of the job in QUEUED state
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public ReviewJobResponse submit(String cvText, String vacancyDescription, boolean cvTruncated) {
+        ReviewJobResponse job = new ReviewJobResponse();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setStatus(ReviewJobStatus.QUEUED);
+        job.setCreatedAt(Instant.now());
+        String jobId = job.getJobId();
+        jobs.put(jobId, job);
+
+        try {
+            workers.execute(() -> run(jobId, cvText, vacancyDescription, cvTruncated));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            log.warn("Review job queue is full ({} queued), rejecting job", workers.getQueue().size());
+            throw e;
+        }
+        return new ReviewJobResponse(job);
+    }
+
+    /**
+     * @return snapshot of the job with the given id, or null if unknown or already purged
+     */
+    public ReviewJobResponse getJob(String jobId) {
+        ReviewJobResponse job = jobs.get(jobId);
+        return job == null ? null : new ReviewJobResponse(job);
+    }
+
+    private void run(String jobId, String cvText, String vacancyDescription, boolean cvTruncated) {
+        update(jobId, j -> j.setStatus(ReviewJobStatus.RUNNING));
+        try {
+            ReviewResponse result = reviewService.reviewText(cvText, vacancyDescription, cvTruncated).block(jobTimeout);
+            update(jobId, j -> {
+                j.setResult(result);
+                j.setCompletedAt(Instant.now());
+                j.setStatus(ReviewJobStatus.COMPLETED);
+            });
+        } catch (Exception e) {
+            log.error("Review job {} failed: {}", jobId, e.getMessage(), e);
+            update(jobId, j -> {
+                j.setError(e.getMessage());
+                j.setCompletedAt(Instant.now());
+                j.setStatus(ReviewJobStatus.FAILED);
+            });
+        }
+    }
+
+    /**
+     * Replaces a job with a changed copy; readers keep the previous state until the new one is stored.
+     */
+    private void update(String jobId, Consumer<ReviewJobResponse> change) {
+        jobs.computeIfPresent(jobId, (id, j) -> {
+            ReviewJobResponse next = new ReviewJobResponse(j);
+            change.accept(next);
+            return next;
+        });
+    }
+
+    void purgeFinishedJobs() {
+        Instant limit = Instant.now().minusMillis(retentionMillis);
+        jobs.values().removeIf(job -> job.getCompletedAt() != null && job.getCompletedAt().isBefore(limit));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+        workers.shutdownNow();
+    }
+}
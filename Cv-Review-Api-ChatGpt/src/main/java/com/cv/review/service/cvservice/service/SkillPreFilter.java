@@ -0,0 +1,169 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.util.AhoCorasick;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local pre-screening of a CV against a vacancy, before any call to OpenAI.
+ *
+ * The skills of the taxonomy (cvreview.prefilter.taxonomy, one "Canonical: synonym, ..." line
+ * per skill) are compiled once into an Aho-Corasick automaton. The vacancy is scanned to find
+ * the skills it asks for and the CV to find the ones it mentions, both in linear time. The
+ * overlap is the share of the vacancy skills present in the CV; the missing ones are the
+ * preliminary competenciasFaltantes.
+ *
+ * When the vacancy names at least cvreview.prefilter.min-vacancy-skills skills and the overlap
+ * is below cvreview.prefilter.min-overlap, the candidate gets a deterministic "no" without
+ * calling the model. Vacancies with fewer known skills always go to the model, since the
+ * taxonomy cannot judge them.
+ */
+@Component
+public class SkillPreFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SkillPreFilter.class);
+
+    private final boolean enabled;
+    private final double minOverlap;
+    private final int minVacancySkills;
+    private final AhoCorasick automaton;
+    private final Counter rejected;
+    private final Counter passed;
+
+    /**
+     * Result of the local pre-screening.
+     *
+     * @param vacancySkills skills of the taxonomy found in the vacancy
+     * @param matched       the ones also found in the CV
+     * @param missing       the ones not found in the CV
+     * @param overlap       matched / vacancySkills (1 if the vacancy names none)
+     * @param rejected      true if the candidate is discarded without calling the model
+     */
+    public record PreScore(Set<String> vacancySkills, Set<String> matched, List<String> missing,
+                           double overlap, boolean rejected) {
+    }
+
+    public SkillPreFilter(@Value("${cvreview.prefilter.enabled:true}") boolean enabled,
+                          @Value("${cvreview.prefilter.taxonomy:classpath:skills-taxonomy.txt}") Resource taxonomy,
+                          @Value("${cvreview.prefilter.min-overlap:0.15}") double minOverlap,
+                          @Value("${cvreview.prefilter.min-vacancy-skills:3}") int minVacancySkills,
+                          MeterRegistry meterRegistry) throws IOException {
+        this.enabled = enabled;
+        this.minOverlap = minOverlap;
+        this.minVacancySkills = minVacancySkills;
+        Map<String, String> terms = loadTaxonomy(taxonomy);
+        this.automaton = new AhoCorasick(terms);
+        log.info("Skill pre-filter {} with {} terms from {}", enabled ? "enabled" : "disabled", terms.size(), taxonomy);
+
+        this.rejected = Counter.builder("cvreview.prefilter.rejected")
+                .description("CVs answered with a local \"no\" without calling OpenAI")
+                .register(meterRegistry);
+        this.passed = Counter.builder("cvreview.prefilter.passed")
+                .description("CVs that passed the local pre-filter and were sent to OpenAI")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Scores the overlap between the skills of the vacancy and the CV.
+     */
+    public PreScore score(String cvText, String vacancyDescription) {
+        Set<String> vacancySkills = automaton.findIn(vacancyDescription);
+        Set<String> cvSkills = automaton.findIn(cvText);
+
+        List<String> missing = new ArrayList<>();
+        Set<String> matched = new LinkedHashSet<>();
+        for (String skill : vacancySkills) {
+            if (cvSkills.contains(skill)) {
+                matched.add(skill);
+            } else {
+                missing.add(skill);
+            }
+        }
+        double overlap = vacancySkills.isEmpty() ? 1.0 : (double) matched.size() / vacancySkills.size();
+        boolean reject = enabled && vacancySkills.size() >= minVacancySkills && overlap < minOverlap;
+        return new PreScore(vacancySkills, matched, missing, overlap, reject);
+    }
+
+    /**
+     * Pre-screens a review request.
+     *
+     * @return the deterministic "no" response if the CV is discarded, or null if it must go to the model
+     */
+    public ReviewResponse screen(String cvText, String vacancyDescription) {
+        return screen(cvText, vacancyDescription, null);
+    }
+
+    /**
+     * Pre-screens a review request whose score may already be known (see ModelTierRouter).
+     *
+     * @param known score of the same CV and vacancy, or null to compute it
+     * @return the deterministic "no" response if the CV is discarded, or null if it must go to the model
+     */
+    public ReviewResponse screen(String cvText, String vacancyDescription, PreScore known) {
+        if (!enabled) {
+            return null;
+        }
+        PreScore score = known != null ? known : score(cvText, vacancyDescription);
+        if (!score.rejected()) {
+            passed.increment();
+            return null;
+        }
+
+        rejected.increment();
+        log.info("CV discarded by the local pre-filter: {} of {} vacancy skills found",
+                score.matched().size(), score.vacancySkills().size());
+        ReviewResponse response = new ReviewResponse();
+        response.setApto("no");
+        response.setPuntuacion((int) Math.round(score.overlap() * 100));
+        response.setCompetenciasFaltantes(score.missing());
+        response.setResumen("Pre-screened locally: the CV mentions " + score.matched().size() + " of the "
+                + score.vacancySkills().size() + " skills required by the vacancy.");
+        response.setRawOpenAiResponse("");
+        return response;
+    }
+
+    /**
+     * Reads the taxonomy: "Canonical: synonym, synonym" per line, # for comments.
+     */
+    static Map<String, String> loadTaxonomy(Resource taxonomy) throws IOException {
+        Map<String, String> terms = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(taxonomy.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                String canonical = (colon < 0 ? line : line.substring(0, colon)).strip();
+                terms.put(canonical, canonical);
+                if (colon >= 0) {
+                    for (String synonym : line.substring(colon + 1).split(",")) {
+                        if (!synonym.isBlank()) {
+                            terms.put(synonym.strip(), canonical);
+                        }
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+}
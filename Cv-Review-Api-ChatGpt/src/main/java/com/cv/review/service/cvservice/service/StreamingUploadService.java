@@ -0,0 +1,112 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.dto.ExtractedText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.codec.multipart.PartEventHttpMessageReader;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a multipart CV upload as a stream of part events instead of a buffered MultipartFile.
+ *
+ * The servlet request body is turned into a Flux of DataBuffer (cvreview.upload.buffer-size
+ * bytes each) read on a boundedElastic thread, and parsed with PartEventHttpMessageReader.
+ * The "file" part is piped into TextExtractionService as it arrives, so upload and parse
+ * overlap; what is left of it once Tika stops reading is released, as are the other parts,
+ * without buffering them. MultipartConfig keeps Spring MVC from resolving the multipart body
+ * of this endpoint first.
+ */
+@Service
+public class StreamingUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingUploadService.class);
+    private static final ResolvableType PART_EVENT_TYPE = ResolvableType.forClass(PartEvent.class);
+
+    private final TextExtractionService extractionService;
+    private final PartEventHttpMessageReader partReader = new PartEventHttpMessageReader();
+    private final int bufferSize;
+
+    public StreamingUploadService(TextExtractionService extractionService,
+                                  @Value("${cvreview.upload.buffer-size:16384}") int bufferSize,
+                                  @Value("${cvreview.upload.max-file-bytes:10485760}") long maxFileBytes) {
+        this.extractionService = extractionService;
+        this.bufferSize = bufferSize;
+        this.partReader.setMaxPartSize(maxFileBytes);
+        this.partReader.setMaxParts(10);
+    }
+
+    /**
+     * Result of a streamed upload: the text of the "file" part and the "vacancyDescription"
+     * and "vacancyId" fields.
+     */
+    public record StreamedUpload(ExtractedText extracted, String vacancyDescription, String vacancyId) {
+    }
+
+    /**
+     * Reads the multipart body of the request.
+     *
+     * @param request servlet request with a multipart/form-data body not consumed yet
+     * @return Mono with the extracted text (empty if there was no file) and the vacancy
+     */
+    public Mono<StreamedUpload> read(HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, request.getContentType());
+        Flux<DataBuffer> body = DataBufferUtils.readInputStream(request::getInputStream,
+                        DefaultDataBufferFactory.sharedInstance, bufferSize)
+                .subscribeOn(Schedulers.boundedElastic());
+        ReactiveHttpInputMessage message = new ReactiveHttpInputMessage() {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return body;
+            }
+        };
+
+        AtomicReference<ExtractedText> extracted = new AtomicReference<>(ExtractedText.empty());
+        AtomicReference<String> vacancy = new AtomicReference<>();
+        AtomicReference<String> vacancyId = new AtomicReference<>();
+
+        return partReader.read(PART_EVENT_TYPE, message, Collections.emptyMap())
+                .windowUntil(PartEvent::isLast)
+                .concatMap(part -> part.switchOnFirst((signal, events) -> {
+                    PartEvent first = signal.get();
+                    if (first instanceof FilePartEvent filePart && "file".equals(first.name())) {
+                        log.debug("Streaming upload of {}", filePart.filename());
+                        return extractionService.extract(events.map(PartEvent::content), filePart.filename())
+                                .doOnNext(extracted::set);
+                    }
+                    if (first instanceof FormPartEvent formPart && "vacancyDescription".equals(first.name())) {
+                        vacancy.set(formPart.value());
+                    }
+                    if (first instanceof FormPartEvent formPart && "vacancyId".equals(first.name())) {
+                        vacancyId.set(formPart.value());
+                    }
+                    // Other parts are skipped without buffering them
+                    return events.doOnNext(event -> DataBufferUtils.release(event.content())).then();
+                }))
+                .doOnDiscard(PartEvent.class, event -> DataBufferUtils.release(event.content()))
+                .then(Mono.fromSupplier(() -> new StreamedUpload(extracted.get(), vacancy.get(), vacancyId.get())));
+    }
+}
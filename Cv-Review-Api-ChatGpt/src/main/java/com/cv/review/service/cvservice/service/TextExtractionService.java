@@ -0,0 +1,294 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.cache.ExtractionCache;
+import com.cv.review.service.cvservice.dto.ExtractedText;
+import com.cv.review.service.cvservice.util.ContentHash;
+import com.cv.review.service.cvservice.util.ForkTextExtractor;
+import com.cv.review.service.cvservice.util.TextExtractor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs Tika text extraction as a pipeline stage on a dedicated, bounded executor,
+ * so CPU-heavy PDF/DOCX parsing never runs on the servlet threads.
+ *
+ * - cvreview.extraction.threads: parses running at the same time (default: number of CPUs).
+ * - cvreview.extraction.queue-capacity: documents waiting for a thread; when full, the
+ *   returned Mono fails with RejectedExecutionException.
+ * - cvreview.extraction.timeout-ms: per-document limit; the Mono fails with TimeoutException.
+ *   Tika does not react to interrupts, so an in-process parse keeps its thread until it ends:
+ *   the character budget of the bounded mode is what limits that work, and the fork backend
+ *   kills the child JVM of a parse that runs too long.
+ *
+ * Queue depth, active parses and parse duration are exposed as cvreview.extraction.* metrics.
+ *
+ * In bounded mode (cvreview.extraction.bounded, default) the parse stops once
+ * cvreview.compaction.cv-token-budget * 4 (chars per token) * cvreview.extraction.headroom
+ * characters have been extracted: CvCompactor only keeps that many tokens anyway, and the
+ * headroom leaves room for the whitespace Tika emits and for choosing among sections.
+ * The result is flagged as truncated. When the long CV mode is on (cvreview.long-cv.enabled),
+ * the budget is raised to cvreview.long-cv.max-tokens * 4 characters, since those CVs are
+ * summarized by chunks instead of compacted (see CvSummarizer).
+ *
+ * With cvreview.extraction.backend=fork documents are parsed in a pool of forked Tika JVMs
+ * (see ForkTextExtractor) to keep parse memory and crashes out of this JVM. The pool is started
+ * with the service; only if no child JVM can be started at all does extraction run in-process
+ * (cvreview.extraction.fork.fallback, off by default, otherwise startup fails). A document whose
+ * forked parse crashes or times out is never parsed again in-process: that is exactly the
+ * document isolation is there for. Children give up at 80% of cvreview.extraction.timeout-ms,
+ * so their failure is reported before the Mono times out.
+ *
+ * Uploads are hashed (SHA-256) before parsing and looked up in the ExtractionCache, so the
+ * same file uploaded again skips Tika.
+ *
+ * A document that is still being uploaded is parsed through a bounded pipe of
+ * cvreview.upload.pipe-buffers buffers, so upload and parse overlap. The pipe fails when no
+ * bytes arrive for cvreview.upload.read-timeout-ms or the upload outlasts
+ * cvreview.extraction.timeout-ms, so a slow client holds an extraction thread for a bounded
+ * time only.
+ */
+@Service
+public class TextExtractionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TextExtractionService.class);
+
+    /** Rough average for Spanish/English text with the o200k tokenizer. */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final ExtractionCache extractionCache;
+    private final ThreadPoolExecutor executor;
+    private final Scheduler scheduler;
+    private final Duration timeout;
+    private final int charBudget;
+    private final ForkTextExtractor forkExtractor;
+    private final int pipeBuffers;
+    private final Duration readTimeout;
+    private final Timer parseTimer;
+    private final Counter forkFailures;
+
+    public TextExtractionService(ExtractionCache extractionCache,
+                                 @Value("${cvreview.extraction.threads:0}") int threads,
+                                 @Value("${cvreview.extraction.queue-capacity:50}") int queueCapacity,
+                                 @Value("${cvreview.extraction.timeout-ms:30000}") long timeoutMillis,
+                                 @Value("${cvreview.extraction.bounded:true}") boolean bounded,
+                                 @Value("${cvreview.extraction.headroom:4}") int headroom,
+                                 @Value("${cvreview.compaction.cv-token-budget:600}") int cvTokenBudget,
+                                 @Value("${cvreview.long-cv.enabled:true}") boolean longCvEnabled,
+                                 @Value("${cvreview.long-cv.max-tokens:16000}") int longCvMaxTokens,
+                                 @Value("${cvreview.extraction.backend:in-process}") String backend,
+                                 @Value("${cvreview.extraction.fork.pool-size:2}") int forkPoolSize,
+                                 @Value("${cvreview.extraction.fork.java-command:java}") String forkJavaCommand,
+                                 @Value("${cvreview.extraction.fork.max-heap:256m}") String forkMaxHeap,
+                                 @Value("${cvreview.extraction.fork.max-files-per-process:100}") int forkMaxFiles,
+                                 @Value("${cvreview.extraction.fork.fallback:false}") boolean forkFallback,
+                                 @Value("${cvreview.upload.pipe-buffers:4}") int pipeBuffers,
+                                 @Value("${cvreview.upload.read-timeout-ms:10000}") long readTimeoutMillis,
+                                 MeterRegistry meterRegistry) {
+        this.extractionCache = extractionCache;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "text-extraction-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Schedulers.fromExecutorService(executor, "text-extraction");
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        int compactionBudget = cvTokenBudget * CHARS_PER_TOKEN * Math.max(1, headroom);
+        int longCvBudget = longCvEnabled ? longCvMaxTokens * CHARS_PER_TOKEN : 0;
+        this.charBudget = bounded ? Math.max(compactionBudget, longCvBudget) : 0;
+        this.pipeBuffers = Math.max(1, pipeBuffers);
+        this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+        if ("fork".equalsIgnoreCase(backend)) {
+            this.forkExtractor = startForkExtractor(new ForkTextExtractor(forkPoolSize, forkJavaCommand, forkMaxHeap,
+                    Math.max(1, timeoutMillis * 4 / 5), forkMaxFiles), forkFallback);
+            if (forkExtractor != null) {
+                log.info("Text extraction uses forked Tika JVMs (pool size {}, max heap {})", forkPoolSize, forkMaxHeap);
+            }
+        } else {
+            this.forkExtractor = null;
+        }
+
+        Gauge.builder("cvreview.extraction.queued", executor, e -> e.getQueue().size())
+                .description("Documents waiting for an extraction thread")
+                .register(meterRegistry);
+        Gauge.builder("cvreview.extraction.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Documents being parsed right now")
+                .register(meterRegistry);
+        this.parseTimer = Timer.builder("cvreview.extraction.duration")
+                .description("Time spent parsing a document with Tika")
+                .register(meterRegistry);
+        this.forkFailures = Counter.builder("cvreview.extraction.fork.failures")
+                .description("Documents whose forked parse failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Extracts the text of an uploaded file on the extraction executor.
+     *
+     * @param file archivo subido
+     * @return Mono with the extracted text (empty if nothing could be extracted)
+     */
+    public Mono<ExtractedText> extract(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return Mono.just(ExtractedText.empty());
+        }
+        return extract(file, file.getOriginalFilename());
+    }
+
+    /**
+     * Extracts the text of a document that is still being uploaded.
+     *
+     * Tika reads the content through a bounded pipe (at most cvreview.upload.pipe-buffers
+     * buffers in flight) while the bytes arrive, so the document is never fully buffered.
+     * A read fails with TimeoutException when the next buffer takes longer than
+     * cvreview.upload.read-timeout-ms or the upload outlasts cvreview.extraction.timeout-ms,
+     * which releases the extraction thread. Once the parse is done the pipe is closed and
+     * the rest of the part is discarded by the caller. The bytes are only available once,
+     * so this path does not use the extraction cache.
+     *
+     * @param content  document bytes, consumed once
+     * @param filename name of the uploaded file (for logging)
+     * @return Mono with the extracted text (empty if nothing could be extracted)
+     */
+    public Mono<ExtractedText> extract(Publisher<DataBuffer> content, String filename) {
+        Flux<DataBuffer> arriving = withReadTimeouts(content);
+        return Mono.fromCallable(() -> {
+                    try (InputStream is = DataBufferUtils.subscriberInputStream(arriving, pipeBuffers)) {
+                        return parseTimer.recordCallable(() -> parse(is, filename));
+                    }
+                })
+                .subscribeOn(scheduler)
+                .timeout(timeout)
+                .doOnError(err -> log.warn("Extraction of {} failed: {}", filename, err.toString()));
+    }
+
+    private Mono<ExtractedText> extract(InputStreamSource source, String filename) {
+        return Mono.fromCallable(() -> extractCached(source, filename))
+                .subscribeOn(scheduler)
+                .timeout(timeout)
+                .doOnError(err -> log.warn("Extraction of {} failed: {}", filename, err.toString()));
+    }
+
+    /**
+     * Fails the upload when a buffer takes longer than the read timeout, or than what is
+     * left of the extraction timeout since the first read.
+     */
+    private Flux<DataBuffer> withReadTimeouts(Publisher<DataBuffer> content) {
+        return Flux.defer(() -> {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            Supplier<Mono<Long>> nextRead = () -> Mono.delay(Duration.ofNanos(
+                    Math.max(0, Math.min(readTimeout.toNanos(), deadline - System.nanoTime()))));
+            return Flux.from(content).timeout(Mono.defer(nextRead), buffer -> nextRead.get());
+        });
+    }
+
+    /**
+     * Hashes the upload (streaming SHA-256, no full copy in memory) and only runs Tika
+     * when the extraction cache does not already have its text.
+     */
+    private ExtractedText extractCached(InputStreamSource source, String filename) throws Exception {
+        MessageDigest digest = ContentHash.newSha256();
+        try (InputStream is = new DigestInputStream(source.getInputStream(), digest)) {
+            is.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+
+        ExtractedText cached = extractionCache.get(hash, charBudget);
+        if (cached != null) {
+            log.debug("Extraction of {} served from cache", filename);
+            return cached;
+        }
+        ExtractedText extracted;
+        try (InputStream is = source.getInputStream()) {
+            extracted = parseTimer.recordCallable(() -> parse(is, filename));
+        }
+        if (!extracted.isEmpty()) {
+            extractionCache.put(hash, charBudget, extracted);
+        }
+        return extracted;
+    }
+
+    /**
+     * Parses the document, or fails with the TimeoutException of a stalled upload so it is
+     * reported like a parse that took too long.
+     */
+    private ExtractedText parse(InputStream is, String filename) throws TimeoutException {
+        try {
+            return forkExtractor != null
+                    ? forkExtractor.extractText(is, charBudget)
+                    : TextExtractor.extractText(is, charBudget);
+        } catch (Exception e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof TimeoutException stalled) {
+                    throw stalled;
+                }
+            }
+            if (forkExtractor != null) {
+                forkFailures.increment();
+            }
+            log.error("Error extracting text from {}: {}", filename, e.getMessage(), e);
+            return ExtractedText.empty();
+        }
+    }
+
+    /**
+     * Starts the fork pool. If no child JVM can be started, extraction runs in-process when
+     * the fallback is enabled (returns null) and the service fails to start otherwise.
+     */
+    private static ForkTextExtractor startForkExtractor(ForkTextExtractor extractor, boolean fallback) {
+        try {
+            extractor.start();
+            return extractor;
+        } catch (Exception e) {
+            extractor.close();
+            if (!fallback) {
+                throw new IllegalStateException("No forked Tika JVM could be started: " + e.getMessage(), e);
+            }
+            log.warn("No forked Tika JVM could be started, text extraction runs in-process: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+        executor.shutdownNow();
+        if (forkExtractor != null) {
+            forkExtractor.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cv.review.service.cvservice.service;
+
+import com.cv.review.service.cvservice.cache.BoundedCache;
+import com.cv.review.service.cvservice.dto.VacancyResponse;
+import com.cv.review.service.cvservice.util.ContentHash;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.NoSuchElementException;
+
+/**
+ * Registry of vacancies, so that clients scoring many CVs against the same job
+ * upload its description once and then reference it by id.
+ *
+ * Ids are content-addressed (SHA-256 of the normalized description): registering the
+ * same text twice returns the same id and refreshes its TTL. Vacancies live in memory,
+ * bounded by cvreview.vacancies.max-entries and cvreview.vacancies.ttl-ms; once evicted,
+ * requests with that id get 404 and the client must register it again.
+ */
+@Service
+public class VacancyService {
+
+    private static final Logger log = LoggerFactory.getLogger(VacancyService.class);
+
+    // 128 bits are enough to address the registry and keep ids short in URLs
+    private static final int ID_LENGTH = 32;
+
+    private final BoundedCache<String, VacancyResponse> vacancies;
+
+    public VacancyService(@Value("${cvreview.vacancies.max-entries:1000}") int maxEntries,
+                          @Value("${cvreview.vacancies.ttl-ms:86400000}") long ttlMillis,
+                          MeterRegistry meterRegistry) {
+        this.vacancies = new BoundedCache<>(maxEntries, ttlMillis);
+
+        Gauge.builder("cvreview.vacancies.size", vacancies, BoundedCache::size)
+                .description("Vacancies currently registered")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores a vacancy and returns it with its id.
+     *
+     * @param description job description (must not be blank)
+     * @return the registered vacancy
+     */
+    public VacancyResponse register(String description) {
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("The vacancy description is required.");
+        }
+
+        String id = ContentHash.sha256Hex(ContentHash.normalize(description)).substring(0, ID_LENGTH);
+        VacancyResponse vacancy = new VacancyResponse();
+        vacancy.setId(id);
+        vacancy.setDescription(description);
+        vacancy.setCreatedAt(Instant.now());
+        vacancies.put(id, vacancy);
+        log.debug("Vacancy {} registered ({} chars)", id, description.length());
+        return vacancy;
+    }
+
+    /**
+     * @return the vacancy, or null if it is unknown or has expired
+     */
+    public VacancyResponse get(String id) {
+        return id == null ? null : vacancies.get(id);
+    }
+
+    /**
+     * @return true if the vacancy existed (checked and removed in one step, so of two
+     *         concurrent deletes only one succeeds)
+     */
+    public boolean delete(String id) {
+        return id != null && vacancies.invalidate(id) != null;
+    }
+
+    /**
+     * Picks the vacancy text of a review request: the registered vacancy when an id is given,
+     * otherwise the description sent inline.
+     *
+     * @throws NoSuchElementException if the id is not registered
+     */
+    public String resolve(String vacancyId, String vacancyDescription) {
+        if (vacancyId == null || vacancyId.isBlank()) {
+            return vacancyDescription;
+        }
+        VacancyResponse vacancy = get(vacancyId);
+        if (vacancy == null) {
+            throw new NoSuchElementException("Unknown vacancy: " + vacancyId);
+        }
+        return vacancy.getDescription();
+    }
+}
@@ -0,0 +1,129 @@
+package com.cv.review.service.cvservice.util;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Autómata de Aho-Corasick para buscar muchos términos a la vez en un texto, en una sola
+ * pasada (tiempo lineal en la longitud del texto más el número de coincidencias).
+ *
+ * Cada término lleva asociado un valor (por ejemplo, el nombre canónico de una competencia,
+ * de modo que "k8s" y "kubernetes" devuelvan "Kubernetes"). La búsqueda no distingue
+ * mayúsculas ni acentos y solo acepta coincidencias de palabra completa: "java" no coincide
+ * dentro de "javascript".
+ */
+public class AhoCorasick {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    // Términos que terminan en cada nodo (incluidos los alcanzables por enlaces de fallo)
+    private final List<List<Match>> outputs = new ArrayList<>();
+
+    private record Match(int length, String value) {
+    }
+
+    /**
+     * @param terms término → valor devuelto cuando aparece en el texto
+     */
+    public AhoCorasick(Map<String, String> terms) {
+        newNode();
+        for (Map.Entry<String, String> term : terms.entrySet()) {
+            String pattern = normalize(term.getKey()).strip();
+            if (!pattern.isEmpty()) {
+                add(pattern, term.getValue());
+            }
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Pasa a minúsculas y quita los acentos (á → a, ñ → n).
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "");
+    }
+
+    /**
+     * @return valores de los términos que aparecen en el texto como palabras completas,
+     *         en orden de primera aparición
+     */
+    public Set<String> findIn(String text) {
+        String normalized = normalize(text);
+        Set<String> found = new LinkedHashSet<>();
+        int state = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            while (state != 0 && !transitions.get(state).containsKey(c)) {
+                state = failure.get(state);
+            }
+            state = transitions.get(state).getOrDefault(c, 0);
+            for (Match match : outputs.get(state)) {
+                int start = i - match.length() + 1;
+                if (isBoundary(normalized, start - 1) && isBoundary(normalized, i + 1)) {
+                    found.add(match.value());
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+
+    private void add(String pattern, String value) {
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            if (next == null) {
+                next = newNode();
+                transitions.get(state).put(c, next);
+            }
+            state = next;
+        }
+        outputs.get(state).add(new Match(pattern.length(), value));
+    }
+
+    /**
+     * Recorrido en anchura: el fallo de cada nodo es el sufijo propio más largo que también es
+     * prefijo de algún término; sus salidas se heredan para no tener que seguir la cadena al buscar.
+     */
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int fallback = failure.get(state);
+                while (fallback != 0 && !transitions.get(fallback).containsKey(c)) {
+                    fallback = failure.get(fallback);
+                }
+                int link = transitions.get(fallback).getOrDefault(c, 0);
+                failure.set(child, link == child ? 0 : link);
+                outputs.get(child).addAll(outputs.get(failure.get(child)));
+                queue.add(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.cv.review.service.cvservice.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Prompt estructurado para el endpoint de chat completions:
+ * instrucciones como mensaje "system" y el contenido como partes de un mensaje "user".
+ * Los textos se envían tal cual (el JSON del request ya los codifica), sin escapado adicional.
+ * Opcionalmente lleva el JSON schema que debe cumplir la respuesta (structured outputs).
+ */
+public class ChatPrompt {
+
+    private final String system;
+    private final List<String> userParts;
+    private final String schemaName;
+    private final JsonNode responseSchema;
+
+    public ChatPrompt(String system, List<String> userParts) {
+        this(system, userParts, null, null);
+    }
+
+    private ChatPrompt(String system, List<String> userParts, String schemaName, JsonNode responseSchema) {
+        this.system = system;
+        this.userParts = List.copyOf(userParts);
+        this.schemaName = schemaName;
+        this.responseSchema = responseSchema;
+    }
+
+    /**
+     * Prompt de un único mensaje de usuario sin instrucciones de sistema (formato clásico).
+     */
+    public static ChatPrompt ofUser(String prompt) {
+        return new ChatPrompt(null, List.of(prompt == null ? "" : prompt));
+    }
+
+    /**
+     * @return instrucciones de sistema, o null si no hay
+     */
+    public String getSystem() {
+        return system;
+    }
+
+    public List<String> getUserParts() {
+        return userParts;
+    }
+
+    /**
+     * Mismo prompt, pidiendo que la respuesta cumpla el schema (response_format json_schema).
+     *
+     * @param name   nombre del schema (letras, dígitos, '_' y '-')
+     * @param schema JSON schema de la respuesta
+     */
+    public ChatPrompt withResponseSchema(String name, JsonNode schema) {
+        return new ChatPrompt(system, userParts, name, schema);
+    }
+
+    /**
+     * @return nombre del schema de respuesta, o null si la respuesta es libre
+     */
+    public String getSchemaName() {
+        return schemaName;
+    }
+
+    /**
+     * @return JSON schema de la respuesta, o null si la respuesta es libre
+     */
+    public JsonNode getResponseSchema() {
+        return responseSchema;
+    }
+
+    /**
+     * Longitud total en caracteres (para logs).
+     */
+    public int length() {
+        int length = system == null ? 0 : system.length();
+        for (String part : userParts) {
+            length += part.length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,59 @@
+package com.cv.review.service.cvservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+
+/**
+ * Utilidades para calcular claves de contenido (SHA-256) usadas por las cachés.
+ */
+public class ContentHash {
+
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Normaliza un texto para que variaciones irrelevantes (espacios, saltos de línea,
+     * formas Unicode compuestas/descompuestas) produzcan la misma clave.
+     *
+     * @param text texto original (puede ser null)
+     * @return texto normalizado (nunca null)
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String nfc = Normalizer.normalize(text, Normalizer.Form.NFC);
+        return nfc.replaceAll("\\s+", " ").trim();
+    }
+
+    /**
+     * Calcula el SHA-256 (hex) de varias partes separadas por un carácter nulo.
+     *
+     * @param parts partes de la clave (null se trata como cadena vacía)
+     * @return hash hexadecimal de 64 caracteres
+     */
+    public static String sha256Hex(String... parts) {
+        MessageDigest digest = newSha256();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                digest.update((byte) SEPARATOR);
+            }
+            String part = parts[i] == null ? "" : parts[i];
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Crea un MessageDigest SHA-256 (siempre disponible en la JVM).
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
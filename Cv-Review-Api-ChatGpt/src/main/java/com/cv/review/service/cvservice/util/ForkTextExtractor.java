@@ -0,0 +1,98 @@
+package com.cv.review.service.cvservice.util;
+
+import com.cv.review.service.cvservice.dto.ExtractedText;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracción de texto en JVMs hijas de Tika (ForkParser).
+ *
+ * El parseo se hace fuera del heap del servicio: un PDF patológico sólo puede agotar la
+ * memoria o la CPU del proceso hijo, que Tika reinicia. Cada hijo se lanza con un heap
+ * máximo, se reinicia tras procesar maxFilesPerProcess documentos y el hijo termina si
+ * un parseo supera parseTimeoutMillis.
+ */
+public class ForkTextExtractor implements Closeable {
+
+    private final ForkParser parser;
+
+    /**
+     * @param poolSize           número máximo de JVMs hijas
+     * @param javaCommand        ejecutable de java para lanzar los hijos
+     * @param maxHeap            heap máximo de cada hijo (ej: 256m)
+     * @param parseTimeoutMillis tiempo máximo de parseo de un documento en el hijo
+     * @param maxFilesPerProcess documentos tras los que se reinicia un hijo
+     */
+    public ForkTextExtractor(int poolSize, String javaCommand, String maxHeap,
+                             long parseTimeoutMillis, int maxFilesPerProcess) {
+        this(new AutoDetectParser(), poolSize, javaCommand, maxHeap, parseTimeoutMillis, maxFilesPerProcess);
+    }
+
+    /**
+     * @param delegate parser que se ejecuta en los hijos (serializable; otro que el de Tika sólo en tests)
+     */
+    ForkTextExtractor(Parser delegate, int poolSize, String javaCommand, String maxHeap,
+                      long parseTimeoutMillis, int maxFilesPerProcess) {
+        this.parser = new ForkParser(ForkTextExtractor.class.getClassLoader(), delegate);
+        List<String> command = new ArrayList<>();
+        command.add(javaCommand);
+        command.add("-Xmx" + maxHeap);
+        command.add("-XX:+UseSerialGC");
+        command.add("-Djava.awt.headless=true");
+        parser.setJavaCommand(command);
+        parser.setPoolSize(Math.max(1, poolSize));
+        parser.setServerParseTimeoutMillis(parseTimeoutMillis);
+        parser.setMaxFilesProcessedPerServer(maxFilesPerProcess);
+    }
+
+    /**
+     * Lanza un proceso hijo parseando un documento vacío, para comprobar que el pool puede
+     * arrancar antes de recibir documentos.
+     *
+     * @throws Exception si no se puede lanzar ningún hijo (comando java incorrecto, sin memoria...)
+     */
+    public void start() throws Exception {
+        extractText(new ByteArrayInputStream(new byte[0]), 0);
+    }
+
+    /**
+     * Extrae como máximo maxChars caracteres en un proceso hijo (no cierra el stream).
+     *
+     * @param is       contenido del documento
+     * @param maxChars límite de caracteres (0 o negativo = sin límite)
+     * @return texto extraído, marcado como truncado si se alcanzó el límite
+     * @throws Exception si el proceso hijo falla, muere o supera el timeout
+     */
+    public ExtractedText extractText(InputStream is, int maxChars) throws Exception {
+        BodyContentHandler handler = new BodyContentHandler(maxChars > 0 ? maxChars : -1);
+        boolean truncated = false;
+        try {
+            parser.parse(is, handler, new Metadata(), new ParseContext());
+        } catch (Exception e) {
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                throw e;
+            }
+            truncated = true;
+        }
+        String text = handler.toString();
+        // Según el punto en que se corta, el proxy del ForkParser puede no propagar la excepción del límite
+        truncated = truncated || (maxChars > 0 && text.length() >= maxChars);
+        return new ExtractedText(text.trim(), truncated);
+    }
+
+    @Override
+    public void close() {
+        parser.close();
+    }
+}
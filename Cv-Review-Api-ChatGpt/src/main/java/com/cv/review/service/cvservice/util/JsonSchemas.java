@@ -0,0 +1,78 @@
+package com.cv.review.service.cvservice.util;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Set;
+
+/**
+ * Genera el JSON schema de un DTO a partir de sus propiedades Jackson, en el formato que
+ * exige el modo estricto de structured outputs: todas las propiedades obligatorias y
+ * "additionalProperties": false. Así el schema sigue siempre al DTO.
+ */
+public final class JsonSchemas {
+
+    private JsonSchemas() {
+    }
+
+    /**
+     * @param objectMapper mapper cuya configuración decide los nombres de las propiedades
+     * @param type         clase del DTO
+     * @param excluded     propiedades que no debe generar el modelo (p. ej. campos de auditoría)
+     * @return schema de tipo "object"
+     */
+    public static ObjectNode forType(ObjectMapper objectMapper, Class<?> type, Set<String> excluded) {
+        return objectSchema(objectMapper, objectMapper.constructType(type), excluded);
+    }
+
+    private static ObjectNode objectSchema(ObjectMapper objectMapper, JavaType type, Set<String> excluded) {
+        BeanDescription description = objectMapper.getSerializationConfig().introspect(type);
+        ObjectNode schema = objectMapper.createObjectNode().put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        ArrayNode required = schema.putArray("required");
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (excluded.contains(property.getName())) {
+                continue;
+            }
+            properties.set(property.getName(), valueSchema(objectMapper, property.getPrimaryType()));
+            required.add(property.getName());
+        }
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    private static ObjectNode valueSchema(ObjectMapper objectMapper, JavaType type) {
+        Class<?> raw = type.getRawClass();
+        if (type.isContainerType() && type.getContentType() != null && !type.isMapLikeType()) {
+            ObjectNode array = objectMapper.createObjectNode().put("type", "array");
+            array.set("items", valueSchema(objectMapper, type.getContentType()));
+            return array;
+        }
+        if (raw.isEnum()) {
+            ObjectNode schema = objectMapper.createObjectNode().put("type", "string");
+            ArrayNode values = schema.putArray("enum");
+            for (Object constant : raw.getEnumConstants()) {
+                values.add(((Enum<?>) constant).name());
+            }
+            return schema;
+        }
+        if (CharSequence.class.isAssignableFrom(raw) || raw == char.class || raw == Character.class) {
+            return objectMapper.createObjectNode().put("type", "string");
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return objectMapper.createObjectNode().put("type", "boolean");
+        }
+        if (raw == int.class || raw == long.class || raw == short.class || raw == byte.class
+                || raw == Integer.class || raw == Long.class || raw == Short.class || raw == Byte.class) {
+            return objectMapper.createObjectNode().put("type", "integer");
+        }
+        if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+            return objectMapper.createObjectNode().put("type", "number");
+        }
+        return objectSchema(objectMapper, type, Set.of());
+    }
+}
@@ -0,0 +1,59 @@
+package com.cv.review.service.cvservice.util;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rescate del JSON de una respuesta del modelo que no es JSON puro: bloques ```json ... ```
+ * o texto antes y después del objeto.
+ */
+public final class JsonText {
+
+    private static final Pattern FENCE = Pattern.compile("```(?:json|JSON)?\\s*(.*?)```", Pattern.DOTALL);
+
+    private JsonText() {
+    }
+
+    /**
+     * @return el contenido del primer bloque de código si lo hay; si no, el texto entre la primera
+     *         '{' y la última '}' (ambas incluidas); null si no hay nada que parezca un objeto
+     */
+    public static String extractObject(String text) {
+        if (text == null) {
+            return null;
+        }
+        String candidate = text;
+        Matcher fence = FENCE.matcher(text);
+        if (fence.find()) {
+            candidate = fence.group(1);
+        }
+        int start = candidate.indexOf('{');
+        int end = candidate.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        return candidate.substring(start, end + 1);
+    }
+
+    /**
+     * Lee la respuesta como JSON; si no es JSON válido en conjunto, reintenta con el objeto que
+     * devuelve {@link #extractObject}, salvo que no haya ninguno o sea el mismo texto.
+     *
+     * @throws IOException el error de la primera lectura si no hay nada que rescatar, o el de
+     *                     la segunda si el objeto rescatado tampoco es válido
+     */
+    public static <T> T readLeniently(String text, ObjectReader reader) throws IOException {
+        try {
+            return reader.readValue(text);
+        } catch (IOException e) {
+            String extracted = extractObject(text);
+            if (extracted == null || extracted.equals(text)) {
+                throw e;
+            }
+            return reader.readValue(extracted);
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.cv.review.service.cvservice.util;
 
 import org.apache.commons.text.StringEscapeUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Plantillas de prompt para construir la instrucción enviada a OpenAI.
  * Aquí pedimos que la respuesta sea exclusivamente JSON válido con campos concretos,
@@ -10,6 +13,140 @@ import org.apache.commons.text.StringEscapeUtils;
  */
 public class PromptTemplates {
 
+    /**
+     * Versión de las plantillas. Forma parte de la clave de caché de resultados:
+     * increméntala siempre que cambie el texto del prompt.
+     */
+    public static final String VERSION = "5";
+
+    /**
+     * Instrucciones fijas del evaluador, enviadas como mensaje de sistema.
+     */
+    static final String CV_SYSTEM_INSTRUCTIONS = ""
+            + "Eres un experto reclutador. Evalúa el CV del usuario respecto a la vacante proporcionada.\n\n"
+            + "RESPONDE SOLO con un JSON válido (sin texto adicional) con los campos EXACTOS:\n"
+            + "{\n"
+            + "  \"apto\": \"yes\" o \"no\",\n"
+            + "  \"puntuacion\": entero entre 0 y 100,\n"
+            + "  \"competenciasFaltantes\": [array de strings],\n"
+            + "  \"cursosRecomendados\": [array de strings],\n"
+            + "  \"resumen\": \"justificación breve\"\n"
+            + "}\n\n"
+            + "Si no puedes determinar algún campo, devuélvelo con un valor por defecto (por ejemplo puntuacion: 0 o array vacío).\n"
+            + "No incluyas comentarios, explicaciones ni texto fuera del JSON.";
+
+    /**
+     * Construye el prompt de evaluación como mensajes de chat: las instrucciones van en el
+     * mensaje de sistema y la vacante y el CV como partes separadas del mensaje de usuario.
+     *
+     * El orden es instrucciones → vacante → CV: lo que se repite entre peticiones va primero,
+     * de modo que al evaluar muchos CVs contra la misma vacante el prefijo común se aprovecha
+     * de la caché de prompts del proveedor y solo el CV se procesa de nuevo.
+     *
+     * A diferencia de {@link #buildCvPrompt}, el texto no se escapa: cada parte es un string
+     * JSON independiente, así que comillas o barras no pueden romper el prompt, y los acentos
+     * no se convierten en secuencias \\uXXXX que multiplican los tokens.
+     *
+     * @param cvText             Texto extraído del CV (ya puro texto).
+     * @param vacancyDescription Descripción de la vacante.
+     * @return prompt estructurado a enviar a OpenAI
+     */
+    public static ChatPrompt buildCvChatPrompt(String cvText, String vacancyDescription) {
+        return new ChatPrompt(CV_SYSTEM_INSTRUCTIONS, List.of(
+                "VACANTE:\n" + (vacancyDescription == null ? "" : vacancyDescription),
+                "CV:\n" + (cvText == null ? "" : cvText)));
+    }
+
+    /**
+     * Instrucciones fijas del prompt multivacante. No dependen del número de vacantes, para
+     * que el mensaje de sistema sea el mismo en todos los grupos y aproveche la caché de prompts.
+     */
+    static final String MULTI_SYSTEM_INSTRUCTIONS = ""
+            + "Eres un experto reclutador. Evalúa el CV del usuario respecto a CADA una de las "
+            + "vacantes proporcionadas, de forma independiente.\n\n"
+            + "RESPONDE SOLO con un JSON válido (sin texto adicional) con esta forma EXACTA:\n"
+            + "{\n"
+            + "  \"evaluaciones\": [\n"
+            + "    {\n"
+            + "      \"vacante\": número de la vacante (1, 2, ...),\n"
+            + "      \"apto\": \"yes\" o \"no\",\n"
+            + "      \"puntuacion\": entero entre 0 y 100,\n"
+            + "      \"competenciasFaltantes\": [array de strings],\n"
+            + "      \"cursosRecomendados\": [array de strings],\n"
+            + "      \"resumen\": \"justificación breve\"\n"
+            + "    }\n"
+            + "  ]\n"
+            + "}\n\n"
+            + "Incluye exactamente una evaluación por vacante, en el mismo orden.\n"
+            + "Si no puedes determinar algún campo, devuélvelo con un valor por defecto (por ejemplo puntuacion: 0 o array vacío).\n"
+            + "No incluyas comentarios, explicaciones ni texto fuera del JSON.";
+
+    /**
+     * Tokens de las instrucciones y etiquetas fijas del prompt multivacante (sin el CV ni las
+     * vacantes), calculados sobre el texto real para repartir vacantes por llamada.
+     */
+    public static final int MULTI_INSTRUCTIONS_TOKENS = TokenCounter.count(MULTI_SYSTEM_INSTRUCTIONS)
+            + TokenCounter.count(cvPart("")) + TokenCounter.count(vacancyCountPart(99));
+
+    /**
+     * Tokens de la etiqueta que precede a cada vacante del prompt multivacante.
+     */
+    public static final int MULTI_VACANCY_LABEL_TOKENS = TokenCounter.count(vacancyPart(99, ""));
+
+    /**
+     * Construye el prompt que evalúa un CV contra varias vacantes en una sola llamada.
+     * El CV va una sola vez, antes de las vacantes numeradas, y se pide un objeto
+     * {"evaluaciones": [...]} con una evaluación por vacante en el mismo orden.
+     *
+     * El número de vacantes va en el mensaje de usuario, después del CV: el mensaje de sistema
+     * y el CV son el prefijo común de todos los grupos de la misma petición.
+     *
+     * @param cvText    Texto del CV (ya compactado).
+     * @param vacancies Descripciones de las vacantes.
+     * @return prompt estructurado a enviar a OpenAI
+     */
+    public static ChatPrompt buildMultiVacancyPrompt(String cvText, List<String> vacancies) {
+        List<String> parts = new ArrayList<>();
+        parts.add(cvPart(cvText));
+        parts.add(vacancyCountPart(vacancies.size()));
+        for (int i = 0; i < vacancies.size(); i++) {
+            parts.add(vacancyPart(i + 1, vacancies.get(i)));
+        }
+        return new ChatPrompt(MULTI_SYSTEM_INSTRUCTIONS, parts);
+    }
+
+    private static String cvPart(String cvText) {
+        return "CV:\n" + (cvText == null ? "" : cvText);
+    }
+
+    private static String vacancyCountPart(int count) {
+        return "NÚMERO DE VACANTES: " + count;
+    }
+
+    private static String vacancyPart(int number, String vacancy) {
+        return "VACANTE " + number + ":\n" + (vacancy == null ? "" : vacancy);
+    }
+
+    /**
+     * Construye el prompt que resume una parte de un CV largo (modo map-reduce de CvSummarizer).
+     * El resumen no depende de la vacante, para poder reutilizarlo con otras vacantes.
+     *
+     * @param chunk      Fragmento del CV.
+     * @param part       Número de fragmento (desde 1).
+     * @param totalParts Número total de fragmentos.
+     * @param maxTokens  Extensión máxima orientativa del resumen, en tokens.
+     * @return prompt estructurado a enviar a OpenAI
+     */
+    public static ChatPrompt buildCvChunkSummaryPrompt(String chunk, int part, int totalParts, int maxTokens) {
+        String system = ""
+                + "Eres un experto reclutador. Recibirás la parte " + part + " de " + totalParts + " de un CV.\n"
+                + "Resúmela en texto plano, en el idioma del CV y en menos de " + maxTokens + " tokens.\n"
+                + "Conserva los títulos de sección, puestos, empresas, fechas, tecnologías, logros cuantificados, "
+                + "formación y certificaciones. Omite datos de contacto y frases genéricas.\n"
+                + "No evalúes al candidato ni añadas información que no aparezca en el texto.";
+        return new ChatPrompt(system, List.of(chunk == null ? "" : chunk));
+    }
+
     /**
      * Construye un prompt seguro (escapando comillas) que solicita una respuesta JSON.
      *
@@ -1,6 +1,11 @@
 package com.cv.review.service.cvservice.util;
 
+import com.cv.review.service.cvservice.dto.ExtractedText;
 import org.apache.tika.Tika;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
@@ -33,4 +38,27 @@ public class TextExtractor {
             return "";
         }
     }
+
+    /**
+     * Extrae como máximo maxChars caracteres de un InputStream (no lo cierra).
+     *
+     * @param is       contenido del documento
+     * @param maxChars límite de caracteres (0 o negativo = sin límite)
+     * @return texto extraído, marcado como truncado si se alcanzó el límite
+     */
+    public static ExtractedText extractText(InputStream is, int maxChars) throws Exception {
+        // BodyContentHandler(-1) = sin límite; con límite lanza WriteLimitReachedException
+        BodyContentHandler handler = new BodyContentHandler(maxChars > 0 ? maxChars : -1);
+        boolean truncated = false;
+        try {
+            tika.getParser().parse(is, handler, new Metadata(), new ParseContext());
+        } catch (Exception e) {
+            // Algunos parsers envuelven la excepción del límite en una TikaException
+            if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                throw e;
+            }
+            truncated = true;
+        }
+        return new ExtractedText(handler.toString().trim(), truncated);
+    }
 }
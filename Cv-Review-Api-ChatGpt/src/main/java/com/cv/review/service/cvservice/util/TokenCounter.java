@@ -0,0 +1,48 @@
+package com.cv.review.service.cvservice.util;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * Cuenta y recorta texto en tokens con el tokenizador local de OpenAI (o200k_base,
+ * el de la familia gpt-4o), sin llamadas a la API.
+ */
+public class TokenCounter {
+
+    private static final Encoding encoding =
+            Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.O200K_BASE);
+
+    /**
+     * @return número de tokens del texto (0 si es null o vacío)
+     */
+    public static int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return encoding.countTokensOrdinary(text);
+    }
+
+    /**
+     * Recorta el texto a sus primeros maxTokens tokens.
+     *
+     * @return el texto original si cabe; si no, el prefijo que ocupa como máximo maxTokens
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || text.isEmpty() || maxTokens <= 0) {
+            return "";
+        }
+        EncodingResult result = encoding.encodeOrdinary(text, maxTokens);
+        if (!result.isTruncated()) {
+            return text;
+        }
+        String prefix = encoding.decode(result.getTokens());
+        // Un corte a mitad de un carácter multibyte se decodifica como U+FFFD
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == '�') {
+            end--;
+        }
+        return prefix.substring(0, end);
+    }
+}
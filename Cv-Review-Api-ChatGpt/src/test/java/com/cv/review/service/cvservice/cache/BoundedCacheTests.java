@@ -0,0 +1,52 @@
+package com.cv.review.service.cvservice.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	void evictsLeastRecentlyUsedEntry() {
+		BoundedCache<String, String> cache = new BoundedCache<>(2, 0, 0, v -> 1L, now::get);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+
+		assertEquals("1", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("3", cache.get("c"));
+		assertEquals(1, cache.evictionCount());
+	}
+
+	@Test
+	void expiresEntriesAfterTtl() {
+		BoundedCache<String, String> cache = new BoundedCache<>(10, 0, 1000, v -> 1L, now::get);
+		cache.put("a", "1");
+		now.set(999);
+		assertEquals("1", cache.get("a"));
+		now.set(1000);
+		assertNull(cache.get("a"));
+
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.missCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void evictsByTotalWeight() {
+		BoundedCache<String, String> cache = new BoundedCache<>(10, 10, 0, v -> (long) v.length(), now::get);
+		cache.put("a", "12345");
+		cache.put("b", "12345");
+		cache.put("c", "123");
+
+		assertNull(cache.get("a"));
+		assertEquals(8, cache.weight());
+	}
+}
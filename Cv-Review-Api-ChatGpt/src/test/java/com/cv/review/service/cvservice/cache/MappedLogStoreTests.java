@@ -0,0 +1,60 @@
+package com.cv.review.service.cvservice.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cv.review.service.cvservice.util.ContentHash;
+
+class MappedLogStoreTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void survivesReopenWithoutLosingEntries() throws Exception {
+		try (MappedLogStore store = new MappedLogStore(dir, 1 << 20, 16)) {
+			for (int i = 0; i < 100; i++) {
+				store.put(key(i), bytes("value-" + i));
+			}
+			store.put(key(7), bytes("updated"));
+		}
+		try (MappedLogStore store = new MappedLogStore(dir, 1 << 20, 16)) {
+			assertArrayEquals(bytes("value-42"), store.get(key(42), 0));
+			assertArrayEquals(bytes("updated"), store.get(key(7), 0));
+			assertNull(store.get(key(1000), 0));
+		}
+	}
+
+	@Test
+	void compactionKeepsNewestEntriesWithinBound() throws Exception {
+		try (MappedLogStore store = new MappedLogStore(dir, 4096, 16)) {
+			for (int i = 0; i < 200; i++) {
+				store.put(key(i), bytes("value-" + i));
+			}
+			assertTrue(store.needsCompaction());
+			store.compact();
+
+			assertTrue(store.logSize() <= 4096 * 0.75);
+			assertArrayEquals(bytes("value-199"), store.get(key(199), 0));
+			assertNull(store.get(key(0), 0));
+		}
+		try (MappedLogStore store = new MappedLogStore(dir, 4096, 16)) {
+			assertArrayEquals(bytes("value-199"), store.get(key(199), 0));
+		}
+	}
+
+	private static byte[] key(int i) {
+		return ContentHash.newSha256().digest(bytes("key-" + i));
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,35 @@
+package com.cv.review.service.cvservice.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+class ChatCompletionTests {
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	@Test
+	void readsTheFirstChoiceAndTheUsage() throws Exception {
+		String body = "{\"id\":\"x\",\"choices\":[{\"index\":0,\"logprobs\":null,\"message\":{\"role\":\"assistant\","
+				+ "\"content\":\"{\\\"apto\\\":\\\"yes\\\"}\",\"refusal\":null}},{\"message\":{\"content\":\"second\"}}],"
+				+ "\"usage\":{\"prompt_tokens\":100,\"completion_tokens\":20,\"total_tokens\":120,"
+				+ "\"completion_tokens_details\":{\"reasoning_tokens\":0}}}";
+
+		ChatCompletion completion = ChatCompletion.parse(jsonFactory, body);
+
+		assertEquals("{\"apto\":\"yes\"}", completion.content());
+		assertEquals(120, completion.totalTokens());
+	}
+
+	@Test
+	void returnsTheWholeBodyWhenThereIsNoContent() throws Exception {
+		String body = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":null}}]}";
+
+		ChatCompletion completion = ChatCompletion.parse(jsonFactory, body);
+
+		assertEquals(body, completion.content());
+		assertEquals(-1, completion.totalTokens());
+	}
+}
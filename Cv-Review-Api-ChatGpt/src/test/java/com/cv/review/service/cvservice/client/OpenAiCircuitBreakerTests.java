@@ -0,0 +1,129 @@
+package com.cv.review.service.cvservice.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class OpenAiCircuitBreakerTests {
+
+	private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+	private final OpenAiCircuitBreaker breaker = new OpenAiCircuitBreaker(true, 50, 80, Duration.ofSeconds(5),
+			10, 4, Duration.ofSeconds(30), 2,
+			err -> !(err instanceof OpenAiException openAi) || openAi.getStatusCode() >= 500, scheduler);
+
+	@Test
+	void opensWhenTheFailureRateReachesTheThreshold() {
+		succeed();
+		fail(500);
+		succeed();
+		assertEquals(OpenAiCircuitBreaker.State.CLOSED, breaker.state());
+
+		// 2 of 4 calls failed: 50 %
+		fail(503);
+		assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.state());
+
+		AtomicInteger calls = new AtomicInteger();
+		Throwable rejected = error(calls);
+		assertInstanceOf(OpenAiUnavailableException.class, rejected);
+		assertEquals(0, calls.get());
+		assertEquals(Duration.ofSeconds(30), ((OpenAiUnavailableException) rejected).getRetryAfter());
+	}
+
+	@Test
+	void clientErrorsDoNotCountAsFailures() {
+		for (int i = 0; i < 10; i++) {
+			fail(400);
+		}
+		assertEquals(OpenAiCircuitBreaker.State.CLOSED, breaker.state());
+		assertEquals(0f, breaker.failureRate());
+	}
+
+	@Test
+	void opensWhenMostCallsAreSlow() {
+		for (int i = 0; i < 4; i++) {
+			slow();
+		}
+		assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.state());
+	}
+
+	@Test
+	void halfOpenProbesCloseTheBreakerAgain() {
+		openBreaker();
+		assertTrue(breaker.isOpen());
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(30));
+		assertFalse(breaker.isOpen());
+
+		// Two probes are let through, the third call waits for their outcome
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(OpenAiCircuitBreaker.State.HALF_OPEN, breaker.state());
+
+		breaker.onResult(0, false);
+		breaker.onResult(0, false);
+		assertEquals(OpenAiCircuitBreaker.State.CLOSED, breaker.state());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	void failedProbeReopensTheBreaker() {
+		openBreaker();
+		scheduler.advanceTimeBy(Duration.ofSeconds(30));
+
+		succeed();
+		fail(500);
+		assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.state());
+		assertTrue(breaker.isOpen());
+	}
+
+	@Test
+	void cancelledProbeGivesItsSlotBack() {
+		openBreaker();
+		scheduler.advanceTimeBy(Duration.ofSeconds(30));
+
+		breaker.protect(Mono.never()).subscribe().dispose();
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	private void openBreaker() {
+		for (int i = 0; i < 4; i++) {
+			fail(500);
+		}
+		assertEquals(OpenAiCircuitBreaker.State.OPEN, breaker.state());
+	}
+
+	private void succeed() {
+		breaker.protect(Mono.just("ok")).block();
+	}
+
+	private void slow() {
+		breaker.protect(Mono.just("ok").delayElement(Duration.ofSeconds(6), scheduler)).subscribe();
+		scheduler.advanceTimeBy(Duration.ofSeconds(6));
+	}
+
+	private void fail(int status) {
+		breaker.protect(Mono.error(new OpenAiException(status, "status " + status)))
+				.onErrorResume(err -> Mono.empty())
+				.block();
+	}
+
+	private Throwable error(AtomicInteger calls) {
+		return breaker.protect(Mono.fromCallable(calls::incrementAndGet))
+				.then(Mono.<Throwable>empty())
+				.onErrorResume(Mono::just)
+				.block();
+	}
+}
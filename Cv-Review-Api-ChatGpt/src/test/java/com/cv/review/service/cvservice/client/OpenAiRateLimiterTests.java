@@ -0,0 +1,115 @@
+package com.cv.review.service.cvservice.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class OpenAiRateLimiterTests {
+
+	private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+	@Test
+	void waitsForTheRequestBucketToRefill() {
+		OpenAiRateLimiter limiter = new OpenAiRateLimiter(true, 2, 10_000, Duration.ofMinutes(5), scheduler);
+
+		assertTrue(granted(limiter.acquire(10)).get());
+		assertTrue(granted(limiter.acquire(10)).get());
+		AtomicBoolean third = granted(limiter.acquire(10));
+		assertFalse(third.get());
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(29));
+		assertFalse(third.get());
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+		assertTrue(third.get());
+	}
+
+	@Test
+	void servesCallersInArrivalOrder() {
+		OpenAiRateLimiter limiter = new OpenAiRateLimiter(true, 100, 100, Duration.ofMinutes(5), scheduler);
+
+		assertTrue(granted(limiter.acquire(100)).get());
+		AtomicBoolean large = granted(limiter.acquire(80));
+		AtomicBoolean small = granted(limiter.acquire(1));
+
+		// The small call would fit first, but it must not overtake the large one
+		scheduler.advanceTimeBy(Duration.ofSeconds(10));
+		assertFalse(large.get());
+		assertFalse(small.get());
+		scheduler.advanceTimeBy(Duration.ofSeconds(37));
+		assertFalse(large.get());
+		assertFalse(small.get());
+		// 80 tokens at 100 per minute: 48 s
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+		assertTrue(large.get());
+		assertFalse(small.get());
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+		assertTrue(small.get());
+	}
+
+	@Test
+	void pausesForRetryAfter() {
+		OpenAiRateLimiter limiter = new OpenAiRateLimiter(true, 1000, 100_000, Duration.ofMinutes(5), scheduler);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "5");
+
+		assertEquals(Duration.ofSeconds(5), limiter.onThrottled(headers));
+		AtomicBoolean next = granted(limiter.acquire(10));
+		scheduler.advanceTimeBy(Duration.ofMillis(4900));
+		assertFalse(next.get());
+		scheduler.advanceTimeBy(Duration.ofMillis(200));
+		assertTrue(next.get());
+	}
+
+	@Test
+	void followsTheRemainingQuotaReportedByTheApi() {
+		OpenAiRateLimiter limiter = new OpenAiRateLimiter(true, 1000, 100_000, Duration.ofMinutes(5), scheduler);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("x-ratelimit-limit-requests", "60");
+		headers.set("x-ratelimit-remaining-requests", "0");
+		headers.set("x-ratelimit-reset-requests", "2s");
+
+		limiter.onResponse(headers);
+		AtomicBoolean next = granted(limiter.acquire(10));
+		scheduler.advanceTimeBy(Duration.ofMillis(1900));
+		assertFalse(next.get());
+		scheduler.advanceTimeBy(Duration.ofMillis(100));
+		assertTrue(next.get());
+	}
+
+	@Test
+	void failsCallersThatWouldWaitTooLong() {
+		OpenAiRateLimiter limiter = new OpenAiRateLimiter(true, 1, 10_000, Duration.ofSeconds(10), scheduler);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+
+		limiter.acquire(10).subscribe();
+		limiter.acquire(10).subscribe(null, error::set);
+
+		OpenAiRateLimitException limited = assertInstanceOf(OpenAiRateLimitException.class, error.get());
+		assertTrue(limited.isLocal());
+		assertEquals(Duration.ofMinutes(1), limited.getRetryAfter());
+	}
+
+	@Test
+	void parsesResetDurations() {
+		assertEquals(Duration.ofMinutes(6), OpenAiRateLimiter.parseDuration("6m0s"));
+		assertEquals(Duration.ofMillis(20), OpenAiRateLimiter.parseDuration("20ms"));
+		assertEquals(Duration.ofMillis(1500), OpenAiRateLimiter.parseDuration("1.5s"));
+	}
+
+	private static AtomicBoolean granted(Mono<Void> acquire) {
+		AtomicBoolean done = new AtomicBoolean();
+		acquire.subscribe(null, null, () -> done.set(true));
+		return done;
+	}
+}
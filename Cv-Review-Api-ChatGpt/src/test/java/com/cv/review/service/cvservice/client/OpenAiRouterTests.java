@@ -0,0 +1,162 @@
+package com.cv.review.service.cvservice.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.cv.review.service.cvservice.config.OpenAiProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+class OpenAiRouterTests {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<HttpServer> servers = new ArrayList<>();
+	private final List<OpenAiEndpoint> endpoints = new ArrayList<>();
+
+	@AfterEach
+	void stopServers() {
+		servers.forEach(server -> server.stop(0));
+	}
+
+	@Test
+	void slowPrimaryIsHedgedToTheSecondary() {
+		Stub primary = stub(2000, 200, "primary");
+		Stub secondary = stub(50, 200, "secondary");
+		OpenAiRouter router = router(true, Duration.ofMillis(200), primary, secondary);
+
+		long start = System.nanoTime();
+		assertEquals("secondary", call(router));
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+		assertEquals(1, primary.calls.get());
+		assertEquals(1, secondary.calls.get());
+		assertEquals(1.0, meterRegistry.get("cvreview.openai.hedge.won").counter().count());
+	}
+
+	@Test
+	void fastPrimaryIsNotHedged() {
+		Stub primary = stub(20, 200, "primary");
+		Stub secondary = stub(20, 200, "secondary");
+		OpenAiRouter router = router(true, Duration.ofMillis(1000), primary, secondary);
+
+		assertEquals("primary", call(router));
+		assertEquals(0, secondary.calls.get());
+	}
+
+	@Test
+	void failedPrimaryFailsOverWithoutWaitingForTheDelay() {
+		Stub primary = stub(0, 500, "primary");
+		Stub secondary = stub(0, 200, "secondary");
+		OpenAiRouter router = router(false, Duration.ofSeconds(10), primary, secondary);
+
+		long start = System.nanoTime();
+		assertEquals("secondary", call(router));
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 5000);
+	}
+
+	@Test
+	void reportsTheErrorOfThePrimaryWhenEveryEndpointFails() {
+		OpenAiRouter router = router(true, Duration.ofMillis(100), stub(300, 503, "primary"), stub(0, 500, "secondary"));
+
+		Throwable error = router.hedged(endpoint -> endpoint.send("{}", 10))
+				.then(Mono.<Throwable>empty())
+				.onErrorResume(Mono::just)
+				.block(Duration.ofSeconds(10));
+		assertInstanceOf(OpenAiException.class, error);
+		assertEquals(503, ((OpenAiException) error).getStatusCode());
+	}
+
+	@Test
+	void hedgeDelayFollowsThePercentileOfObservedLatencies() {
+		OpenAiRouter router = router(true, Duration.ofSeconds(10), stub(0, 200, "primary"), stub(0, 200, "secondary"));
+		OpenAiEndpoint endpoint = endpoints.get(0);
+
+		// Not enough samples yet: initial delay
+		assertEquals(Duration.ofSeconds(10), router.hedgeDelay(endpoint));
+		for (int i = 1; i <= 100; i++) {
+			endpoint.recordLatency(Duration.ofMillis(i).toNanos(), true);
+		}
+		assertEquals(Duration.ofMillis(95), router.hedgeDelay(endpoint));
+	}
+
+	private OpenAiRouter router(boolean hedging, Duration initialDelay, Stub... stubs) {
+		OpenAiProperties properties = new OpenAiProperties();
+		properties.getBulkhead().setMaxConcurrentCalls(10);
+		properties.getTimeouts().setResponseMs(10_000);
+		properties.getRouting().getHedging().setEnabled(hedging);
+		properties.getRouting().getHedging().setInitialDelayMs(initialDelay.toMillis());
+		properties.getRouting().getHedging().setMinDelayMs(10);
+		properties.getRouting().getHedging().setLatencySamples(100);
+		for (Stub stub : stubs) {
+			endpoints.add(new OpenAiEndpoint(stub.url, "key", null, HttpClient.create(),
+					new OpenAiRateLimiter(false, 500, 200_000, Duration.ofMinutes(1), Schedulers.parallel()),
+					new OpenAiCircuitBreaker(false, 50, 80, Duration.ofSeconds(20), 20, 10, Duration.ofSeconds(30), 3,
+							OpenAiEndpoint::isFailure, Schedulers.parallel()),
+					Retry.max(0).filter(err -> false), properties, new JsonFactory(), meterRegistry));
+		}
+		return new OpenAiRouter(endpoints, properties, Schedulers.parallel(), meterRegistry);
+	}
+
+	private static String call(OpenAiRouter router) {
+		return router.hedged(endpoint -> endpoint.send("{}", 10))
+				.map(ChatCompletion::content)
+				.block(Duration.ofSeconds(10));
+	}
+
+	private record Stub(String url, AtomicInteger calls) {
+	}
+
+	/**
+	 * Local chat completions server answering after delayMillis with the given status and content.
+	 */
+	private Stub stub(long delayMillis, int status, String content) {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			AtomicInteger calls = new AtomicInteger();
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.createContext("/", exchange -> {
+				calls.incrementAndGet();
+				exchange.getRequestBody().readAllBytes();
+				try {
+					Thread.sleep(delayMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = ("{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"}}]}")
+						.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				try {
+					exchange.sendResponseHeaders(status, body.length);
+					exchange.getResponseBody().write(body);
+				} catch (IOException e) {
+					// The client cancelled the call (hedge lost)
+				}
+				exchange.close();
+			});
+			server.start();
+			servers.add(server);
+			return new Stub("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions", calls);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
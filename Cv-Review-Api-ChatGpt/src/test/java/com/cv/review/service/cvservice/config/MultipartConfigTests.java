@@ -0,0 +1,27 @@
+package com.cv.review.service.cvservice.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+
+class MultipartConfigTests {
+
+	private final MultipartResolver resolver = new MultipartConfig().multipartResolver(new MultipartProperties());
+
+	@Test
+	void onlyThePipelinedEndpointIsLeftUnresolved() {
+		assertTrue(resolver.isMultipart(multipart("/api/v1/reviews")));
+		assertTrue(resolver.isMultipart(multipart("/api/v1/reviews/bulk")));
+		assertFalse(resolver.isMultipart(multipart("/api/v1/reviews/pipelined")));
+	}
+
+	private static MockHttpServletRequest multipart(String uri) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+		request.setContentType("multipart/form-data; boundary=x");
+		return request;
+	}
+}
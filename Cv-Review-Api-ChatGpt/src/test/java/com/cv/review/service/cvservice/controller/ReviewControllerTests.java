@@ -0,0 +1,145 @@
+package com.cv.review.service.cvservice.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.cv.review.service.cvservice.client.OpenAiRateLimitException;
+import com.cv.review.service.cvservice.dto.BulkReviewResult;
+import com.cv.review.service.cvservice.dto.ExtractedText;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.service.BulkReviewService;
+import com.cv.review.service.cvservice.service.CvReviewService;
+import com.cv.review.service.cvservice.service.StreamingUploadService;
+import com.cv.review.service.cvservice.service.TextExtractionService;
+import com.cv.review.service.cvservice.service.VacancyService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class ReviewControllerTests {
+
+	private final CvReviewService reviewService = mock(CvReviewService.class);
+	private final TextExtractionService extractionService = mock(TextExtractionService.class);
+	private final VacancyService vacancyService = new VacancyService(100, 60_000, new SimpleMeterRegistry());
+	private final ReviewController controller = new ReviewController(reviewService, new BulkReviewService(reviewService, 2),
+			extractionService, mock(StreamingUploadService.class), vacancyService, Jackson2ObjectMapperBuilder.json().build(), 3);
+
+	@Test
+	void invalidNdjsonLinesAreReportedPerItem() {
+		when(reviewService.reviewText(anyString(), eq("Backend Java"), anyBoolean())).thenReturn(Mono.just(review(80)));
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/reviews/bulk");
+		request.setContent("""
+				{"id":"a","cvText":"Java developer"}
+				not json
+
+				{"cvText":""}
+				{"cvText":"SQL developer","truncated":true}
+				""".getBytes(StandardCharsets.UTF_8));
+
+		Map<String, BulkReviewResult> results = controller.reviewBulkText(request, "Backend Java", null).getBody()
+				.collectMap(BulkReviewResult::getId, Function.identity())
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(4, results.size());
+		assertEquals(80, results.get("a").getReview().getPuntuacion());
+		// Ids of lines without one are their line number in the body, blank lines included
+		assertNull(results.get("2").getReview());
+		assertEquals("Text cannot be extracted from the CV.", results.get("2").getError());
+		assertEquals("Text cannot be extracted from the CV.", results.get("4").getError());
+		assertEquals(80, results.get("5").getReview().getPuntuacion());
+		// The truncation flag is set by the server only, never read from the request
+		verify(reviewService).reviewText("SQL developer", "Backend Java", false);
+	}
+
+	@Test
+	void bulkFilesReportQueueFullAndTimeoutAsTheirOwnErrors() {
+		when(reviewService.reviewText(anyString(), eq("Backend Java"), anyBoolean())).thenReturn(Mono.just(review(80)));
+		MockMultipartFile ok = file("ok.txt");
+		MockMultipartFile busy = file("busy.txt");
+		MockMultipartFile slow = file("slow.txt");
+		MockMultipartFile broken = file("broken.txt");
+		when(extractionService.extract(ok)).thenReturn(Mono.just(new ExtractedText("Java developer", false)));
+		when(extractionService.extract(busy)).thenReturn(Mono.error(new RejectedExecutionException()));
+		when(extractionService.extract(slow)).thenReturn(Mono.error(new TimeoutException()));
+		when(extractionService.extract(broken)).thenReturn(Mono.error(new IllegalStateException("corrupt")));
+
+		Map<String, BulkReviewResult> results = controller.reviewBulkFiles(List.of(ok, busy, slow, broken), "Backend Java", null)
+				.getBody()
+				.collectMap(BulkReviewResult::getId, Function.identity())
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(80, results.get("ok.txt").getReview().getPuntuacion());
+		assertEquals("Too many documents being processed, please try again later.", results.get("busy.txt").getError());
+		assertEquals("The file could not be processed in time.", results.get("slow.txt").getError());
+		assertEquals("Text cannot be extracted from the CV.", results.get("broken.txt").getError());
+		assertNull(results.get("busy.txt").getReview());
+	}
+
+	@Test
+	void streamWithUnknownVacancyIsNotFoundBeforeStreaming() {
+		ResponseEntity<?> response = controller.reviewCvStream(file("cv.txt"), null, "unknown");
+
+		assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+		assertNull(response.getBody());
+		verifyNoInteractions(extractionService);
+	}
+
+	@Test
+	void multiWithTooManyVacanciesIsRejectedBeforeReadingTheFile() {
+		ResponseEntity<?> tooMany = controller.reviewCvMulti(file("cv.txt"), List.of("unknown-1", "unknown-2"),
+				List.of("Backend Java", "Data Python")).block(Duration.ofSeconds(5));
+		ResponseEntity<?> none = controller.reviewCvMulti(file("cv.txt"), null, null).block(Duration.ofSeconds(5));
+
+		assertEquals(HttpStatus.BAD_REQUEST, tooMany.getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, none.getStatusCode());
+		verifyNoInteractions(extractionService);
+	}
+
+	@Test
+	void rateLimitedMultiReviewIsTooManyRequestsWithRetryAfter() {
+		MockMultipartFile cv = file("cv.txt");
+		when(extractionService.extract(cv)).thenReturn(Mono.just(new ExtractedText("Java developer", false)));
+		when(reviewService.reviewTextMulti(anyString(), eq(List.of("Backend Java")), anyBoolean()))
+				.thenReturn(Mono.error(new OpenAiRateLimitException("limited", Duration.ofSeconds(7), false)));
+
+		ResponseEntity<?> response = controller.reviewCvMulti(cv, null, List.of("Backend Java")).block(Duration.ofSeconds(5));
+
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+		assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+	}
+
+	private static MockMultipartFile file(String name) {
+		return new MockMultipartFile("files", name, "text/plain", name.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static ReviewResponse review(int score) {
+		ReviewResponse review = new ReviewResponse();
+		review.setApto(score >= 60 ? "yes" : "no");
+		review.setPuntuacion(score);
+		review.setResumen("ok");
+		return review;
+	}
+}
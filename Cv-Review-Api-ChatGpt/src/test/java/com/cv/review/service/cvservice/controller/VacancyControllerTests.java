@@ -0,0 +1,44 @@
+package com.cv.review.service.cvservice.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.cv.review.service.cvservice.dto.VacancyRequest;
+import com.cv.review.service.cvservice.dto.VacancyResponse;
+import com.cv.review.service.cvservice.service.VacancyService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VacancyControllerTests {
+
+	private final VacancyController controller = new VacancyController(new VacancyService(100, 60_000, new SimpleMeterRegistry()));
+
+	@Test
+	void registeredVacancyCanBeReadAndDeleted() {
+		ResponseEntity<VacancyResponse> created = controller.register(request("Backend Java"));
+		String id = created.getBody().getId();
+
+		assertEquals(HttpStatus.CREATED, created.getStatusCode());
+		assertEquals("/api/v1/vacancies/" + id, created.getHeaders().getLocation().toString());
+		assertEquals("Backend Java", controller.get(id).getBody().getDescription());
+
+		assertEquals(HttpStatus.NO_CONTENT, controller.delete(id).getStatusCode());
+		assertEquals(HttpStatus.NOT_FOUND, controller.get(id).getStatusCode());
+		assertEquals(HttpStatus.NOT_FOUND, controller.delete(id).getStatusCode());
+	}
+
+	@Test
+	void blankDescriptionIsABadRequest() {
+		assertEquals(HttpStatus.BAD_REQUEST, controller.register(request(" ")).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, controller.register(request(null)).getStatusCode());
+	}
+
+	private static VacancyRequest request(String description) {
+		VacancyRequest request = new VacancyRequest();
+		request.setDescription(description);
+		return request;
+	}
+}
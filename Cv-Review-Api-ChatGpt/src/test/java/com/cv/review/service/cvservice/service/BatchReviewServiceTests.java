@@ -0,0 +1,331 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.cv.review.service.cvservice.cache.DiskReviewStore;
+import com.cv.review.service.cvservice.cache.ReviewCache;
+import com.cv.review.service.cvservice.client.OpenAiBatchClient;
+import com.cv.review.service.cvservice.client.OpenAiClient;
+import com.cv.review.service.cvservice.config.OpenAiProperties;
+import com.cv.review.service.cvservice.dto.BatchJobResponse;
+import com.cv.review.service.cvservice.dto.BatchJobStatus;
+import com.cv.review.service.cvservice.dto.BulkReviewItem;
+import com.cv.review.service.cvservice.dto.BulkReviewResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class BatchReviewServiceTests {
+
+	private static final String ANSWER = "{\"apto\":\"yes\",\"puntuacion\":80,\"resumen\":\"ok\"}";
+
+	@TempDir
+	Path dir;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final BatchStub stub = new BatchStub();
+	private final CvReviewService reviewService = reviewService();
+
+	@AfterEach
+	void stopStub() {
+		stub.server.stop(0);
+	}
+
+	@Test
+	void resultsAreMappedBackByCustomId() throws IOException {
+		stub.failing.add("c");
+		BatchReviewService service = service();
+
+		BatchJobResponse job = service.submit(items("a", "b", "c"), "Backend Java").block(Duration.ofSeconds(10));
+		assertEquals(BatchJobStatus.SUBMITTED, job.getStatus());
+		assertEquals(3, stub.inputs.get(0).size());
+		assertEquals("/v1/chat/completions", stub.inputs.get(0).get(0).path("url").asText());
+		assertEquals("gpt-4o-mini", stub.inputs.get(0).get(0).path("body").path("model").asText());
+
+		// First poll: still running
+		assertEquals(BatchJobStatus.SUBMITTED, service.poll(job.getJobId()).block(Duration.ofSeconds(10)).getStatus());
+		job = service.poll(job.getJobId()).block(Duration.ofSeconds(10));
+
+		assertEquals(BatchJobStatus.PARTIAL, job.getStatus());
+		assertEquals(2, job.getCompleted());
+		assertEquals(1, job.getFailed());
+		assertEquals(80, result(job, "a").getReview().getPuntuacion());
+		assertNull(result(job, "c").getReview());
+		assertEquals("Invalid prompt", result(job, "c").getError());
+
+		// Reviews mapped from the batch are cached: the same CVs need no new batch
+		BatchJobResponse again = service.submit(items("a", "b"), "Backend Java").block(Duration.ofSeconds(10));
+		assertEquals(BatchJobStatus.COMPLETED, again.getStatus());
+		assertEquals(1, stub.inputs.size());
+	}
+
+	@Test
+	void partialJobIsResumedAfterARestartWithOnlyTheMissingReviews() throws IOException {
+		stub.failing.add("b");
+		BatchReviewService service = service();
+		String jobId = service.submit(items("a", "b"), "Data engineer").block(Duration.ofSeconds(10)).getJobId();
+		service.poll(jobId).block(Duration.ofSeconds(10));
+		service.poll(jobId).block(Duration.ofSeconds(10));
+		service.shutdown();
+
+		// A new instance reads the persisted job
+		stub.failing.clear();
+		BatchReviewService restarted = service();
+		BatchJobResponse job = restarted.getJob(jobId);
+		assertEquals(BatchJobStatus.PARTIAL, job.getStatus());
+		assertNotNull(result(job, "a").getReview());
+
+		assertEquals(BatchJobStatus.SUBMITTED, restarted.resume(jobId).block(Duration.ofSeconds(10)).getStatus());
+		assertEquals(1, stub.inputs.get(1).size());
+		assertEquals("b", stub.inputs.get(1).get(0).path("custom_id").asText());
+
+		restarted.poll(jobId).block(Duration.ofSeconds(10));
+		job = restarted.poll(jobId).block(Duration.ofSeconds(10));
+		assertEquals(BatchJobStatus.COMPLETED, job.getStatus());
+		assertEquals(2, job.getCompleted());
+		assertNotNull(result(job, "b").getReview());
+		restarted.shutdown();
+	}
+
+	@Test
+	void failedResumeKeepsTheJobResumableWithItsResults() throws IOException {
+		stub.failing.add("b");
+		BatchReviewService service = service();
+		String jobId = service.submit(items("a", "b"), "Data engineer").block(Duration.ofSeconds(10)).getJobId();
+		service.poll(jobId).block(Duration.ofSeconds(10));
+		service.poll(jobId).block(Duration.ofSeconds(10));
+
+		// Without the original input the retry file cannot be written
+		Path input = dir.resolve(jobId + "-input.jsonl");
+		Path moved = Files.move(input, dir.resolve("moved.jsonl"));
+		assertThrows(Exception.class, () -> service.resume(jobId).block(Duration.ofSeconds(10)));
+
+		BatchJobResponse job = service.getJob(jobId);
+		assertEquals(BatchJobStatus.PARTIAL, job.getStatus());
+		assertEquals("Invalid prompt", result(job, "b").getError());
+		assertEquals(Set.of(jobId + ".json", "moved.jsonl"), files());
+
+		Files.move(moved, input);
+		stub.failing.clear();
+		assertEquals(BatchJobStatus.SUBMITTED, service.resume(jobId).block(Duration.ofSeconds(10)).getStatus());
+		assertEquals("b", stub.inputs.get(1).get(0).path("custom_id").asText());
+		service.shutdown();
+	}
+
+	@Test
+	void duplicateIdsAreListedAndOnlyTheFirstIsReviewed() throws IOException {
+		BatchReviewService service = service();
+
+		BatchJobResponse job = service.submit(items("a", "b", "a", "a"), "Frontend React").block(Duration.ofSeconds(10));
+
+		assertEquals(List.of("a", "a"), job.getDuplicateIds());
+		assertEquals(2, stub.inputs.get(0).size());
+		service.poll(job.getJobId()).block(Duration.ofSeconds(10));
+		job = service.poll(job.getJobId()).block(Duration.ofSeconds(10));
+		assertEquals(List.of("a", "b"), job.getResults().stream().map(BulkReviewResult::getId).toList());
+		assertEquals(List.of("a", "a"), service.getJob(job.getJobId()).getDuplicateIds());
+		service.shutdown();
+	}
+
+	@Test
+	void finishedJobsArePurgedWithTheirFilesAfterTheRetention() throws Exception {
+		BatchReviewService service = service(0);
+		String jobId = service.submit(items("a", "b"), "DevOps AWS").block(Duration.ofSeconds(10)).getJobId();
+		service.poll(jobId).block(Duration.ofSeconds(10));
+		service.poll(jobId).block(Duration.ofSeconds(10));
+
+		// Downloaded output files are deleted once mapped: only the state and the input are left
+		assertEquals(Set.of(jobId + ".json", jobId + "-input.jsonl"), files());
+		Thread.sleep(5);
+		service.purgeFinishedJobs();
+
+		assertNull(service.getJob(jobId));
+		assertEquals(Set.of(), files());
+		service.shutdown();
+	}
+
+	private Set<String> files() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+		}
+	}
+
+	private BatchReviewService service() throws IOException {
+		return service(3_600_000);
+	}
+
+	private BatchReviewService service(long retentionMillis) throws IOException {
+		OpenAiProperties openAi = new OpenAiProperties();
+		openAi.setApiUrl("http://unused/v1/chat/completions");
+		openAi.setApiKey("key");
+		OpenAiBatchClient batchClient = new OpenAiBatchClient(stub.url, "24h", 10_000, openAi, objectMapper);
+		return new BatchReviewService(reviewService, batchClient, objectMapper, dir.toString(), 2, 3_600_000, 10_000,
+				retentionMillis, new SimpleMeterRegistry());
+	}
+
+	private CvReviewService reviewService() {
+		DiskReviewStore store = mock(DiskReviewStore.class);
+		when(store.get(anyString())).thenReturn(Mono.empty());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		return new CvReviewService(mock(OpenAiClient.class),
+				new ReviewCache(100, 60_000, meterRegistry),
+				store,
+				new CvCompactor(600, 300, "experience,skills,summary,header,education,other"),
+				mock(VacancyService.class),
+				mock(CvSummarizer.class),
+				mock(SkillPreFilter.class),
+				new ModelTierRouter(false, "", "", "", "gpt-4o-mini", mock(SkillPreFilter.class), meterRegistry),
+				objectMapper,
+				true, 5, 4000, 20);
+	}
+
+	private static Flux<BulkReviewItem> items(String... ids) {
+		return Flux.fromArray(ids).map(id -> new BulkReviewItem(id, "CV " + id + ": Java developer with SQL"));
+	}
+
+	private static BulkReviewResult result(BatchJobResponse job, String id) {
+		return job.getResults().stream().filter(result -> id.equals(result.getId())).findFirst().orElseThrow();
+	}
+
+	/**
+	 * Local Batch API: /files (upload and content), /batches (create and get). A batch is
+	 * in_progress on the first GET and completed on the next one; custom_ids in "failing" go
+	 * to the error file.
+	 */
+	private class BatchStub {
+
+		final HttpServer server;
+		final String url;
+		final Set<String> failing = ConcurrentHashMap.newKeySet();
+		final List<List<JsonNode>> inputs = new ArrayList<>();
+		final Map<String, String> files = new ConcurrentHashMap<>();
+		final Map<String, String> batchInputs = new ConcurrentHashMap<>();
+		final Map<String, AtomicInteger> batchGets = new ConcurrentHashMap<>();
+		final AtomicInteger ids = new AtomicInteger();
+
+		BatchStub() {
+			try {
+				server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			server.createContext("/v1/files", this::files);
+			server.createContext("/v1/batches", this::batches);
+			server.start();
+			url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+		}
+
+		private void files(HttpExchange exchange) throws IOException {
+			String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			String path = exchange.getRequestURI().getPath();
+			if ("POST".equals(exchange.getRequestMethod())) {
+				// Multipart: the request lines are the ones that are JSON objects
+				StringBuilder jsonl = new StringBuilder();
+				List<JsonNode> lines = new ArrayList<>();
+				for (String line : body.split("\r?\n")) {
+					if (line.startsWith("{")) {
+						jsonl.append(line).append('\n');
+						lines.add(objectMapper.readTree(line));
+					}
+				}
+				inputs.add(lines);
+				String id = "file-" + ids.incrementAndGet();
+				files.put(id, jsonl.toString());
+				respond(exchange, 200, "{\"id\":\"" + id + "\",\"object\":\"file\",\"purpose\":\"batch\"}");
+			} else if (path.endsWith("/content")) {
+				String id = path.substring("/v1/files/".length(), path.length() - "/content".length());
+				respond(exchange, 200, files.getOrDefault(id, ""));
+			} else {
+				respond(exchange, 404, "{}");
+			}
+		}
+
+		private void batches(HttpExchange exchange) throws IOException {
+			String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			if ("POST".equals(exchange.getRequestMethod())) {
+				String id = "batch-" + ids.incrementAndGet();
+				batchInputs.put(id, objectMapper.readTree(body).path("input_file_id").asText());
+				batchGets.put(id, new AtomicInteger());
+				respond(exchange, 200, batch(id, "validating", null, null));
+				return;
+			}
+			String id = exchange.getRequestURI().getPath().substring("/v1/batches/".length());
+			if (batchGets.get(id).incrementAndGet() == 1) {
+				respond(exchange, 200, batch(id, "in_progress", null, null));
+				return;
+			}
+			StringBuilder output = new StringBuilder();
+			StringBuilder errors = new StringBuilder();
+			for (String line : files.get(batchInputs.get(id)).split("\n")) {
+				String customId = objectMapper.readTree(line).path("custom_id").asText();
+				ObjectNode result = objectMapper.createObjectNode().put("id", "req-" + customId).put("custom_id", customId);
+				if (failing.contains(customId)) {
+					ObjectNode response = result.putObject("response").put("status_code", 400);
+					response.putObject("body").putObject("error").put("message", "Invalid prompt");
+					errors.append(result).append('\n');
+				} else {
+					ObjectNode response = result.putObject("response").put("status_code", 200);
+					response.putObject("body").putArray("choices").addObject().putObject("message")
+							.put("role", "assistant").put("content", ANSWER);
+					result.putNull("error");
+					output.append(result).append('\n');
+				}
+			}
+			String outputId = "file-" + ids.incrementAndGet();
+			files.put(outputId, output.toString());
+			String errorId = null;
+			if (errors.length() > 0) {
+				errorId = "file-" + ids.incrementAndGet();
+				files.put(errorId, errors.toString());
+			}
+			respond(exchange, 200, batch(id, "completed", outputId, errorId));
+		}
+
+		private String batch(String id, String status, String outputFileId, String errorFileId) {
+			ObjectNode batch = objectMapper.createObjectNode().put("id", id).put("object", "batch").put("status", status)
+					.put("output_file_id", outputFileId).put("error_file_id", errorFileId);
+			batch.putObject("request_counts").put("total", 0).put("completed", 0).put("failed", 0);
+			return batch.toString();
+		}
+
+		private void respond(HttpExchange exchange, int status, String body) throws IOException {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, bytes.length);
+			exchange.getResponseBody().write(bytes);
+			exchange.close();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.cv.review.service.cvservice.util.TokenCounter;
+
+class CvCompactorTests {
+
+	private final CvCompactor compactor = new CvCompactor(120, 50,
+			"experience,skills,summary,header,education,other");
+
+	@Test
+	void keepsShortCvUntouchedExceptWhitespace() {
+		CvCompactor.Compacted result = compactor.compactCv("Ana Pérez\n\n\n   Java   developer  \n");
+
+		assertFalse(result.truncated());
+		assertEquals("Ana Pérez\nJava developer", result.text());
+	}
+
+	@Test
+	void keepsEverySectionWithinBudget() {
+		String cv = "Ana Pérez - ana@example.com\n"
+				+ "Formación académica\n" + "Ingeniería en Sistemas, Universidad de Guadalajara. ".repeat(30) + "\n"
+				+ "EXPERIENCIA LABORAL:\n" + "Desarrolladora backend Java con Spring Boot y microservicios. ".repeat(30) + "\n"
+				+ "Habilidades\n" + "Java, Spring, Docker, Kubernetes, PostgreSQL, Kafka\n";
+
+		CvCompactor.Compacted result = compactor.compactCv(cv);
+
+		assertTrue(result.truncated());
+		assertTrue(TokenCounter.count(result.text()) <= 120 + 5);
+		assertTrue(result.text().contains("EXPERIENCIA LABORAL:"));
+		assertTrue(result.text().contains("Kubernetes"));
+		assertTrue(result.text().contains("Formación académica"));
+		// Experience has priority over education, so it gets the leftover tokens
+		int experience = result.text().indexOf("EXPERIENCIA LABORAL:");
+		int skills = result.text().indexOf("Habilidades");
+		int education = result.text().indexOf("Formación académica");
+		assertTrue(skills - experience > experience - education);
+	}
+
+	@Test
+	void detectsHeadingsInSpanishAndEnglish() {
+		assertEquals("experience", CvCompactor.headingKind("Experiencia Profesional"));
+		assertEquals("skills", CvCompactor.headingKind("TECHNICAL SKILLS:"));
+		assertEquals("education", CvCompactor.headingKind("  Educación "));
+		assertNull(CvCompactor.headingKind("Desarrollé APIs de experiencia de usuario"));
+	}
+}
@@ -0,0 +1,316 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.cv.review.service.cvservice.cache.DiskReviewStore;
+import com.cv.review.service.cvservice.cache.ReviewCache;
+import com.cv.review.service.cvservice.client.ChatCompletion;
+import com.cv.review.service.cvservice.client.OpenAiClient;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+import com.cv.review.service.cvservice.dto.ReviewStreamEvent;
+import com.cv.review.service.cvservice.util.ChatPrompt;
+import com.cv.review.service.cvservice.util.PromptTemplates;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class CvReviewServiceTests {
+
+	private static final String ANSWER = "{\"apto\":\"yes\",\"puntuacion\":80,\"resumen\":\"ok\"}";
+
+	private final OpenAiClient openAiClient = mock(OpenAiClient.class);
+	private final CvSummarizer summarizer = mock(CvSummarizer.class);
+	private final SkillPreFilter preFilter = mock(SkillPreFilter.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CvReviewService service;
+	private final CvReviewService tieredService;
+	// Vacancies of each model call, in the order of the prompt
+	private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+
+	CvReviewServiceTests() {
+		service = service(new ModelTierRouter(false, "", "", "", "gpt-4o-mini", mock(SkillPreFilter.class), meterRegistry));
+		tieredService = service(new ModelTierRouter(true, "fast:gpt-4o-mini,strong:gpt-4o", "fast", "", "gpt-4o-mini",
+				mock(SkillPreFilter.class), meterRegistry));
+	}
+
+	private CvReviewService service(ModelTierRouter tierRouter) {
+		return service(tierRouter, 5, 4000);
+	}
+
+	private CvReviewService service(ModelTierRouter tierRouter, int vacanciesPerCall, int maxMultiPromptTokens) {
+		DiskReviewStore store = mock(DiskReviewStore.class);
+		when(store.get(anyString())).thenReturn(Mono.empty());
+		return new CvReviewService(openAiClient,
+				new ReviewCache(100, 60_000, new SimpleMeterRegistry()),
+				store,
+				new CvCompactor(600, 300, "experience,skills,summary,header,education,other"),
+				mock(VacancyService.class),
+				summarizer,
+				preFilter,
+				tierRouter,
+				Jackson2ObjectMapperBuilder.json().build(),
+				true, vacanciesPerCall, maxMultiPromptTokens, 20);
+	}
+
+	@Test
+	void concurrentIdenticalReviewsShareOneCall() {
+		AtomicInteger calls = new AtomicInteger();
+		when(openAiClient.complete(anyString(), any(ChatPrompt.class))).thenReturn(Mono.defer(() -> {
+			calls.incrementAndGet();
+			return Mono.delay(Duration.ofMillis(200)).thenReturn(new ChatCompletion(ANSWER, 100));
+		}));
+
+		Mono<ReviewResponse> first = service.reviewText("Java developer", "Backend Java", false);
+		Mono<ReviewResponse> second = service.reviewText("Java  developer", "Backend Java", false);
+		var both = Mono.zip(first, second).block(Duration.ofSeconds(5));
+
+		assertEquals(1, calls.get());
+		assertSame(both.getT1(), both.getT2());
+		// Once finished, the next identical request comes from the cache
+		service.reviewText("Java developer", "Backend Java", false).block(Duration.ofSeconds(5));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void sharedCallIsCancelledOnlyWhenEverySubscriberCancels() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		when(openAiClient.complete(anyString(), any(ChatPrompt.class)))
+				.thenReturn(Mono.<ChatCompletion>never().doOnCancel(() -> cancelled.set(true)));
+
+		Disposable first = service.reviewText("Python developer", "Data", false).subscribe();
+		Disposable second = service.reviewText("Python developer", "Data", false).subscribe();
+
+		first.dispose();
+		assertFalse(cancelled.get());
+		second.dispose();
+		assertTrue(cancelled.get());
+	}
+
+	@Test
+	void reviewThatIsNeverSubscribedIsNotJoinedByLaterCalls() {
+		when(openAiClient.complete(anyString(), any(ChatPrompt.class))).thenReturn(Mono.just(new ChatCompletion(ANSWER, 100)));
+
+		// Assembled for a truncated CV but dropped before subscribing
+		service.reviewText("Elixir developer", "Backend Elixir", true);
+		ReviewResponse review = service.reviewText("Elixir developer", "Backend Elixir", false).block(Duration.ofSeconds(5));
+
+		assertEquals("ok", review.getResumen());
+	}
+
+	@Test
+	void batchEntryAnsweredWithoutTheModelDoesNotTouchTheSummarizer() {
+		ReviewResponse screened = new ReviewResponse();
+		screened.setApto("no");
+		when(preFilter.screen(anyString(), anyString(), any())).thenReturn(screened);
+
+		CvReviewService.BatchEntry entry = service.prepareBatchEntry("Java developer", "Python developer", false)
+				.block(Duration.ofSeconds(5));
+
+		assertSame(screened, entry.review());
+		verifyNoInteractions(summarizer);
+	}
+
+	@Test
+	void answerWrappedInMarkdownIsParsed() {
+		when(openAiClient.complete(anyString(), any(ChatPrompt.class)))
+				.thenReturn(Mono.just(new ChatCompletion("Here is the evaluation:\n```json\n" + ANSWER + "\n```\nGood luck!", 100)));
+
+		ReviewResponse review = service.reviewText("Go developer", "Backend Go", false).block(Duration.ofSeconds(5));
+
+		assertEquals("yes", review.getApto());
+		assertEquals(80, review.getPuntuacion());
+	}
+
+	@Test
+	void streamedReviewSendsTheDeltasInOrderAndThenTheResult() {
+		when(openAiClient.streamPrompt(anyString(), any(ChatPrompt.class)))
+				.thenReturn(Flux.just(ANSWER.substring(0, 10), ANSWER.substring(10, 30), ANSWER.substring(30)));
+
+		List<ReviewStreamEvent> events = service.reviewTextStream("Scala developer", "Backend Scala", false)
+				.collectList().block(Duration.ofSeconds(5));
+
+		assertEquals(4, events.size());
+		assertEquals(List.of(ANSWER.substring(0, 10), ANSWER.substring(10, 30), ANSWER.substring(30)),
+				events.subList(0, 3).stream().map(ReviewStreamEvent::getDelta).toList());
+		assertTrue(events.subList(0, 3).stream().allMatch(e -> e.getType() == ReviewStreamEvent.Type.DELTA));
+		assertEquals(ReviewStreamEvent.Type.RESULT, events.get(3).getType());
+		assertEquals(80, events.get(3).getReview().getPuntuacion());
+
+		// The assembled review is cached: the next stream is only the result
+		List<ReviewStreamEvent> again = service.reviewTextStream("Scala developer", "Backend Scala", false)
+				.collectList().block(Duration.ofSeconds(5));
+		assertEquals(1, again.size());
+		assertEquals(ReviewStreamEvent.Type.RESULT, again.get(0).getType());
+	}
+
+	@Test
+	void promptAsksForTheReviewResponseSchema() {
+		ArgumentCaptor<ChatPrompt> prompt = ArgumentCaptor.forClass(ChatPrompt.class);
+		when(openAiClient.complete(anyString(), prompt.capture())).thenReturn(Mono.just(new ChatCompletion(ANSWER, 100)));
+
+		service.reviewText("Rust developer", "Systems", false).block(Duration.ofSeconds(5));
+
+		JsonNode schema = prompt.getValue().getResponseSchema();
+		assertEquals("cv_review", prompt.getValue().getSchemaName());
+		assertEquals("integer", schema.path("properties").path("puntuacion").path("type").asText());
+		assertEquals("string", schema.path("properties").path("competenciasFaltantes").path("items").path("type").asText());
+		assertTrue(schema.path("properties").path("rawOpenAiResponse").isMissingNode());
+		assertEquals(5, schema.path("required").size());
+		assertFalse(schema.path("additionalProperties").asBoolean());
+	}
+
+	@Test
+	void tierHintSelectsTheModelAndRecordsTheTierMetrics() {
+		ArgumentCaptor<String> model = ArgumentCaptor.forClass(String.class);
+		when(openAiClient.complete(model.capture(), any(ChatPrompt.class))).thenReturn(Mono.just(new ChatCompletion(ANSWER, 100)));
+
+		tieredService.reviewText("Kotlin developer", "Android", false, "strong").block(Duration.ofSeconds(5));
+
+		assertEquals("gpt-4o", model.getValue());
+		assertEquals(1.0, meterRegistry.get("cvreview.tier.requests").tag("tier", "strong").counter().count());
+		assertEquals(1, meterRegistry.get("cvreview.tier.latency").tag("tier", "strong").timer().count());
+		assertEquals(100.0, meterRegistry.get("cvreview.tier.tokens").tag("tier", "strong").summary().totalAmount());
+
+		// Served from the cache: no call, so nothing recorded for the tier
+		tieredService.reviewText("Kotlin developer", "Android", false, "strong").block(Duration.ofSeconds(5));
+		assertEquals(1.0, meterRegistry.get("cvreview.tier.requests").tag("tier", "strong").counter().count());
+	}
+
+	@Test
+	void multiVacancyCallsTakeAtMostVacanciesPerCall() {
+		answerByVacancy(CvReviewServiceTests::evaluationsInOrder);
+		List<String> vacancies = List.of("Backend Java", "Backend Kotlin", "Data Python", "Frontend React", "DevOps AWS");
+
+		List<ReviewResponse> reviews = service(router(), 2, 4000).reviewTextMulti("Java developer", vacancies, false)
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(vacancies, reviews.stream().map(ReviewResponse::getResumen).toList());
+		assertEquals(List.of(1, 2, 2), calls.stream().map(List::size).sorted().toList());
+	}
+
+	@Test
+	void multiVacancyCallsStayWithinThePromptTokenLimit() {
+		answerByVacancy(CvReviewServiceTests::evaluationsInOrder);
+		CvCompactor compactor = new CvCompactor(600, 300, "experience,skills,summary,header,education,other");
+		List<String> vacancies = List.of("Backend Java", "Backend Kotlin", "Data Python");
+		// Room for the CV and the first two vacancies only
+		int limit = PromptTemplates.MULTI_INSTRUCTIONS_TOKENS + compactor.compactCv("Java developer").tokens()
+				+ 2 * PromptTemplates.MULTI_VACANCY_LABEL_TOKENS
+				+ compactor.compactVacancy(vacancies.get(0)).tokens() + compactor.compactVacancy(vacancies.get(1)).tokens();
+
+		List<ReviewResponse> reviews = service(router(), 5, limit).reviewTextMulti("Java developer", vacancies, false)
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(vacancies, reviews.stream().map(ReviewResponse::getResumen).toList());
+		calls.sort(Comparator.comparingInt(List::size));
+		assertEquals(List.of(List.of("Data Python"), List.of("Backend Java", "Backend Kotlin")), calls);
+	}
+
+	@Test
+	void evaluationsAreMatchedByVacancyNumberWhateverTheirOrder() {
+		answerByVacancy(vacancies -> "{\"evaluaciones\":[" + evaluation(3, vacancies.get(2)) + ","
+				+ evaluation(1, vacancies.get(0)) + "," + evaluation(2, vacancies.get(1)) + "]}");
+		List<String> vacancies = List.of("Backend Java", "Backend Kotlin", "Data Python");
+
+		List<ReviewResponse> reviews = service.reviewTextMulti("Java developer", vacancies, false).block(Duration.ofSeconds(5));
+
+		assertEquals(vacancies, reviews.stream().map(ReviewResponse::getResumen).toList());
+		assertEquals(1, calls.size());
+	}
+
+	@Test
+	void evaluationsWithoutVacancyNumberAreMatchedByPosition() {
+		answerByVacancy(vacancies -> "{\"evaluaciones\":[" + evaluation(null, vacancies.get(0)) + ","
+				+ evaluation(null, vacancies.get(1)) + "]}");
+		List<String> vacancies = List.of("Frontend React", "DevOps AWS");
+
+		List<ReviewResponse> reviews = service.reviewTextMulti("Go developer", vacancies, false).block(Duration.ofSeconds(5));
+
+		assertEquals(vacancies, reviews.stream().map(ReviewResponse::getResumen).toList());
+		assertEquals(1, calls.size());
+	}
+
+	@Test
+	void vacancyMissingFromTheAnswerIsReviewedAlone() {
+		answerByVacancy(vacancies -> "{\"evaluaciones\":[" + evaluation(1, vacancies.get(0)) + ","
+				+ evaluation(3, vacancies.get(2)) + "]}");
+		List<String> vacancies = List.of("Backend Java", "Backend Kotlin", "Data Python");
+
+		List<ReviewResponse> reviews = service.reviewTextMulti("Scala developer", vacancies, false).block(Duration.ofSeconds(5));
+
+		assertEquals(vacancies, reviews.stream().map(ReviewResponse::getResumen).toList());
+		assertEquals(List.of(vacancies, List.of("Backend Kotlin")), calls);
+	}
+
+	@Test
+	void unreadableMultiVacancyAnswerFallsBackToOneCallPerVacancy() {
+		answerByVacancy(vacancies -> "Sorry, I cannot evaluate these vacancies.");
+		List<String> vacancies = List.of("Backend Java", "Backend Kotlin");
+
+		List<ReviewResponse> reviews = service.reviewTextMulti("Rust developer", vacancies, false).block(Duration.ofSeconds(5));
+
+		assertEquals(vacancies, reviews.stream().map(ReviewResponse::getResumen).toList());
+		assertEquals(3, calls.size());
+		assertTrue(calls.subList(1, 3).containsAll(List.of(List.of("Backend Java"), List.of("Backend Kotlin"))));
+	}
+
+	private ModelTierRouter router() {
+		return new ModelTierRouter(false, "", "", "", "gpt-4o-mini", mock(SkillPreFilter.class), meterRegistry);
+	}
+
+	/**
+	 * Answers single-vacancy prompts with a review whose resumen is the vacancy text, and
+	 * multi-vacancy prompts with the given function of their vacancy texts.
+	 */
+	private void answerByVacancy(Function<List<String>, String> multiAnswer) {
+		when(openAiClient.complete(anyString(), any(ChatPrompt.class))).thenAnswer(invocation -> {
+			ChatPrompt prompt = invocation.getArgument(1);
+			List<String> vacancies = prompt.getUserParts().stream()
+					.filter(part -> part.startsWith("VACANTE"))
+					.map(part -> part.substring(part.indexOf('\n') + 1))
+					.toList();
+			calls.add(vacancies);
+			String answer = "cv_reviews".equals(prompt.getSchemaName())
+					? multiAnswer.apply(vacancies)
+					: evaluation(null, vacancies.get(0));
+			return Mono.just(new ChatCompletion(answer, 100));
+		});
+	}
+
+	private static String evaluationsInOrder(List<String> vacancies) {
+		List<String> evaluations = new ArrayList<>();
+		for (int i = 0; i < vacancies.size(); i++) {
+			evaluations.add(evaluation(i + 1, vacancies.get(i)));
+		}
+		return "{\"evaluaciones\":[" + String.join(",", evaluations) + "]}";
+	}
+
+	private static String evaluation(Integer vacancy, String resumen) {
+		return "{" + (vacancy == null ? "" : "\"vacante\":" + vacancy + ",")
+				+ "\"apto\":\"yes\",\"puntuacion\":80,\"resumen\":\"" + resumen + "\"}";
+	}
+}
@@ -0,0 +1,86 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.cv.review.service.cvservice.client.OpenAiClient;
+import com.cv.review.service.cvservice.util.ChatPrompt;
+import com.cv.review.service.cvservice.util.TokenCounter;
+
+import reactor.core.publisher.Mono;
+
+class CvSummarizerTests {
+
+	private final OpenAiClient openAiClient = mock(OpenAiClient.class);
+
+	@Test
+	void chunksAreSummarizedConcurrentlyUpToTheLimitAndMergedInOrder() {
+		AtomicInteger calls = new AtomicInteger();
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		// Earlier chunks answer later, so completion order is the reverse of CV order
+		when(openAiClient.sendPrompt(anyString(), any(ChatPrompt.class))).thenAnswer(invocation -> {
+			int call = calls.getAndIncrement();
+			return Mono.delay(Duration.ofMillis(200 - call * 20L))
+					.doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+					// Released before the answer is emitted, which lets the next chunk start
+					.doOnNext(t -> inFlight.decrementAndGet())
+					.thenReturn("summary " + call);
+		});
+		CvSummarizer summarizer = new CvSummarizer(openAiClient, "gpt-4o-mini", true, 100, 100, 3, 600, 100, 60_000);
+		// Different lines, so no chunk is served from the summary cache
+		StringBuilder cv = new StringBuilder();
+		for (int i = 0; i < 80; i++) {
+			cv.append("Proyecto ").append(i).append(": backend Java con Spring Boot y microservicios.\n");
+		}
+		int chunks = CvSummarizer.split(cv.toString(), 100).size();
+
+		String summary = summarizer.summarize(cv.toString()).block(Duration.ofSeconds(10));
+
+		assertTrue(chunks > 3);
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < chunks; i++) {
+			expected.add("summary " + i);
+		}
+		assertEquals(String.join("\n\n", expected), summary);
+		assertEquals(3, maxInFlight.get());
+	}
+
+	@Test
+	void splitsOnLinesWithinTheChunkSize() {
+		String cv = "Desarrolladora backend Java con Spring Boot y microservicios.\n".repeat(200);
+
+		List<String> chunks = CvSummarizer.split(cv, 300);
+
+		assertTrue(chunks.size() > 1);
+		for (String chunk : chunks) {
+			assertTrue(TokenCounter.count(chunk) <= 300, "chunk of " + TokenCounter.count(chunk) + " tokens");
+			assertTrue(chunk.endsWith("microservicios."));
+		}
+		assertEquals(200, String.join("\n", chunks).split("\n").length);
+	}
+
+	@Test
+	void cutsLinesLongerThanTheChunkSize() {
+		String line = "Kubernetes, Terraform, AWS, GCP, Argo CD, Helm, Prometheus, Grafana. ".repeat(100);
+
+		List<String> chunks = CvSummarizer.split("Habilidades\n" + line, 100);
+
+		assertTrue(chunks.size() > 1);
+		assertEquals("Habilidades", chunks.get(0));
+		for (String chunk : chunks) {
+			assertTrue(TokenCounter.count(chunk) <= 100);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ModelTierRouterTests {
+
+	private static final String RULES = "languageMismatch=true:strong,overlap>=0.75:fast,vacancySkills>=3&overlap<0.75:strong";
+
+	private final SkillPreFilter preFilter;
+
+	ModelTierRouterTests() throws IOException {
+		preFilter = new SkillPreFilter(true, new ClassPathResource("skills-taxonomy.txt"), 0.15, 3,
+				new SimpleMeterRegistry());
+	}
+
+	@Test
+	void firstMatchingRuleDecidesTheTier() {
+		ModelTierRouter router = router(RULES);
+
+		// Every skill of the vacancy is in the CV
+		assertEquals("fast", router.route("Java, Spring Boot and SQL developer", "Java, Spring Boot, SQL", null).tier().name());
+		// Half of the skills: borderline
+		assertEquals("strong", router.route("Java developer with Docker", "Java, Python, SQL, Docker", null).tier().name());
+		// No rule matches: default tier
+		assertEquals("fast", router.route("Java developer", "Java, Python", null).tier().name());
+	}
+
+	@Test
+	void languageMismatchGoesToTheStrongTier() {
+		ModelTierRouter router = router(RULES);
+
+		String cv = "Desarrollador con experiencia de cinco años en el desarrollo de servicios para la banca y los seguros";
+		String vacancy = "We are looking for a developer with experience in the development of services for the insurance sector";
+		assertEquals("es", ModelTierRouter.language(cv));
+		assertEquals("en", ModelTierRouter.language(vacancy));
+		assertEquals("strong", router.route(cv, vacancy, null).tier().name());
+	}
+
+	@Test
+	void shortTextsHaveNoLanguage() {
+		assertEquals("unknown", ModelTierRouter.language("Java, Spring Boot, SQL"));
+		assertEquals("unknown", ModelTierRouter.language("Desarrollador Java en Madrid"));
+		assertEquals("unknown", ModelTierRouter.language("Java developer with experience in the cloud"));
+		assertEquals("unknown", ModelTierRouter.language(null));
+	}
+
+	@Test
+	void mixedTextsHaveNoLanguageUnlessOneClearlyDominates() {
+		// Spanish CV with English skill headings: about as many words of each language
+		assertEquals("unknown", ModelTierRouter.language(
+				"Skills and knowledge: Java, SQL. Experiencia de tres años con Spring y Kafka en el sector de la banca for the team"));
+		// English vacancy quoting a Spanish company name
+		assertEquals("en", ModelTierRouter.language(
+				"Banco de la Plata is looking for a developer with experience in the development of services for the bank"));
+		// "en" alone does not make a text Spanish
+		assertEquals("unknown", ModelTierRouter.language("Java en Spring en Docker en Kubernetes en AWS en GCP"));
+	}
+
+	@Test
+	void knownHintOverridesTheRules() {
+		ModelTierRouter router = router(RULES);
+
+		assertEquals("strong", router.route("Java developer", "Java", "strong").tier().name());
+		assertEquals("gpt-4o", router.route("Java developer", "Java", "strong").tier().model());
+		assertEquals("fast", router.route("Java developer", "Java", "unknown-tier").tier().name());
+	}
+
+	@Test
+	void disabledRouterUsesTheConfiguredModel() {
+		ModelTierRouter router = new ModelTierRouter(false, "fast:gpt-4o-mini,strong:gpt-4o", "fast", RULES, "gpt-4.1",
+				preFilter, new SimpleMeterRegistry());
+
+		assertEquals("gpt-4.1", router.route("Java developer", "Java, Python, SQL, Docker", "strong").tier().model());
+	}
+
+	@Test
+	void invalidRulesFailAtStartup() {
+		assertThrows(IllegalArgumentException.class, () -> router("overlap>=0.75:medium"));
+		assertThrows(IllegalArgumentException.class, () -> router("seniority>5:strong"));
+		assertThrows(IllegalArgumentException.class, () -> router("overlap~1:strong"));
+		assertThrows(IllegalArgumentException.class, () -> router("tokens>many:strong"));
+		assertThrows(IllegalArgumentException.class, () -> router("language<es:strong"));
+		assertThrows(IllegalArgumentException.class, () -> router("language=fr:strong"));
+		assertThrows(IllegalArgumentException.class, () -> router("languageMismatch=yes:strong"));
+	}
+
+	@Test
+	void skillScoreIsOnlyComputedWhenTheRulesUseIt() {
+		String cv = "Java developer with Docker";
+		String vacancy = "Java, Python, SQL, Docker";
+
+		ModelTierRouter.Route byLanguage = router("languageMismatch=true:strong").route(cv, vacancy, null);
+		ModelTierRouter.Route byOverlap = router("overlap<0.75:strong").route(cv, vacancy, null);
+
+		assertNull(byLanguage.score());
+		assertEquals("strong", byOverlap.tier().name());
+		// Handed back so the pre-filter does not score the texts again
+		assertEquals(0.5, byOverlap.score().overlap());
+	}
+
+	private ModelTierRouter router(String rules) {
+		return new ModelTierRouter(true, "fast:gpt-4o-mini,strong:gpt-4o", "fast", rules, "gpt-4o-mini", preFilter,
+				new SimpleMeterRegistry());
+	}
+}
@@ -0,0 +1,120 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.cv.review.service.cvservice.dto.ReviewJobResponse;
+import com.cv.review.service.cvservice.dto.ReviewJobStatus;
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class ReviewJobServiceTests {
+
+	private final CvReviewService reviewService = mock(CvReviewService.class);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ReviewJobService service;
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		service.shutdown();
+	}
+
+	@Test
+	void submittedJobCompletesAndEarlierSnapshotsDoNotChange() throws Exception {
+		ReviewResponse review = new ReviewResponse();
+		review.setPuntuacion(75);
+		when(reviewService.reviewText(anyString(), anyString(), anyBoolean())).thenReturn(blockedUntilReleased(review));
+		service = service(1, 10, 3_600_000);
+
+		ReviewJobResponse submitted = service.submit("Java developer", "Backend Java", false);
+		assertEquals(ReviewJobStatus.QUEUED, submitted.getStatus());
+		release.countDown();
+
+		ReviewJobResponse job = await(submitted.getJobId(), ReviewJobStatus.COMPLETED);
+		assertEquals(75, job.getResult().getPuntuacion());
+		assertNotNull(job.getCompletedAt());
+		// The snapshots handed out before stay as they were
+		assertEquals(ReviewJobStatus.QUEUED, submitted.getStatus());
+		assertNull(submitted.getResult());
+	}
+
+	@Test
+	void failedReviewMarksTheJobFailed() throws Exception {
+		when(reviewService.reviewText(anyString(), anyString(), anyBoolean()))
+				.thenReturn(Mono.error(new IllegalStateException("OpenAI is down")));
+		service = service(1, 10, 3_600_000);
+
+		ReviewJobResponse job = await(service.submit("Java developer", "Backend Java", false).getJobId(), ReviewJobStatus.FAILED);
+		assertEquals("OpenAI is down", job.getError());
+		assertNull(job.getResult());
+	}
+
+	@Test
+	void submitIsRejectedWhenTheQueueIsFull() throws Exception {
+		when(reviewService.reviewText(anyString(), anyString(), anyBoolean())).thenReturn(blockedUntilReleased(new ReviewResponse()));
+		service = service(1, 1, 3_600_000);
+
+		String running = service.submit("CV 1", "Backend", false).getJobId();
+		await(running, ReviewJobStatus.RUNNING);
+		String queued = service.submit("CV 2", "Backend", false).getJobId();
+
+		assertThrows(RejectedExecutionException.class, () -> service.submit("CV 3", "Backend", false));
+		assertEquals(ReviewJobStatus.QUEUED, service.getJob(queued).getStatus());
+	}
+
+	@Test
+	void finishedJobsArePurgedAfterTheRetention() throws Exception {
+		when(reviewService.reviewText(anyString(), eq("Backend"), anyBoolean())).thenReturn(Mono.just(new ReviewResponse()));
+		when(reviewService.reviewText(anyString(), eq("Data"), anyBoolean())).thenReturn(blockedUntilReleased(new ReviewResponse()));
+		service = service(2, 10, 0);
+
+		String finished = service.submit("CV 1", "Backend", false).getJobId();
+		await(finished, ReviewJobStatus.COMPLETED);
+		String running = service.submit("CV 2", "Data", false).getJobId();
+		await(running, ReviewJobStatus.RUNNING);
+		Thread.sleep(5);
+
+		service.purgeFinishedJobs();
+		assertNull(service.getJob(finished));
+		assertEquals(ReviewJobStatus.RUNNING, service.getJob(running).getStatus());
+	}
+
+	private ReviewJobService service(int concurrency, int queueCapacity, long retentionMillis) {
+		return new ReviewJobService(reviewService, concurrency, queueCapacity, 10_000, retentionMillis, new SimpleMeterRegistry());
+	}
+
+	private Mono<ReviewResponse> blockedUntilReleased(ReviewResponse review) {
+		return Mono.fromCallable(() -> {
+			release.await(10, TimeUnit.SECONDS);
+			return review;
+		});
+	}
+
+	private ReviewJobResponse await(String jobId, ReviewJobStatus status) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		ReviewJobResponse job = service.getJob(jobId);
+		while (job.getStatus() != status && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			job = service.getJob(jobId);
+		}
+		assertEquals(status, job.getStatus());
+		return job;
+	}
+}
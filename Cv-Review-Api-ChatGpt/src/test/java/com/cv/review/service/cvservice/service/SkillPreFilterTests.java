@@ -0,0 +1,58 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.cv.review.service.cvservice.dto.ReviewResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SkillPreFilterTests {
+
+	private final SkillPreFilter preFilter;
+
+	SkillPreFilterTests() throws IOException {
+		preFilter = new SkillPreFilter(true, new ClassPathResource("skills-taxonomy.txt"), 0.15, 3,
+				new SimpleMeterRegistry());
+	}
+
+	@Test
+	void rejectsCvWithoutTheVacancySkills() throws IOException {
+		ReviewResponse response = preFilter.screen(read("cv-frontend.txt"), read("vacancy-data.txt"));
+
+		assertNotNull(response);
+		assertEquals("no", response.getApto());
+		assertTrue(response.getCompetenciasFaltantes().contains("Python"));
+		assertTrue(response.getCompetenciasFaltantes().contains("SQL"));
+	}
+
+	@Test
+	void passesMatchingCv() throws IOException {
+		SkillPreFilter.PreScore score = preFilter.score(read("cv-data.txt"), read("vacancy-data.txt"));
+
+		assertFalse(score.rejected());
+		assertTrue(score.overlap() > 0.5, "overlap " + score.overlap());
+		assertNull(preFilter.screen(read("cv-backend-java.txt"), read("vacancy-backend.txt")));
+	}
+
+	@Test
+	void passesVacanciesWithTooFewKnownSkills() {
+		assertNull(preFilter.screen("Cocinero con experiencia", "Buscamos una persona proactiva para atención al cliente"));
+	}
+
+	private static String read(String name) throws IOException {
+		try (InputStream in = SkillPreFilterTests.class.getResourceAsStream("/corpus/" + name)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.cv.review.service.cvservice.cache.ExtractionCache;
+import com.cv.review.service.cvservice.dto.ExtractedText;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class TextExtractionServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private TextExtractionService service;
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		service.shutdown();
+	}
+
+	@Test
+	void sameFileUploadedAgainIsServedFromTheCacheWithoutParsing() {
+		service = service(1, 1, 10_000);
+
+		ExtractedText first = service.extract(text("cv.txt", "Java developer")).block(Duration.ofSeconds(5));
+		ExtractedText renamed = service.extract(text("other-name.txt", "Java developer")).block(Duration.ofSeconds(5));
+		ExtractedText different = service.extract(text("cv.txt", "Data engineer")).block(Duration.ofSeconds(5));
+
+		assertEquals("Java developer", first.getText());
+		assertSame(first, renamed);
+		assertEquals("Data engineer", different.getText());
+		// Tika ran for the two different contents only
+		assertEquals(2, meterRegistry.get("cvreview.extraction.duration").timer().count());
+		assertEquals(1.0, meterRegistry.get("cvreview.extraction.cache.hits").functionCounter().count());
+	}
+
+	@Test
+	void extractionIsRejectedWhenTheQueueIsFull() throws Exception {
+		service = service(1, 1, 10_000);
+
+		Disposable running = service.extract(blockedUntilReleased("cv-1.txt")).subscribe();
+		Disposable queued = service.extract(blockedUntilReleased("cv-2.txt")).subscribe();
+
+		Exception rejected = assertThrows(Exception.class,
+				() -> service.extract(text("cv-3.txt", "Java developer")).block(Duration.ofSeconds(5)));
+		assertInstanceOf(RejectedExecutionException.class, rejected);
+		running.dispose();
+		queued.dispose();
+	}
+
+	@Test
+	void slowExtractionFailsWithTimeout() {
+		service = service(1, 1, 200);
+
+		Exception timeout = assertThrows(Exception.class,
+				() -> service.extract(blockedUntilReleased("cv.txt")).block(Duration.ofSeconds(5)));
+		assertInstanceOf(TimeoutException.class, timeout.getCause());
+	}
+
+	@Test
+	void uploadIsParsedWhileItArrives() throws Exception {
+		service = service(1, 1, 10_000);
+		Sinks.Many<DataBuffer> upload = Sinks.many().unicast().onBackpressureBuffer();
+		Mono<ExtractedText> piped = service.extract(upload.asFlux(), "cv.txt").cache();
+		piped.subscribe();
+		upload.tryEmitNext(buffer("Data engineer, "));
+
+		// The parse is already reading the pipe before the rest of the upload arrives
+		Gauge active = meterRegistry.get("cvreview.extraction.active").gauge();
+		for (int i = 0; i < 50 && active.value() < 1; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(1.0, active.value());
+
+		upload.tryEmitNext(buffer("Python and SQL"));
+		upload.tryEmitComplete();
+		assertEquals("Data engineer, Python and SQL", piped.block(Duration.ofSeconds(5)).getText());
+	}
+
+	@Test
+	void stalledUploadFailsWithTimeoutAndReleasesTheExtractionThread() {
+		service = service(1, 1, 10_000);
+		Sinks.Many<DataBuffer> upload = Sinks.many().unicast().onBackpressureBuffer();
+		upload.tryEmitNext(buffer("Data engineer, "));
+
+		Exception timeout = assertThrows(Exception.class,
+				() -> service.extract(upload.asFlux(), "stalled.txt").block(Duration.ofSeconds(5)));
+		assertInstanceOf(TimeoutException.class, timeout.getCause());
+
+		// With a single extraction thread, the next document is parsed right away
+		ExtractedText other = service.extract(text("cv.txt", "Java developer")).block(Duration.ofSeconds(5));
+		assertEquals("Java developer", other.getText());
+	}
+
+	@Test
+	void forkBackendFallsBackInProcessOnlyWhenAllowedAndNoChildCanStart() {
+		assertThrows(IllegalStateException.class, () -> service("fork", false));
+
+		service = service("fork", true);
+		ExtractedText extracted = service.extract(text("cv.txt", "Java developer")).block(Duration.ofSeconds(5));
+		assertEquals("Java developer", extracted.getText());
+	}
+
+	private TextExtractionService service(int threads, int queueCapacity, long timeoutMillis) {
+		return new TextExtractionService(new ExtractionCache(100, 1_000_000, 60_000, meterRegistry),
+				threads, queueCapacity, timeoutMillis, true, 4, 600, true, 16000,
+				"in-process", 1, "java", "256m", 100, false, 4, 300, meterRegistry);
+	}
+
+	/**
+	 * Fork backend whose java command does not exist, so no child JVM can start.
+	 */
+	private TextExtractionService service(String backend, boolean forkFallback) {
+		return new TextExtractionService(new ExtractionCache(100, 1_000_000, 60_000, meterRegistry),
+				1, 1, 10_000, true, 4, 600, true, 16000,
+				backend, 1, "/nonexistent/bin/java", "256m", 100, forkFallback, 4, 300, meterRegistry);
+	}
+
+	private static DataBuffer buffer(String text) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static MockMultipartFile text(String name, String content) {
+		return new MockMultipartFile("file", name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Upload whose content cannot be read until the test releases it, and then fails, so the
+	 * parked extraction never reaches Tika (whose static setup breaks on an interrupted thread).
+	 */
+	private MockMultipartFile blockedUntilReleased(String name) {
+		return new MockMultipartFile("file", name, "text/plain", "Java developer".getBytes(StandardCharsets.UTF_8)) {
+			@Override
+			public InputStream getInputStream() {
+				return new InputStream() {
+					@Override
+					public int read() throws IOException {
+						return read(new byte[1], 0, 1);
+					}
+
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						try {
+							release.await(10, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						throw new IOException("Upload aborted");
+					}
+				};
+			}
+		};
+	}
+}
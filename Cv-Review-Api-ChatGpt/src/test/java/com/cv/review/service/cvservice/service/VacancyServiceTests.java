@@ -0,0 +1,61 @@
+package com.cv.review.service.cvservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import com.cv.review.service.cvservice.dto.VacancyResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VacancyServiceTests {
+
+	private final VacancyService service = new VacancyService(100, 60_000, new SimpleMeterRegistry());
+
+	@Test
+	void sameDescriptionIsRegisteredUnderTheSameId() {
+		VacancyResponse vacancy = service.register("Backend Java, Spring Boot");
+
+		assertEquals(32, vacancy.getId().length());
+		assertEquals("Backend Java, Spring Boot", service.get(vacancy.getId()).getDescription());
+		// Whitespace differences do not change the id
+		assertEquals(vacancy.getId(), service.register("  Backend Java,\n  Spring Boot ").getId());
+		assertThrows(IllegalArgumentException.class, () -> service.register(" "));
+	}
+
+	@Test
+	void resolveUsesTheRegisteredVacancyOrTheInlineDescription() {
+		String id = service.register("Data engineer").getId();
+
+		assertEquals("Data engineer", service.resolve(id, "ignored"));
+		assertEquals("Inline", service.resolve(null, "Inline"));
+		assertThrows(NoSuchElementException.class, () -> service.resolve("unknown", "Inline"));
+	}
+
+	@Test
+	void deleteSucceedsOnlyOnce() {
+		String id = service.register("DevOps").getId();
+
+		assertTrue(service.delete(id));
+		assertFalse(service.delete(id));
+		assertNull(service.get(id));
+		assertFalse(service.delete(null));
+	}
+
+	@Test
+	void expiredVacanciesAreUnknown() throws InterruptedException {
+		VacancyService expiring = new VacancyService(100, 1, new SimpleMeterRegistry());
+		String id = expiring.register("Frontend").getId();
+		Thread.sleep(10);
+
+		assertNull(expiring.get(id));
+		assertFalse(expiring.delete(id));
+		assertThrows(NoSuchElementException.class, () -> expiring.resolve(id, null));
+	}
+}
@@ -0,0 +1,38 @@
+package com.cv.review.service.cvservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class AhoCorasickTests {
+
+	private final AhoCorasick automaton = new AhoCorasick(Map.of(
+			"java", "Java",
+			"javascript", "JavaScript",
+			"spring boot", "Spring Boot",
+			"k8s", "Kubernetes",
+			"kubernetes", "Kubernetes",
+			"c++", "C++",
+			"estadística", "Estadística"));
+
+	@Test
+	void findsWholeWordsIgnoringCaseAndAccents() {
+		Set<String> found = automaton.findIn("Experto en JAVA y Spring Boot; despliegues en K8s. Estadistica avanzada.");
+
+		assertEquals(Set.of("Java", "Spring Boot", "Kubernetes", "Estadística"), found);
+	}
+
+	@Test
+	void doesNotMatchInsideOtherWords() {
+		assertEquals(Set.of("JavaScript"), automaton.findIn("Frontend con JavaScript"));
+		assertEquals(Set.of(), automaton.findIn("javanés, springboard, k8sx"));
+	}
+
+	@Test
+	void findsOverlappingTermsAndSymbols() {
+		assertEquals(Set.of("Java", "JavaScript", "C++"), automaton.findIn("java/javascript, C++ y c++17"));
+	}
+}
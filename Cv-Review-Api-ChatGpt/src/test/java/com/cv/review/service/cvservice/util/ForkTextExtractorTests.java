@@ -0,0 +1,136 @@
+package com.cv.review.service.cvservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.XHTMLContentHandler;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import com.cv.review.service.cvservice.dto.ExtractedText;
+
+class ForkTextExtractorTests {
+
+	private static final String CV = "Java developer with Spring Boot, SQL and Kubernetes experience.";
+
+	@Test
+	void textIsExtractedInTheChildAndTruncatedAtTheLimit() throws Exception {
+		try (ForkTextExtractor extractor = extractor(new AutoDetectParser(), 30_000)) {
+			ExtractedText whole = extractor.extractText(stream(CV), 1000);
+			assertEquals(CV, whole.getText());
+			assertFalse(whole.isTruncated());
+
+			ExtractedText truncated = extractor.extractText(stream(CV.repeat(20)), 100);
+			assertTrue(truncated.isTruncated());
+			assertTrue(truncated.getText().length() <= 100);
+		}
+	}
+
+	@Test
+	void textReachingTheLimitIsTruncatedEvenIfTheChildSwallowsTheLimit() throws Exception {
+		// The child writes exactly maxChars characters and finishes without a write limit error
+		try (ForkTextExtractor extractor = extractor(new FixedTextParser("x".repeat(50)), 30_000)) {
+			assertTrue(extractor.extractText(stream(CV), 50).isTruncated());
+			assertFalse(extractor.extractText(stream(CV), 51).isTruncated());
+		}
+	}
+
+	@Test
+	void crashedChildFailsTheDocumentAndIsReplaced() throws Exception {
+		try (ForkTextExtractor extractor = extractor(new CrashingParser(), 30_000)) {
+			assertThrows(Exception.class, () -> extractor.extractText(stream("crash"), 1000));
+			// A new child is started for the next document
+			assertEquals(CV, extractor.extractText(stream(CV), 1000).getText());
+		}
+	}
+
+	@Test
+	void childExceedingTheParseTimeoutFailsTheDocument() throws Exception {
+		try (ForkTextExtractor extractor = extractor(new CrashingParser(), 1_000)) {
+			long start = System.nanoTime();
+			assertThrows(Exception.class, () -> extractor.extractText(stream("hang"), 1000));
+			assertTrue(System.nanoTime() - start < 20_000_000_000L);
+		}
+	}
+
+	private static ForkTextExtractor extractor(Parser parser, long parseTimeoutMillis) {
+		return new ForkTextExtractor(parser, 1, "java", "128m", parseTimeoutMillis, 100);
+	}
+
+	private static ByteArrayInputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void write(String text, ContentHandler handler, Metadata metadata) throws SAXException {
+		XHTMLContentHandler xhtml = new XHTMLContentHandler(handler, metadata);
+		xhtml.startDocument();
+		xhtml.characters(text);
+		xhtml.endDocument();
+	}
+
+	/**
+	 * Always writes the same text, whatever the document.
+	 */
+	static class FixedTextParser implements Parser {
+
+		private final String text;
+
+		FixedTextParser(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public Set<MediaType> getSupportedTypes(ParseContext context) {
+			return Set.of(MediaType.TEXT_PLAIN);
+		}
+
+		@Override
+		public void parse(InputStream stream, ContentHandler handler, Metadata metadata, ParseContext context)
+				throws SAXException {
+			write(text, handler, metadata);
+		}
+	}
+
+	/**
+	 * "crash" kills the child JVM, "hang" never ends; any other text is returned as is.
+	 */
+	static class CrashingParser implements Parser {
+
+		@Override
+		public Set<MediaType> getSupportedTypes(ParseContext context) {
+			return Set.of(MediaType.TEXT_PLAIN);
+		}
+
+		@Override
+		public void parse(InputStream stream, ContentHandler handler, Metadata metadata, ParseContext context)
+				throws SAXException {
+			String text;
+			try {
+				text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw new SAXException(e);
+			}
+			if (text.equals("crash")) {
+				Runtime.getRuntime().halt(1);
+			}
+			while (text.equals("hang")) {
+				Thread.onSpinWait();
+			}
+			write(text, handler, metadata);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.cv.review.service.cvservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the tokens sent to the model with the escaped single-message prompt and with
+ * the system + content parts prompt, over the sample corpus in src/test/resources/corpus.
+ */
+class PromptTokenBenchmarkTests {
+
+	// Tokens the chat format adds around each message (role and separators)
+	private static final int TOKENS_PER_MESSAGE = 3;
+
+	private static final List<String[]> CORPUS = List.of(
+			new String[] { "cv-backend-java.txt", "vacancy-backend.txt" },
+			new String[] { "cv-frontend.txt", "vacancy-backend.txt" },
+			new String[] { "cv-data.txt", "vacancy-data.txt" },
+			new String[] { "cv-devops.txt", "vacancy-backend.txt" });
+
+	@Test
+	void chatPromptUsesFewerTokensThanEscapedPrompt() throws IOException {
+		int totalBefore = 0;
+		int totalAfter = 0;
+
+		for (String[] sample : CORPUS) {
+			String cv = read(sample[0]);
+			String vacancy = read(sample[1]);
+
+			int before = TOKENS_PER_MESSAGE + TokenCounter.count(PromptTemplates.buildCvPrompt(cv, vacancy));
+			int after = count(PromptTemplates.buildCvChatPrompt(cv, vacancy));
+
+			// Every sample saves at least a sixth of its prompt tokens (about 23-30% on this corpus)
+			assertTrue(after * 6 <= before * 5, sample[0] + ": " + after + " tokens instead of " + before);
+			totalBefore += before;
+			totalAfter += after;
+		}
+		assertTrue(totalAfter * 4 <= totalBefore * 3, "corpus: " + totalAfter + " tokens instead of " + totalBefore);
+	}
+
+	@Test
+	void chatPromptKeepsTextUnescaped() throws IOException {
+		String cv = read("cv-backend-java.txt");
+		ChatPrompt prompt = PromptTemplates.buildCvChatPrompt(cv, "Vacante \"Backend\" en Cádiz");
+
+		assertTrue(prompt.getUserParts().get(0).contains("\"Backend\" en Cádiz"));
+		assertTrue(prompt.getUserParts().get(1).endsWith(cv));
+		assertFalse(prompt.getUserParts().get(1).contains("\\u00"));
+	}
+
+	@Test
+	void multiVacancyPromptSharesItsSystemMessageAcrossGroupSizes() {
+		ChatPrompt two = PromptTemplates.buildMultiVacancyPrompt("Java developer", List.of("Backend", "Data"));
+		ChatPrompt three = PromptTemplates.buildMultiVacancyPrompt("Java developer", List.of("Backend", "Data", "DevOps"));
+
+		assertEquals(two.getSystem(), three.getSystem());
+		assertEquals(two.getUserParts().get(0), three.getUserParts().get(0));
+		assertTrue(three.getUserParts().get(1).endsWith("3"));
+	}
+
+	@Test
+	void multiVacancyOverheadMatchesTheActualPrompt() {
+		List<String> vacancies = List.of("", "", "");
+		ChatPrompt prompt = PromptTemplates.buildMultiVacancyPrompt("", vacancies);
+		int actual = TokenCounter.count(prompt.getSystem());
+		for (String part : prompt.getUserParts()) {
+			actual += TokenCounter.count(part);
+		}
+
+		assertEquals(actual, PromptTemplates.MULTI_INSTRUCTIONS_TOKENS
+				+ vacancies.size() * PromptTemplates.MULTI_VACANCY_LABEL_TOKENS);
+	}
+
+	private static int count(ChatPrompt prompt) {
+		int tokens = TOKENS_PER_MESSAGE + TokenCounter.count(prompt.getSystem()) + TOKENS_PER_MESSAGE;
+		for (String part : prompt.getUserParts()) {
+			tokens += TokenCounter.count(part);
+		}
+		return tokens;
+	}
+
+	private static String read(String name) throws IOException {
+		try (InputStream in = PromptTokenBenchmarkTests.class.getResourceAsStream("/corpus/" + name)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.cv.review.service.cvservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.cv.review.service.cvservice.dto.ExtractedText;
+
+class TextExtractorTests {
+
+	private static final String CV = "Java developer with Spring Boot, SQL and Kubernetes experience.";
+
+	@Test
+	void extractionStopsAtTheLimitAndIsFlaggedTruncated() throws Exception {
+		ExtractedText extracted = TextExtractor.extractText(stream(CV.repeat(10)), 100);
+
+		assertTrue(extracted.isTruncated());
+		assertTrue(extracted.getText().length() <= 100);
+		assertEquals(CV.substring(0, 20), extracted.getText().substring(0, 20));
+	}
+
+	@Test
+	void documentWithinTheLimitIsNotTruncated() throws Exception {
+		ExtractedText extracted = TextExtractor.extractText(stream(CV), CV.length() + 10);
+
+		assertFalse(extracted.isTruncated());
+		assertEquals(CV, extracted.getText());
+		assertFalse(TextExtractor.extractText(stream(CV.repeat(10)), 0).isTruncated());
+	}
+
+	private static ByteArrayInputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,78 @@
+package com.cv.review.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options: "--name value", "--name=value" or "--name" alone (true).
+ */
+public final class Args {
+
+    private final Map<String, String> values;
+
+    public Args(Map<String, String> values) {
+        this.values = new LinkedHashMap<>(values);
+    }
+
+    /**
+     * @param args command line
+     * @param from index of the first option (after the subcommand)
+     */
+    public static Args parse(String[] args, int from) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                values.put(name.substring(0, equals), name.substring(equals + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(name, args[++i]);
+            } else {
+                values.put(name, "true");
+            }
+        }
+        return new Args(values);
+    }
+
+    public String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : defaultValue;
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        return values.containsKey(name) ? Boolean.parseBoolean(values.get(name)) : defaultValue;
+    }
+
+    /**
+     * Durations are given in seconds ("30", "0.5") or with a unit ("500ms", "2m").
+     */
+    public Duration getDuration(String name, Duration defaultValue) {
+        return values.containsKey(name) ? duration(values.get(name)) : defaultValue;
+    }
+
+    static Duration duration(String value) {
+        String text = value.trim();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("s")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return Duration.ofMillis(Math.round(Double.parseDouble(text) * 1000));
+    }
+}
@@ -0,0 +1,78 @@
+package com.cv.review.loadtest;
+
+import com.cv.review.loadtest.harness.LoadGenerator;
+import com.cv.review.loadtest.harness.LoadReport;
+import com.cv.review.loadtest.stub.ChatCompletionsStub;
+import com.cv.review.loadtest.stub.StubSettings;
+
+import java.nio.file.Path;
+
+/**
+ * Offline load testing of cvservice.
+ *
+ * 1. Start the OpenAI stub:
+ *    java -jar cv-review-loadtest.jar stub --port 9999 --latency lognormal:800,0.5 --throttle-rate 0.02
+ * 2. Start cvservice against it:
+ *    --cvreview.openai.api-url=http://127.0.0.1:9999/v1/chat/completions --cvreview.openai.api-key=stub
+ * 3. Drive POST /api/v1/reviews and get throughput and latency percentiles:
+ *    java -jar cv-review-loadtest.jar run --concurrency 16 --duration 60s --warmup 10s --report report.json
+ *
+ * To replay real answers, record them once through the stub with
+ *    stub --upstream https://api.openai.com/v1/chat/completions --record-file calls.jsonl
+ * and start the stub later with only --record-file calls.jsonl.
+ */
+public class LoadTestApplication {
+
+    private static final String USAGE = """
+            Usage:
+              stub [--port 9999] [--latency lognormal:800,0.5] [--chunk-delay 20ms] [--chunks 20]
+                   [--throttle-rate 0] [--rpm 0] [--retry-after 1s]
+                   [--record-file calls.jsonl [--upstream URL] [--upstream-key KEY]
+                    [--replay-timing recorded|distribution] [--replay-strict]]
+                latency: fixed:MS | uniform:MIN-MAX | normal:MEAN,SD | lognormal:MEDIAN,SIGMA | exponential:MEAN
+              run  [--url http://localhost:8082/api/v1/reviews] [--corpus DIR]
+                   [--concurrency 8 | --rate REQ_PER_S] [--duration 60s] [--warmup 10s] [--requests 0]
+                   [--timeout 120s] [--token JWT] [--unique] [--tier NAME] [--report report.json]
+            """;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        Args options = Args.parse(args, 1);
+        switch (args[0]) {
+            case "stub" -> stub(options);
+            case "run" -> run(options);
+            default -> {
+                System.err.print(USAGE);
+                System.exit(2);
+            }
+        }
+    }
+
+    private static void stub(Args options) throws Exception {
+        ChatCompletionsStub stub = new ChatCompletionsStub(StubSettings.fromArgs(options)).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Stub stats: " + stub.stats());
+            stub.close();
+        }));
+        System.out.println("OpenAI stub listening on " + stub.url()
+                + (stub.recordings() > 0 ? " (" + stub.recordings() + " recordings)" : ""));
+        Thread.currentThread().join();
+    }
+
+    private static void run(Args options) throws Exception {
+        LoadGenerator.Settings settings = LoadGenerator.Settings.fromArgs(options);
+        System.out.println("Load test against " + settings.url()
+                + (settings.rate() > 0 ? " at " + settings.rate() + " req/s" : " with " + settings.concurrency() + " clients")
+                + ", warm-up " + settings.warmup().toSeconds() + " s, duration " + settings.duration().toSeconds() + " s");
+        LoadReport.Summary summary = new LoadGenerator(settings).run();
+        LoadReport.print(summary, System.out);
+        String report = options.get("report", null);
+        if (report != null) {
+            LoadReport.write(summary, Path.of(report));
+            System.out.println("Report written to " + report);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.cv.review.loadtest.harness;
+
+import com.cv.review.loadtest.Args;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Load generator for POST /api/v1/reviews: sends the CVs of a corpus directory (cv-* files,
+ * any format cvservice extracts) against the vacancies of the same directory (vacancy-*.txt),
+ * round robin, and reports throughput and latency percentiles.
+ *
+ * Closed loop (--concurrency N): N clients, each sending its next request when the previous
+ * one is answered. Open loop (--rate R): R requests per second whatever the response times;
+ * latency is measured from the moment each request was due, so a slow server is not hidden by
+ * the generator waiting for it (coordinated omission).
+ *
+ * Requests started during the warm-up are sent but not measured.
+ */
+public class LoadGenerator {
+
+    /**
+     * @param url         reviews endpoint
+     * @param corpus      directory with cv-* and vacancy-*.txt files
+     * @param concurrency clients of the closed loop (ignored when rate is set)
+     * @param rate        requests per second of the open loop (0 = closed loop)
+     * @param duration    measured time, after the warm-up
+     * @param warmup      time sending requests that are not measured
+     * @param requests    stop after this many measured requests (0 = only the duration)
+     * @param timeout     timeout of each request
+     * @param token       bearer token (null = no Authorization header)
+     * @param unique      true to make each text CV different, so the review cache never answers
+     * @param tier        model tier part to send (null = let cvservice choose)
+     */
+    public record Settings(URI url,
+                           Path corpus,
+                           int concurrency,
+                           double rate,
+                           Duration duration,
+                           Duration warmup,
+                           long requests,
+                           Duration timeout,
+                           String token,
+                           boolean unique,
+                           String tier) {
+
+        /**
+         * Options: --url http://localhost:8082/api/v1/reviews --corpus dir --concurrency 8 | --rate 20
+         * --duration 60s --warmup 10s --requests 0 --timeout 120s --token jwt --unique --tier fast
+         */
+        public static Settings fromArgs(Args args) {
+            return new Settings(
+                    URI.create(args.get("url", "http://localhost:8082/api/v1/reviews")),
+                    Path.of(args.get("corpus", "../Cv-Review-Api-ChatGpt/src/test/resources/corpus")),
+                    Math.max(1, args.getInt("concurrency", 8)),
+                    args.getDouble("rate", 0),
+                    args.getDuration("duration", Duration.ofSeconds(60)),
+                    args.getDuration("warmup", Duration.ofSeconds(10)),
+                    args.getInt("requests", 0),
+                    args.getDuration("timeout", Duration.ofSeconds(120)),
+                    args.get("token", null),
+                    args.getBoolean("unique", false),
+                    args.get("tier", null));
+        }
+    }
+
+    private record CvFile(String name, byte[] content) {
+    }
+
+    private final Settings settings;
+    private final List<CvFile> cvs = new ArrayList<>();
+    private final List<String> vacancies = new ArrayList<>();
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public LoadGenerator(Settings settings) throws IOException {
+        this.settings = settings;
+        try (Stream<Path> files = Files.list(settings.corpus())) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("cv-")) {
+                    cvs.add(new CvFile(name, Files.readAllBytes(file)));
+                } else if (name.startsWith("vacancy-") && name.endsWith(".txt")) {
+                    vacancies.add(Files.readString(file));
+                }
+            }
+        }
+        if (cvs.isEmpty() || vacancies.isEmpty()) {
+            throw new IllegalArgumentException("The corpus " + settings.corpus() + " needs cv-* and vacancy-*.txt files");
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "load-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Runs the warm-up and the measured phase and waits for the requests in flight.
+     */
+    public LoadReport.Summary run() throws InterruptedException {
+        LoadReport report = new LoadReport();
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        AtomicLong measured = new AtomicLong();
+
+        if (settings.rate() > 0) {
+            openLoop(report, start, measureFrom, end, measured);
+        } else {
+            closedLoop(report, measureFrom, end, measured);
+        }
+        // Measured phase: until the end, or until the request limit was reached
+        long elapsed = Math.min(System.nanoTime(), end) - measureFrom;
+        executor.shutdownNow();
+        return report.summary(Duration.ofNanos(Math.max(0, elapsed)));
+    }
+
+    private void closedLoop(LoadReport report, long measureFrom, long end, AtomicLong measured) throws InterruptedException {
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < settings.concurrency(); i++) {
+            Thread t = new Thread(() -> {
+                while (System.nanoTime() < end && !limitReached(measured)) {
+                    long begin = System.nanoTime();
+                    boolean measure = begin >= measureFrom;
+                    if (measure && !reserve(measured)) {
+                        break;
+                    }
+                    int status = send();
+                    if (measure) {
+                        report.record(status, System.nanoTime() - begin);
+                    }
+                }
+            }, "client-" + i);
+            t.setDaemon(true);
+            clients.add(t);
+            t.start();
+        }
+        for (Thread t : clients) {
+            t.join();
+        }
+    }
+
+    private void openLoop(LoadReport report, long start, long measureFrom, long end, AtomicLong measured) throws InterruptedException {
+        long interval = Math.round(1e9 / settings.rate());
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end || limitReached(measured)) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            boolean measure = due >= measureFrom && reserve(measured);
+            CompletableFuture<Void> call = sendAsync().thenAccept(status -> {
+                if (measure) {
+                    report.record(status, System.nanoTime() - due);
+                }
+            });
+            inFlight.add(call);
+            inFlight.removeIf(CompletableFuture::isDone);
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                    .get(settings.timeout().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Requests that do not finish in time are already recorded as errors (timeout)
+        }
+    }
+
+    private boolean limitReached(AtomicLong measured) {
+        return settings.requests() > 0 && measured.get() >= settings.requests();
+    }
+
+    private boolean reserve(AtomicLong measured) {
+        return settings.requests() <= 0 || measured.incrementAndGet() <= settings.requests();
+    }
+
+    private int send() {
+        try {
+            return client.send(request(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private CompletableFuture<Integer> sendAsync() {
+        return client.sendAsync(request(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode)
+                .exceptionally(ex -> 0);
+    }
+
+    /**
+     * Multipart request with the next CV and vacancy of the corpus.
+     */
+    HttpRequest request() {
+        long n = sequence.getAndIncrement();
+        CvFile cv = cvs.get((int) (n % cvs.size()));
+        String vacancy = vacancies.get((int) ((n / cvs.size()) % vacancies.size()));
+        byte[] content = cv.content();
+        if (settings.unique() && cv.name().endsWith(".txt")) {
+            // First line: the header section survives the CV compaction of cvservice
+            content = ("Ref: " + UUID.randomUUID() + "\n" + new String(content, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        String boundary = "----loadtest" + UUID.randomUUID().toString().replace("-", "");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        part(body, boundary, "file", cv.name(), content);
+        part(body, boundary, "vacancyDescription", null, vacancy.getBytes(StandardCharsets.UTF_8));
+        if (settings.tier() != null) {
+            part(body, boundary, "tier", null, settings.tier().getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(settings.url())
+                .timeout(settings.timeout())
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+        if (settings.token() != null) {
+            builder.header("Authorization", "Bearer " + settings.token());
+        }
+        return builder.build();
+    }
+
+    private static void part(ByteArrayOutputStream body, String boundary, String name, String fileName, byte[] content) {
+        StringBuilder header = new StringBuilder("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append('"');
+        if (fileName != null) {
+            header.append("; filename=\"").append(fileName).append("\"\r\n")
+                    .append("Content-Type: ").append(contentType(fileName));
+        } else {
+            header.append("\r\nContent-Type: text/plain; charset=UTF-8");
+        }
+        header.append("\r\n\r\n");
+        body.writeBytes(header.toString().getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String contentType(String fileName) {
+        if (fileName.endsWith(".pdf")) {
+            return "application/pdf";
+        }
+        if (fileName.endsWith(".docx")) {
+            return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        }
+        return "text/plain";
+    }
+}
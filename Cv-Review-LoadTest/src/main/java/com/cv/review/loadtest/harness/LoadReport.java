@@ -0,0 +1,98 @@
+package com.cv.review.loadtest.harness;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and statuses of the measured requests of a load test run.
+ *
+ * Status 0 stands for requests without HTTP response (connection error or timeout).
+ */
+public class LoadReport {
+
+    /**
+     * Result of a run; latencies in milliseconds.
+     */
+    public record Summary(long requests,
+                          long ok,
+                          long errors,
+                          Map<Integer, Long> statuses,
+                          double elapsedSeconds,
+                          double throughput,
+                          double mean,
+                          double p50,
+                          double p90,
+                          double p95,
+                          double p99,
+                          double p999,
+                          double max) {
+    }
+
+    private long[] latencies = new long[1024];
+    private int size;
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    public synchronized void record(int status, long latencyNanos) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latencyNanos;
+        statuses.merge(status, 1L, Long::sum);
+    }
+
+    /**
+     * @param elapsed measured time (after the warm-up), for the throughput
+     */
+    public synchronized Summary summary(Duration elapsed) {
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        long ok = statuses.entrySet().stream()
+                .filter(entry -> entry.getKey() / 100 == 2)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        double seconds = elapsed.toNanos() / 1e9;
+        return new Summary(size, ok, size - ok, new TreeMap<>(statuses), seconds,
+                seconds > 0 ? size / seconds : 0,
+                size == 0 ? 0 : millis(Arrays.stream(sorted).sum() / (double) size),
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 95),
+                percentile(sorted, 99), percentile(sorted, 99.9),
+                size == 0 ? 0 : millis(sorted[size - 1]));
+    }
+
+    /**
+     * Nearest-rank percentile of sorted latencies, in milliseconds.
+     */
+    static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return millis(sorted[Math.min(sorted.length, Math.max(1, rank)) - 1]);
+    }
+
+    public static void print(Summary summary, PrintStream out) {
+        out.printf("Requests:    %d (%d ok, %d errors) in %.1f s%n",
+                summary.requests(), summary.ok(), summary.errors(), summary.elapsedSeconds());
+        out.printf("Statuses:    %s%n", summary.statuses());
+        out.printf("Throughput:  %.2f req/s%n", summary.throughput());
+        out.printf("Latency ms:  mean %.1f  p50 %.1f  p90 %.1f  p95 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                summary.mean(), summary.p50(), summary.p90(), summary.p95(), summary.p99(), summary.p999(),
+                summary.max());
+    }
+
+    public static void write(Summary summary, Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), summary);
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+}
@@ -0,0 +1,394 @@
+package com.cv.review.loadtest.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OpenAI-compatible chat completions server for load tests: point cvreview.openai.api-url at
+ * {@link #url()} and cvservice can be driven at any rate without spending API quota.
+ *
+ * Answers are synthetic reviews with the shape cvservice expects (one ReviewResponse, the
+ * {"evaluaciones": [...]} of multi-vacancy prompts, or plain text for CV chunk summaries),
+ * with usage, after a latency drawn from the configured distribution. "stream": true requests
+ * get the answer as server-sent events in several chunks followed by [DONE].
+ *
+ * A fraction of the calls, and those over the per-minute limit, are answered with 429 and
+ * Retry-After / x-ratelimit-* headers, to exercise the client-side limiter and retries.
+ *
+ * With an upstream URL every call is forwarded to the real API and its response recorded to
+ * the record file; with only the record file, recorded responses are replayed for the same
+ * request body (with their recorded latency) and the rest get the synthetic answer.
+ *
+ * GET /stub/stats returns the counters of the stub.
+ */
+public class ChatCompletionsStub implements AutoCloseable {
+
+    private static final Pattern VACANCY = Pattern.compile("VACANTE (\\d+):");
+
+    /**
+     * Counters of the stub.
+     */
+    public record Stats(long calls, long throttled, long replayHits, long replayMisses, long recorded, long upstreamErrors) {
+    }
+
+    private final StubSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Recordings recordings;
+    private final HttpClient upstream;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong replayHits = new AtomicLong();
+    private final AtomicLong replayMisses = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong upstreamErrors = new AtomicLong();
+    private final AtomicInteger ids = new AtomicInteger();
+    // Ventana fija de un minuto para --rpm
+    private long windowStart = System.nanoTime();
+    private int windowCalls;
+
+    public ChatCompletionsStub(StubSettings settings) throws IOException {
+        this.settings = settings;
+        this.recordings = settings.recordFile() == null ? null : new Recordings(objectMapper, settings.recordFile());
+        this.upstream = settings.upstreamUrl() == null ? null : HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stub-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.port()), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/stub/stats", this::stats);
+        this.server.createContext("/", this::handle);
+    }
+
+    public ChatCompletionsStub start() {
+        server.start();
+        return this;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return chat completions URL to use as cvreview.openai.api-url
+     */
+    public String url() {
+        return "http://127.0.0.1:" + port() + "/v1/chat/completions";
+    }
+
+    public int recordings() {
+        return recordings == null ? 0 : recordings.size();
+    }
+
+    public Stats stats() {
+        return new Stats(calls.get(), throttled.get(), replayHits.get(), replayMisses.get(), recorded.get(),
+                upstreamErrors.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "application/json", error("Only POST is supported"));
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            calls.incrementAndGet();
+            if (throttle(exchange)) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(Math.max(1, settings.retryAfter().toSeconds())));
+                respond(exchange, 429, "application/json", error("Rate limit reached (stub)"));
+                return;
+            }
+
+            JsonNode request;
+            try {
+                request = objectMapper.readTree(body);
+            } catch (IOException e) {
+                respond(exchange, 400, "application/json", error("Invalid JSON body"));
+                return;
+            }
+
+            if (recordings != null) {
+                String key = Recordings.keyOf(objectMapper, request);
+                if (upstream != null) {
+                    forward(exchange, key, body);
+                    return;
+                }
+                Recordings.Recording recording = recordings.find(key);
+                if (recording != null) {
+                    replayHits.incrementAndGet();
+                    sleep(settings.replayTiming() ? recording.latencyMs() : settings.latency().sampleMillis());
+                    respond(exchange, recording.status(), recording.contentType(), recording.body());
+                    return;
+                }
+                replayMisses.incrementAndGet();
+                if (settings.replayStrict()) {
+                    respond(exchange, 404, "application/json", error("No recording for this request"));
+                    return;
+                }
+            }
+            synthetic(exchange, request);
+        } catch (IOException e) {
+            // The client went away (cancelled call, hedge lost)
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 429 for a fraction of the calls and for those over the per-minute limit.
+     */
+    private boolean throttle(HttpExchange exchange) {
+        if (settings.requestsPerMinute() > 0) {
+            int remaining;
+            long resetSeconds;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (now - windowStart >= Duration.ofMinutes(1).toNanos()) {
+                    windowStart = now;
+                    windowCalls = 0;
+                }
+                windowCalls++;
+                remaining = settings.requestsPerMinute() - windowCalls;
+                resetSeconds = Math.max(1, 60 - Duration.ofNanos(now - windowStart).toSeconds());
+            }
+            exchange.getResponseHeaders().add("x-ratelimit-limit-requests", String.valueOf(settings.requestsPerMinute()));
+            exchange.getResponseHeaders().add("x-ratelimit-remaining-requests", String.valueOf(Math.max(0, remaining)));
+            exchange.getResponseHeaders().add("x-ratelimit-reset-requests", resetSeconds + "s");
+            if (remaining < 0) {
+                return true;
+            }
+        }
+        return settings.throttleRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.throttleRate();
+    }
+
+    private void synthetic(HttpExchange exchange, JsonNode request) throws IOException {
+        String model = request.path("model").asText("stub");
+        String content = answer(request);
+        long latency = settings.latency().sampleMillis();
+        String id = "chatcmpl-stub-" + ids.incrementAndGet();
+
+        if (!request.path("stream").asBoolean()) {
+            ObjectNode completion = completion(id, model);
+            completion.putArray("choices").addObject()
+                    .put("index", 0)
+                    .put("finish_reason", "stop")
+                    .putObject("message")
+                    .put("role", "assistant")
+                    .put("content", content);
+            int promptTokens = promptText(request).length() / 4;
+            int completionTokens = content.length() / 4;
+            completion.putObject("usage")
+                    .put("prompt_tokens", promptTokens)
+                    .put("completion_tokens", completionTokens)
+                    .put("total_tokens", promptTokens + completionTokens);
+            sleep(latency);
+            respond(exchange, 200, "application/json", objectMapper.writeValueAsString(completion));
+            return;
+        }
+
+        // Streaming: latency until the first chunk, then chunk-delay between chunks
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        sleep(latency);
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int size = Math.max(1, (content.length() + settings.chunks() - 1) / settings.chunks());
+        for (int start = 0; start < content.length(); start += size) {
+            if (start > 0) {
+                sleep(settings.chunkDelay().toMillis());
+            }
+            String piece = content.substring(start, Math.min(content.length(), start + size));
+            writeEvent(out, chunk(id, model, piece, null));
+        }
+        writeEvent(out, chunk(id, model, null, "stop"));
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Synthetic answer matching the prompt: a review, one evaluation per numbered vacancy, or
+     * a plain-text summary for prompts without vacancy (CV chunk summaries). The score is
+     * derived from the prompt, so the same CV always gets the same answer.
+     */
+    String answer(JsonNode request) throws IOException {
+        String text = promptText(request);
+        int score = 30 + Math.floorMod(text.hashCode(), 66);
+        int vacancies = 0;
+        Matcher matcher = VACANCY.matcher(text);
+        while (matcher.find()) {
+            vacancies = Math.max(vacancies, Integer.parseInt(matcher.group(1)));
+        }
+        String schema = request.path("response_format").path("json_schema").path("name").asText("");
+        if ("cv_reviews".equals(schema) || vacancies > 1) {
+            ObjectNode answer = objectMapper.createObjectNode();
+            ArrayNode evaluations = answer.putArray("evaluaciones");
+            for (int i = 1; i <= Math.max(1, vacancies); i++) {
+                ObjectNode evaluation = review(Math.floorMod(score + 7 * i, 101));
+                evaluation.put("vacante", i);
+                evaluations.add(evaluation);
+            }
+            return objectMapper.writeValueAsString(answer);
+        }
+        if (schema.isEmpty() && !text.contains("VACANTE")) {
+            return "Resumen simulado del fragmento de CV (" + text.length() + " caracteres).";
+        }
+        return objectMapper.writeValueAsString(review(score));
+    }
+
+    private ObjectNode review(int score) {
+        ObjectNode review = objectMapper.createObjectNode()
+                .put("apto", score >= 60 ? "yes" : "no")
+                .put("puntuacion", score);
+        review.putArray("competenciasFaltantes").add("Kubernetes");
+        review.putArray("cursosRecomendados").add("Kubernetes for developers");
+        review.put("resumen", "Synthetic review from the load-test stub.");
+        return review;
+    }
+
+    /**
+     * Text of every message (string contents and text parts).
+     */
+    private static String promptText(JsonNode request) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode message : request.path("messages")) {
+            JsonNode content = message.path("content");
+            if (content.isTextual()) {
+                text.append(content.asText()).append('\n');
+            } else {
+                for (JsonNode part : content) {
+                    text.append(part.path("text").asText()).append('\n');
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private ObjectNode completion(String id, String model) {
+        return objectMapper.createObjectNode()
+                .put("id", id)
+                .put("object", "chat.completion")
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", model);
+    }
+
+    private String chunk(String id, String model, String piece, String finishReason) throws IOException {
+        ObjectNode chunk = completion(id, model).put("object", "chat.completion.chunk");
+        ObjectNode choice = chunk.putArray("choices").addObject().put("index", 0);
+        ObjectNode delta = choice.putObject("delta");
+        if (piece != null) {
+            delta.put("content", piece);
+        }
+        if (finishReason != null) {
+            choice.put("finish_reason", finishReason);
+        } else {
+            choice.putNull("finish_reason");
+        }
+        return objectMapper.writeValueAsString(chunk);
+    }
+
+    /**
+     * Sends the call to the real API and records the answer (only successful ones are recorded).
+     */
+    private void forward(HttpExchange exchange, String key, byte[] body) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.upstreamUrl()))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + settings.upstreamKey())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = upstream.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (IOException e) {
+            upstreamErrors.incrementAndGet();
+            respond(exchange, 502, "application/json", error("Upstream call failed: " + e.getMessage()));
+            return;
+        }
+        long latencyMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        String contentType = response.headers().firstValue("Content-Type").orElse("application/json");
+        if (response.statusCode() / 100 == 2) {
+            recordings.add(new Recordings.Recording(key, response.statusCode(), contentType, latencyMs, response.body()));
+            recorded.incrementAndGet();
+        } else {
+            upstreamErrors.incrementAndGet();
+        }
+        response.headers().firstValue("Retry-After").ifPresent(value -> exchange.getResponseHeaders().add("Retry-After", value));
+        respond(exchange, response.statusCode(), contentType, response.body());
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, "application/json", objectMapper.writeValueAsString(stats()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String error(String message) throws IOException {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.putObject("error").put("message", message).put("type", "stub_error");
+        return objectMapper.writeValueAsString(error);
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
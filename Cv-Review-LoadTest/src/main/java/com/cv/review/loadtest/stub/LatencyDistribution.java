@@ -0,0 +1,73 @@
+package com.cv.review.loadtest.stub;
+
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * Latency of a stubbed OpenAI call, drawn from a distribution so that the load test sees the
+ * spread of a real API and not a constant.
+ *
+ * Specs:
+ *  - fixed:800             always 800 ms
+ *  - uniform:200-1500      uniform between 200 and 1500 ms
+ *  - normal:800,200        mean 800 ms, standard deviation 200 ms (cut at 0)
+ *  - lognormal:800,0.5     median 800 ms, sigma 0.5: the long right tail of LLM latencies
+ *  - exponential:500       mean 500 ms
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * @return next latency in milliseconds (never negative)
+     */
+    long sampleMillis();
+
+    static LatencyDistribution parse(String spec) {
+        // java.util.Random is safe to share between the request threads of the stub
+        return parse(spec, new Random());
+    }
+
+    /**
+     * @param random source of randomness (seeded in tests)
+     * @throws IllegalArgumentException if the spec is not valid
+     */
+    static LatencyDistribution parse(String spec, RandomGenerator random) {
+        String[] parts = spec.trim().split(":", 2);
+        String params = parts.length > 1 ? parts[1] : "";
+        try {
+            switch (parts[0]) {
+                case "fixed": {
+                    long millis = Long.parseLong(params);
+                    return () -> millis;
+                }
+                case "uniform": {
+                    String[] bounds = params.split("-");
+                    long min = Long.parseLong(bounds[0]);
+                    long max = Long.parseLong(bounds[1]);
+                    return () -> min + Math.round(random.nextDouble() * (max - min));
+                }
+                case "normal": {
+                    String[] values = params.split(",");
+                    double mean = Double.parseDouble(values[0]);
+                    double deviation = Double.parseDouble(values[1]);
+                    return () -> Math.max(0, Math.round(random.nextGaussian(mean, deviation)));
+                }
+                case "lognormal": {
+                    String[] values = params.split(",");
+                    double mu = Math.log(Double.parseDouble(values[0]));
+                    double sigma = Double.parseDouble(values[1]);
+                    return () -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                }
+                case "exponential": {
+                    double mean = Double.parseDouble(params);
+                    return () -> Math.round(random.nextExponential() * mean);
+                }
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+    }
+}
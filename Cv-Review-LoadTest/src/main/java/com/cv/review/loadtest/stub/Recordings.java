@@ -0,0 +1,119 @@
+package com.cv.review.loadtest.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Responses of the real API recorded to a JSONL file, one per line:
+ * {"key": "...", "status": 200, "contentType": "...", "latencyMs": 812, "body": "..."}
+ *
+ * The key is the SHA-256 of the request body re-serialized compactly, so the same prompt sent
+ * by cvservice (same model, messages, response_format and stream flag) finds its recording.
+ * When a request was recorded several times, replays cycle through the recordings.
+ */
+public class Recordings {
+
+    /**
+     * One recorded response.
+     *
+     * @param latencyMs time the real API took to answer
+     * @param body      response body (JSON, or the whole event stream for streaming requests)
+     */
+    public record Recording(String key, int status, String contentType, long latencyMs, String body) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final Map<String, List<Recording>> byKey = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+
+    /**
+     * @param file JSONL file; loaded if it exists, created on the first recording otherwise
+     */
+    public Recordings(ObjectMapper objectMapper, Path file) throws IOException {
+        this.objectMapper = objectMapper;
+        this.file = file;
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        Recording recording = objectMapper.readValue(line, Recording.class);
+                        byKey.computeIfAbsent(recording.key(), key -> new ArrayList<>()).add(recording);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return recordings loaded or recorded so far
+     */
+    public int size() {
+        return byKey.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * @return a recording of the request, or null if it was never recorded
+     */
+    public Recording find(String key) {
+        List<Recording> recordings = byKey.get(key);
+        if (recordings == null || recordings.isEmpty()) {
+            return null;
+        }
+        int next = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        synchronized (recordings) {
+            return recordings.get(Math.floorMod(next, recordings.size()));
+        }
+    }
+
+    /**
+     * Appends a recording to the file.
+     */
+    public synchronized void add(Recording recording) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(objectMapper.writeValueAsString(recording));
+            writer.newLine();
+        }
+        List<Recording> recordings = byKey.computeIfAbsent(recording.key(), key -> new ArrayList<>());
+        synchronized (recordings) {
+            recordings.add(recording);
+        }
+    }
+
+    /**
+     * Key of a request body: SHA-256 of its compact JSON (whitespace and formatting do not count).
+     */
+    public static String keyOf(ObjectMapper objectMapper, JsonNode request) {
+        try {
+            JsonNode copy = request.deepCopy();
+            if (copy instanceof ObjectNode object) {
+                // Los ids de usuario no cambian la respuesta
+                object.remove("user");
+            }
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsBytes(copy));
+            return HexFormat.of().formatHex(hash);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute the recording key", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.cv.review.loadtest.stub;
+
+import com.cv.review.loadtest.Args;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Options of the ChatCompletionsStub.
+ *
+ * @param port              port to listen on (0 = any free port)
+ * @param latency           time until the full response, or until the first chunk when streaming
+ * @param chunkDelay        pause between streamed chunks
+ * @param chunks            chunks a streamed answer is split into
+ * @param throttleRate      fraction (0..1) of calls answered with 429
+ * @param requestsPerMinute calls per minute accepted before answering 429 (0 = unlimited)
+ * @param retryAfter        Retry-After of the 429 answers
+ * @param recordFile        JSONL file of recordings (replayed, and appended to when upstream is set)
+ * @param upstreamUrl       real chat completions URL to forward and record calls to (null = no recording)
+ * @param upstreamKey       API key for the upstream
+ * @param replayTiming      true to replay with the recorded latency, false to use the latency distribution
+ * @param replayStrict      true to answer 404 to requests without recording instead of a synthetic answer
+ */
+public record StubSettings(int port,
+                           LatencyDistribution latency,
+                           Duration chunkDelay,
+                           int chunks,
+                           double throttleRate,
+                           int requestsPerMinute,
+                           Duration retryAfter,
+                           Path recordFile,
+                           String upstreamUrl,
+                           String upstreamKey,
+                           boolean replayTiming,
+                           boolean replayStrict) {
+
+    /**
+     * Options: --port 9999 --latency lognormal:800,0.5 --chunk-delay 20ms --chunks 20
+     * --throttle-rate 0.05 --rpm 0 --retry-after 1 --record-file calls.jsonl
+     * --upstream https://api.openai.com/v1/chat/completions --upstream-key sk-...
+     * --replay-timing recorded|distribution --replay-strict
+     */
+    public static StubSettings fromArgs(Args args) {
+        String upstream = args.get("upstream", null);
+        String recordFile = args.get("record-file", null);
+        if (upstream != null && recordFile == null) {
+            throw new IllegalArgumentException("--upstream needs --record-file to record the calls to");
+        }
+        return new StubSettings(
+                args.getInt("port", 9999),
+                LatencyDistribution.parse(args.get("latency", "lognormal:800,0.5")),
+                args.getDuration("chunk-delay", Duration.ofMillis(20)),
+                Math.max(1, args.getInt("chunks", 20)),
+                args.getDouble("throttle-rate", 0),
+                args.getInt("rpm", 0),
+                args.getDuration("retry-after", Duration.ofSeconds(1)),
+                recordFile == null ? null : Path.of(recordFile),
+                upstream,
+                args.get("upstream-key", System.getenv("OPENAI_API_KEY")),
+                !"distribution".equals(args.get("replay-timing", "recorded")),
+                args.getBoolean("replay-strict", false));
+    }
+}
@@ -0,0 +1,106 @@
+package com.cv.review.loadtest.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+class LoadGeneratorTests {
+
+	@TempDir
+	Path corpus;
+
+	private HttpServer server;
+	private final AtomicInteger calls = new AtomicInteger();
+	private final Set<String> bodies = ConcurrentHashMap.newKeySet();
+
+	@BeforeEach
+	void startServer() throws IOException {
+		Files.writeString(corpus.resolve("cv-one.txt"), "Java developer");
+		Files.writeString(corpus.resolve("cv-two.txt"), "Data engineer");
+		Files.writeString(corpus.resolve("vacancy-backend.txt"), "Backend Java");
+
+		// Fake cvservice: every third call fails with 503
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newFixedThreadPool(8));
+		server.createContext("/api/v1/reviews", exchange -> {
+			bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)
+					.replaceAll("----loadtest\\w+", ""));
+			int status = calls.incrementAndGet() % 3 == 0 ? 503 : 200;
+			sleep(5);
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void closedLoopStopsAfterTheRequestLimit() throws Exception {
+		LoadReport.Summary summary = new LoadGenerator(settings(4, 0, 30, false)).run();
+
+		assertEquals(30, summary.requests());
+		assertEquals(summary.requests(), summary.ok() + summary.errors());
+		assertTrue(summary.statuses().get(503) >= 8);
+		assertTrue(summary.p50() >= 5 && summary.p50() <= summary.p99() && summary.p99() <= summary.max());
+		assertTrue(summary.throughput() > 0);
+		// Two CVs, always the same bodies
+		assertEquals(2, bodies.size());
+	}
+
+	@Test
+	void openLoopSendsAtTheRateWithUniqueCvs() throws Exception {
+		LoadReport.Summary summary = new LoadGenerator(settings(1, 50, 0, true)).run();
+
+		// 50 req/s for one second
+		assertTrue(summary.requests() >= 45 && summary.requests() <= 50, "requests: " + summary.requests());
+		assertEquals(calls.get(), bodies.size());
+	}
+
+	@Test
+	void percentilesUseTheNearestRank() {
+		long[] sorted = new long[100];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = (i + 1) * 1_000_000L;
+		}
+		assertEquals(50.0, LoadReport.percentile(sorted, 50));
+		assertEquals(99.0, LoadReport.percentile(sorted, 99));
+		assertEquals(100.0, LoadReport.percentile(sorted, 99.9));
+		assertEquals(0.0, LoadReport.percentile(new long[0], 50));
+	}
+
+	private LoadGenerator.Settings settings(int concurrency, double rate, long requests, boolean unique) {
+		return new LoadGenerator.Settings(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/reviews"),
+				corpus, concurrency, rate, Duration.ofSeconds(requests > 0 ? 30 : 1), Duration.ZERO, requests,
+				Duration.ofSeconds(10), null, unique, null);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.cv.review.loadtest.stub;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+class ChatCompletionsStubTests {
+
+	private static final String REVIEW_REQUEST = """
+			{"model":"gpt-4o-mini","messages":[{"role":"system","content":"Eres un reclutador"},
+			{"role":"user","content":"VACANTE 1: Backend Java\\nCV: Java, Spring, SQL"}]}""";
+
+	@TempDir
+	Path dir;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpClient client = HttpClient.newHttpClient();
+	private ChatCompletionsStub stub;
+	private HttpServer upstream;
+
+	@AfterEach
+	void stop() {
+		if (stub != null) {
+			stub.close();
+		}
+		if (upstream != null) {
+			upstream.stop(0);
+		}
+	}
+
+	@Test
+	void syntheticAnswerIsAReviewWithUsage() throws Exception {
+		stub = start(settings(0, 0, null, null, false));
+
+		HttpResponse<String> response = post(REVIEW_REQUEST);
+		assertEquals(200, response.statusCode());
+		JsonNode completion = objectMapper.readTree(response.body());
+		assertTrue(completion.path("usage").path("total_tokens").asInt() > 0);
+		JsonNode review = objectMapper.readTree(completion.path("choices").path(0).path("message").path("content").asText());
+		int score = review.path("puntuacion").asInt();
+		assertTrue(score >= 0 && score <= 100);
+		assertEquals(score >= 60 ? "yes" : "no", review.path("apto").asText());
+
+		// Same prompt, same answer
+		assertEquals(completion.path("choices").toString(),
+				objectMapper.readTree(post(REVIEW_REQUEST).body()).path("choices").toString());
+
+		String multi = REVIEW_REQUEST.replace("CV:", "VACANTE 2: Data\\nVACANTE 3: DevOps\\nCV:");
+		JsonNode answer = objectMapper.readTree(objectMapper.readTree(post(multi).body())
+				.path("choices").path(0).path("message").path("content").asText());
+		assertEquals(3, answer.path("evaluaciones").size());
+		assertEquals(3, answer.path("evaluaciones").path(2).path("vacante").asInt());
+	}
+
+	@Test
+	void callsOverTheRateAreAnsweredWith429() throws Exception {
+		stub = start(settings(0, 2, null, null, false));
+
+		assertEquals(200, post(REVIEW_REQUEST).statusCode());
+		HttpResponse<String> second = post(REVIEW_REQUEST);
+		assertEquals("0", second.headers().firstValue("x-ratelimit-remaining-requests").orElseThrow());
+		HttpResponse<String> third = post(REVIEW_REQUEST);
+		assertEquals(429, third.statusCode());
+		assertEquals("1", third.headers().firstValue("Retry-After").orElseThrow());
+		assertEquals(1, stub.stats().throttled());
+
+		stub.close();
+		stub = start(settings(1.0, 0, null, null, false));
+		assertEquals(429, post(REVIEW_REQUEST).statusCode());
+	}
+
+	@Test
+	void streamingAnswerIsSplitInChunksEndingWithDone() throws Exception {
+		stub = start(settings(0, 0, null, null, false));
+
+		HttpResponse<String> response = post(REVIEW_REQUEST.replace("{\"model\"", "{\"stream\":true,\"model\""));
+		assertEquals("text/event-stream", response.headers().firstValue("Content-Type").orElseThrow());
+		List<String> events = response.body().lines().filter(line -> line.startsWith("data: ")).toList();
+		assertEquals("data: [DONE]", events.get(events.size() - 1));
+		assertTrue(events.size() > 3);
+
+		StringBuilder content = new StringBuilder();
+		for (String event : events.subList(0, events.size() - 1)) {
+			content.append(objectMapper.readTree(event.substring(6)).path("choices").path(0).path("delta").path("content").asText(""));
+		}
+		assertNotNull(objectMapper.readTree(content.toString()).get("puntuacion"));
+	}
+
+	@Test
+	void recordedAnswersAreReplayed() throws Exception {
+		upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		upstream.createContext("/", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			byte[] body = "{\"choices\":[{\"message\":{\"content\":\"real\"}}]}".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			exchange.getResponseBody().write(body);
+			exchange.close();
+		});
+		upstream.start();
+		Path file = dir.resolve("calls.jsonl");
+
+		stub = start(settings(0, 0, file, "http://127.0.0.1:" + upstream.getAddress().getPort() + "/v1/chat/completions", false));
+		assertTrue(post(REVIEW_REQUEST).body().contains("real"));
+		assertEquals(1, stub.stats().recorded());
+		stub.close();
+		upstream.stop(0);
+		upstream = null;
+
+		// Without upstream: same request (formatting apart) replayed, other requests rejected
+		stub = start(settings(0, 0, file, null, true));
+		assertEquals(1, stub.recordings());
+		assertTrue(post(objectMapper.readTree(REVIEW_REQUEST).toPrettyString()).body().contains("real"));
+		assertEquals(404, post(REVIEW_REQUEST.replace("Backend", "Frontend")).statusCode());
+		assertEquals(1, stub.stats().replayHits());
+		assertEquals(1, stub.stats().replayMisses());
+	}
+
+	@Test
+	void latencyDistributionsAreParsed() {
+		Random random = new Random(42);
+		assertEquals(250, LatencyDistribution.parse("fixed:250").sampleMillis());
+		for (int i = 0; i < 100; i++) {
+			long uniform = LatencyDistribution.parse("uniform:100-200", random).sampleMillis();
+			assertTrue(uniform >= 100 && uniform <= 200);
+			assertTrue(LatencyDistribution.parse("lognormal:800,0.5", random).sampleMillis() >= 0);
+			assertTrue(LatencyDistribution.parse("exponential:300", random).sampleMillis() >= 0);
+			assertTrue(LatencyDistribution.parse("normal:500,100", random).sampleMillis() >= 0);
+		}
+		assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("pareto:1"));
+	}
+
+	private ChatCompletionsStub start(StubSettings settings) throws IOException {
+		return new ChatCompletionsStub(settings).start();
+	}
+
+	private static StubSettings settings(double throttleRate, int rpm, Path recordFile, String upstreamUrl, boolean strict) {
+		return new StubSettings(0, LatencyDistribution.parse("fixed:5"), Duration.ofMillis(1), 8, throttleRate, rpm,
+				Duration.ofSeconds(1), recordFile, upstreamUrl, "key", true, strict);
+	}
+
+	private HttpResponse<String> post(String body) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(stub.url()))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}